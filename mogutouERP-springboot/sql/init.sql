@@ -29,7 +29,7 @@ CREATE TABLE IF NOT EXISTS goods (
     unit VARCHAR(20) COMMENT '单位',
     purchase_price DECIMAL(10,2) COMMENT '采购价',
     selling_price DECIMAL(10,2) COMMENT '销售价',
-    stock INT DEFAULT 0 COMMENT '库存数量',
+    stock INT DEFAULT 0 COMMENT '已废弃：库存以inventory.quantity为准',
     status TINYINT(1) DEFAULT 1 COMMENT '状态：1-启用，0-禁用',
     description TEXT COMMENT '描述',
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
@@ -37,6 +37,12 @@ CREATE TABLE IF NOT EXISTS goods (
     UNIQUE KEY `idx_code` (code)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='商品表';
 
+-- 主键号段表：订单、订单商品、财务记录按号段预取主键，以便批量插入
+CREATE TABLE IF NOT EXISTS id_generator (
+    gen_name VARCHAR(50) NOT NULL PRIMARY KEY COMMENT '表名',
+    next_val BIGINT NOT NULL COMMENT '下一个号段的起点'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='主键号段表';
+
 -- 客户订单表
 CREATE TABLE IF NOT EXISTS orders (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -78,6 +84,7 @@ CREATE TABLE IF NOT EXISTS order_goods (
 -- 创建库存表
 CREATE TABLE IF NOT EXISTS inventory (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    goods_id BIGINT COMMENT '商品ID',
     product_name VARCHAR(100) NOT NULL COMMENT '商品名称',
     product_code VARCHAR(50) NOT NULL COMMENT '商品编码',
     quantity INT NOT NULL DEFAULT 0 COMMENT '库存数量',
@@ -86,12 +93,63 @@ CREATE TABLE IF NOT EXISTS inventory (
     location VARCHAR(100) COMMENT '库存位置',
     category VARCHAR(50) COMMENT '分类',
     description TEXT COMMENT '描述',
+    warning_threshold INT DEFAULT 5 COMMENT '库存预警阈值',
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+    UNIQUE KEY `uk_inventory_goods_id` (goods_id),
+    INDEX `idx_product_name` (product_name),
     INDEX `idx_product_code` (product_code),
-    INDEX `idx_category` (category)
+    INDEX `idx_category` (category),
+    -- 低库存查询使用的函数索引（MySQL 8.0.13+）
+    INDEX `idx_stock_margin` ((quantity - warning_threshold))
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='库存表';
 
+-- 创建库存流水表（只追加）
+CREATE TABLE IF NOT EXISTS stock_movement (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    inventory_id BIGINT NOT NULL COMMENT '库存ID',
+    delta INT NOT NULL COMMENT '数量变化，正数入库、负数出库',
+    source_type VARCHAR(20) NOT NULL COMMENT '来源：OPENING/MANUAL/ADJUST/BATCH/ORDER',
+    source_id BIGINT COMMENT '来源单据ID（如订单ID）',
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '发生时间',
+    INDEX `idx_movement_inventory` (inventory_id, id),
+    INDEX `idx_movement_created_at` (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='库存流水表';
+
+-- 创建库存快照表（由流水定时压缩生成）
+CREATE TABLE IF NOT EXISTS stock_snapshot (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    inventory_id BIGINT NOT NULL COMMENT '库存ID',
+    quantity INT NOT NULL COMMENT '快照时的库存数量',
+    last_movement_id BIGINT NOT NULL COMMENT '快照包含的最后一条流水ID',
+    snapshot_at DATETIME NOT NULL COMMENT '快照包含的最后一条流水的时间',
+    INDEX `idx_snapshot_inventory` (inventory_id, last_movement_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='库存快照表';
+
+-- 创建分仓库存表（商品在各仓库的数量，合计等于inventory.quantity）
+CREATE TABLE IF NOT EXISTS inventory_stock (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    inventory_id BIGINT NOT NULL COMMENT '库存ID',
+    location VARCHAR(100) NOT NULL COMMENT '仓库',
+    quantity INT NOT NULL DEFAULT 0 COMMENT '该仓库库存数量',
+    updated_at DATETIME COMMENT '更新时间',
+    UNIQUE KEY `uk_stock_inventory_location` (inventory_id, location),
+    INDEX `idx_stock_location` (location)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='分仓库存表';
+
+-- 创建库存预占表（销售订单创建时预占，确认时转为出库）
+CREATE TABLE IF NOT EXISTS stock_reservation (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    order_id BIGINT NOT NULL COMMENT '订单ID',
+    inventory_id BIGINT NOT NULL COMMENT '库存ID',
+    quantity INT NOT NULL COMMENT '预占数量',
+    status VARCHAR(20) NOT NULL COMMENT '状态：ACTIVE/CONSUMED/RELEASED/EXPIRED',
+    expires_at DATETIME NOT NULL COMMENT '到期时间',
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    INDEX `idx_reservation_order` (order_id),
+    INDEX `idx_reservation_status_expires` (status, expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='库存预占表';
+
 -- 创建公司表
 CREATE TABLE IF NOT EXISTS company (
     id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '公司ID',
@@ -135,12 +193,35 @@ CREATE TABLE IF NOT EXISTS finance_record (
     record_type VARCHAR(20) COMMENT '记录类型',
     description VARCHAR(255) COMMENT '描述',
     created_by VARCHAR(50) COMMENT '创建人',
+    order_id BIGINT COMMENT '关联订单ID（订单确认自动生成的记录）',
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
     updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
     INDEX `idx_record_date` (record_date),
+    INDEX `idx_finance_order_id` (order_id),
     INDEX `idx_record_type` (record_type)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='财务记录表'; 
 
+-- 上传文件内容块表（按SHA-256内容寻址，相同内容只保存一份）
+CREATE TABLE IF NOT EXISTS file_blob (
+    sha256 CHAR(64) PRIMARY KEY COMMENT '内容SHA-256摘要',
+    size BIGINT COMMENT '文件大小（字节）',
+    content_type VARCHAR(100) COMMENT '文件类型',
+    storage_path VARCHAR(255) NOT NULL COMMENT '存储路径（相对上传目录）',
+    ref_count INT DEFAULT 0 COMMENT '引用次数',
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='上传文件内容块表';
+
+-- 上传文件引用表（逻辑URL -> 内容块）
+CREATE TABLE IF NOT EXISTS file_reference (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    url VARCHAR(255) NOT NULL COMMENT '对外访问的逻辑URL',
+    sha256 CHAR(64) NOT NULL COMMENT '内容块摘要',
+    original_filename VARCHAR(255) COMMENT '原始文件名',
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    UNIQUE KEY `idx_file_url` (url),
+    INDEX `idx_file_sha256` (sha256)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='上传文件引用表';
+
 -- 初始化管理员账户
 INSERT INTO users (username, password, tel, email, role, status, created_at, updated_at)
 VALUES ('admin', '$2a$10$oZUahFN8H9T8RbCtq3cRH.UI/HyWupN8drIgO78kOed20.6EQbC52', '13800000000', 'admin@mogutou.com', 'admin', 1, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
@@ -150,4 +231,16 @@ updated_at = CURRENT_TIMESTAMP;
 
 -- 注意：密码为 'admin123'，使用BCrypt加密
 ALTER TABLE `users`
-  ADD COLUMN `avatar` VARCHAR(255) NULL COMMENT '头像 URL';
\ No newline at end of file
+  ADD COLUMN `avatar` VARCHAR(255) NULL COMMENT '头像 URL';
+
+-- 数据一致性检查发现的不一致记录
+CREATE TABLE IF NOT EXISTS consistency_mismatch (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    run_id BIGINT NOT NULL COMMENT '检查批次ID',
+    check_type VARCHAR(30) NOT NULL COMMENT '检查项：ORDER_AMOUNT/INVENTORY_LEDGER/ORDER_FINANCE',
+    entity_id BIGINT NOT NULL COMMENT '不一致记录的主键',
+    expected_value VARCHAR(64) COMMENT '期望值',
+    actual_value VARCHAR(64) COMMENT '实际值',
+    detected_at DATETIME NOT NULL COMMENT '发现时间',
+    INDEX `idx_mismatch_run` (run_id, check_type)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='数据不一致记录表';
@@ -0,0 +1,55 @@
+-- 已有数据库的增量升级脚本
+-- init.sql 只在首次建库时执行，已部署的库按顺序执行以下语句（已存在的列/索引会报错，跳过该条即可）
+
+USE mgterp;
+
+-- 低库存查询：预警阈值字段与函数索引（MySQL 8.0.13+）
+ALTER TABLE inventory ADD COLUMN warning_threshold INT DEFAULT 5 COMMENT '库存预警阈值';
+ALTER TABLE inventory ADD INDEX `idx_stock_margin` ((quantity - warning_threshold));
+
+-- 按商品名称查询库存（订单确认、价格自动填充）
+ALTER TABLE inventory ADD INDEX `idx_product_name` (product_name);
+
+-- 库存流水与快照表：执行 init.sql 中 stock_movement、stock_snapshot 的建表语句即可，
+-- 应用启动时会为已有库存自动补记期初流水
+
+-- 库存统一以inventory为准：inventory按goods_id与商品一一对应，goods.stock不再写入
+ALTER TABLE inventory ADD COLUMN goods_id BIGINT COMMENT '商品ID' AFTER id;
+
+-- 一次性迁移1：按名称把已有库存关联到商品（同名多条库存时只关联ID最小的一条）
+UPDATE inventory i
+JOIN (SELECT MIN(id) AS id FROM inventory WHERE goods_id IS NULL GROUP BY product_name) first_row ON first_row.id = i.id
+JOIN (SELECT name, MIN(id) AS goods_id FROM goods GROUP BY name) g ON g.name = i.product_name
+SET i.goods_id = g.goods_id;
+
+-- 一次性迁移2：只在goods.stock中有库存、inventory里没有记录的商品补建库存
+INSERT INTO inventory (goods_id, product_name, product_code, quantity, unit, unit_price, location, category)
+SELECT g.id, g.name, g.code, g.stock, g.unit, g.purchase_price, '默认仓库', g.category
+FROM goods g
+WHERE g.stock > 0
+  AND NOT EXISTS (SELECT 1 FROM inventory i WHERE i.goods_id = g.id OR i.product_name = g.name);
+
+ALTER TABLE inventory ADD UNIQUE KEY `uk_inventory_goods_id` (goods_id);
+
+-- 财务记录关联订单ID，用于订单与财务记录的一致性检查
+ALTER TABLE finance_record ADD COLUMN order_id BIGINT COMMENT '关联订单ID（订单确认自动生成的记录）';
+ALTER TABLE finance_record ADD INDEX `idx_finance_order_id` (order_id);
+
+-- 一次性回填：旧的自动记录只在描述里写了订单号
+UPDATE finance_record f
+JOIN orders o ON o.order_no = SUBSTRING_INDEX(f.description, '订单号: ', -1)
+SET f.order_id = o.id
+WHERE f.order_id IS NULL AND f.created_by = 'system' AND f.description LIKE '%订单自动记录 - 订单号: %';
+
+-- 数据一致性检查结果表：执行 init.sql 中 consistency_mismatch 的建表语句即可
+
+-- 分仓库存表：执行 init.sql 中 inventory_stock 的建表语句即可，
+-- 应用启动时会按已有库存的location字段自动生成分仓记录
+
+-- 库存预占表：执行 init.sql 中 stock_reservation 的建表语句即可
+
+-- 订单、订单商品、财务记录改为号段主键（批量插入）：先建 init.sql 中的 id_generator 表，
+-- 再按现有最大ID初始化号段起点，多留一个号段避免与已有ID重复（必须在新版本启动前执行）
+INSERT INTO id_generator (gen_name, next_val) SELECT 'orders', COALESCE(MAX(id), 0) + 51 FROM orders;
+INSERT INTO id_generator (gen_name, next_val) SELECT 'order_goods', COALESCE(MAX(id), 0) + 201 FROM order_goods;
+INSERT INTO id_generator (gen_name, next_val) SELECT 'finance_record', COALESCE(MAX(id), 0) + 51 FROM finance_record;
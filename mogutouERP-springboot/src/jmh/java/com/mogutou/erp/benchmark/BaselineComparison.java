@@ -0,0 +1,92 @@
+package com.mogutou.erp.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * JMH结果与基线对比
+ * 参数：基线JSON 本次结果JSON 允许变差的百分比
+ * 按 基准方法+参数 匹配，吞吐量模式越高越好，其余模式越低越好；
+ * 任一基准变差超过阈值且超出两次结果的误差范围时以非0状态退出
+ */
+public class BaselineComparison {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("用法: BaselineComparison <baseline.json> <result.json> [阈值百分比，默认10]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = index(mapper.readTree(new File(args[0])));
+        Map<String, JsonNode> current = index(mapper.readTree(new File(args[1])));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode now = entry.getValue();
+            JsonNode before = baseline.get(entry.getKey());
+            String unit = now.path("primaryMetric").path("scoreUnit").asText();
+            double score = now.path("primaryMetric").path("score").asDouble();
+            if (before == null) {
+                System.out.printf("%-90s %14s %14.3f %9s  %s%n", entry.getKey(), "-", score, "new", unit);
+                continue;
+            }
+            double baseScore = before.path("primaryMetric").path("score").asDouble();
+            double change = (score - baseScore) / baseScore * 100;
+            // 吞吐量下降才算变差，耗时类模式上升才算变差
+            double worse = "thrpt".equals(now.path("mode").asText()) ? -change : change;
+            double error = error(now) + error(before);
+            boolean regression = worse > threshold && Math.abs(score - baseScore) > error;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%  %s%s%n", entry.getKey(), baseScore, score, change, unit,
+                    regression ? "  <-- 变差" : "");
+        }
+        for (String key : baseline.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-90s %14s%n", key, "本次未运行");
+            }
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " 个基准比基线变差超过 " + threshold + "%");
+            System.exit(1);
+        }
+        System.out.println("没有超过 " + threshold + "% 的性能回退");
+    }
+
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> byKey = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            byKey.put(key(result), result);
+        }
+        return byKey;
+    }
+
+    private static String key(JsonNode result) {
+        StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+        JsonNode params = result.path("params");
+        if (params.isObject()) {
+            Map<String, String> sorted = new TreeMap<>();
+            Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                sorted.put(field.getKey(), field.getValue().asText());
+            }
+            key.append(sorted);
+        }
+        return key.toString();
+    }
+
+    private static double error(JsonNode result) {
+        double error = result.path("primaryMetric").path("scoreError").asDouble();
+        return Double.isNaN(error) ? 0 : error;
+    }
+}
@@ -0,0 +1,42 @@
+package com.mogutou.erp.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 编码生成基准：每次生成都要格式化当前日期和随机数
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CodeGeneratorBenchmark {
+
+    private String category = "办公用品";
+
+    @Benchmark
+    public String generateProductCode() {
+        return CodeGenerator.generateProductCode();
+    }
+
+    @Benchmark
+    public String generateProductCodeByCategory() {
+        return CodeGenerator.generateProductCodeByCategory(category);
+    }
+
+    @Benchmark
+    public String generateOrderCode() {
+        return CodeGenerator.generateOrderCode("sales");
+    }
+}
@@ -0,0 +1,63 @@
+package com.mogutou.erp.config;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT基准：每个请求经过JwtInterceptor时都会校验并解析一次令牌
+ * tamperedToken签名错误，走校验失败（抛异常）的分支
+ * 签名和解析涉及的代码较多，JIT编译完成得晚，预热时间比其他基准长
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtConfigBenchmark {
+
+    private JwtConfig jwtConfig;
+    private String token;
+    private String tamperedToken;
+
+    @Setup
+    public void setUp() {
+        jwtConfig = new JwtConfig();
+        ReflectionTestUtils.setField(jwtConfig, "secret", "mogutou-erp-benchmark-secret-key-0123456789");
+        ReflectionTestUtils.setField(jwtConfig, "expiration", 86400000L);
+        token = jwtConfig.generateToken("admin");
+        char last = token.charAt(token.length() - 2);
+        tamperedToken = token.substring(0, token.length() - 2) + (last == 'A' ? 'B' : 'A') + token.charAt(token.length() - 1);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtConfig.generateToken("admin");
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtConfig.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUsernameFromToken() {
+        return jwtConfig.getUsernameFromToken(token);
+    }
+
+    @Benchmark
+    public boolean validateTamperedToken() {
+        return jwtConfig.validateToken(tamperedToken);
+    }
+}
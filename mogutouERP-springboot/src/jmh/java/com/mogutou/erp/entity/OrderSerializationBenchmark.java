@@ -0,0 +1,98 @@
+package com.mogutou.erp.entity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单JSON序列化基准：订单、操作员、订单商品及其商品组成的对象图
+ * ObjectMapper按Spring MVC的默认方式构建（含Java时间模块）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderSerializationBenchmark {
+
+    @Param({"1", "20", "200"})
+    public int lines;
+
+    private ObjectMapper objectMapper;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        LocalDateTime now = LocalDateTime.of(2024, 11, 25, 10, 30);
+
+        User operator = new User("admin", "$2a$10$benchmarkbenchmarkbenchmarkbenchmarkbenchmarkbench", "13800000000",
+                "admin@example.com", "admin");
+        operator.setId(1L);
+
+        order = new Order();
+        order.setId(1L);
+        order.setOrderNo("SO20241125000001");
+        order.setOrderType("SALE");
+        order.setType("customer");
+        order.setCustomerName("华为科技有限公司");
+        order.setContactPerson("张三");
+        order.setTel("13900000000");
+        order.setAddress("广东省深圳市龙岗区坂田街道");
+        order.setDeliveryTime(now.plusDays(3));
+        order.setFreight(20.0f);
+        order.setOperator(operator);
+        order.setRemarks("基准测试订单");
+        order.setCreatedAt(now);
+        order.setUpdatedAt(now);
+
+        List<OrderGoods> orderGoods = new ArrayList<>(lines);
+        float amount = 0;
+        for (int i = 0; i < lines; i++) {
+            Goods goods = new Goods();
+            goods.setId((long) i + 1);
+            goods.setCode("E20241125" + String.format("%04d", i));
+            goods.setName("服务器" + i);
+            goods.setCategory("电子产品");
+            goods.setSpecification("2U机架式");
+            goods.setUnit("台");
+            goods.setPurchasePrice(6000.0f);
+            goods.setSellingPrice(8000.0f);
+
+            OrderGoods line = new OrderGoods();
+            line.setId((long) i + 1);
+            line.setOrder(order);
+            line.setGoods(goods);
+            line.setQuantity(i % 10 + 1);
+            line.setUnitPrice(8000.0f);
+            line.setTotalPrice(8000.0f * line.getQuantity());
+            line.setCreatedAt(now);
+            line.setUpdatedAt(now);
+            orderGoods.add(line);
+            amount += line.getTotalPrice();
+        }
+        order.setGoods(orderGoods);
+        order.setAmount(amount);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(order);
+    }
+}
@@ -0,0 +1,80 @@
+package com.mogutou.erp.service.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AI指令文本提取基准：订单类型、客户、商品的本地规则提取，以及中文数字转换
+ * 提取方法中有控制台输出，基准期间丢弃（字符串拼接仍计入耗时），避免刷屏和终端写入的干扰
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandTextExtractorBenchmark {
+
+    private static final String[] CHINESE_NUMBERS = {"三", "十五", "三十", "一百二十", "两千零五", "一万二千三百"};
+
+    /**
+     * 典型的用户输入：采购、销售、非下单语句
+     */
+    @State(Scope.Benchmark)
+    public static class Input {
+        @Param({"从华为科技采购50台服务器，单价8000元", "卖给张三三十个笔记本电脑，每个4500元", "查询本月的销售订单"})
+        public String text;
+    }
+
+    private CommandExecutorServiceImpl service;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setUp() {
+        service = new CommandExecutorServiceImpl();
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public String detectOrderType(Input input) {
+        return service.detectOrderTypeFromText(input.text);
+    }
+
+    @Benchmark
+    public String extractCustomer(Input input) {
+        return service.extractCustomerFromText(input.text);
+    }
+
+    @Benchmark
+    public Object extractProduct(Input input) {
+        return service.extractProductFromText(input.text);
+    }
+
+    @Benchmark
+    public void convertChineseNumbers(Blackhole blackhole) {
+        for (String number : CHINESE_NUMBERS) {
+            blackhole.consume(service.convertChineseNumber(number));
+        }
+    }
+}
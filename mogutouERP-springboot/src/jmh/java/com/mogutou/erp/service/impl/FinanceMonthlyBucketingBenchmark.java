@@ -0,0 +1,101 @@
+package com.mogutou.erp.service.impl;
+
+import com.mogutou.erp.entity.FinanceRecord;
+import com.mogutou.erp.repository.FinanceRecordRepository;
+import com.mogutou.erp.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * 月度财务数据基准：全年财务记录按月分桶累加
+ * 仓库和订单服务用只做桩、不记录调用的mock代替，测的是分桶本身
+ * 单次调用在毫秒级，每轮迭代时间加长以收集足够多的样本
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FinanceMonthlyBucketingBenchmark {
+
+    private static final int YEAR = 2024;
+
+    @Param({"10000", "100000"})
+    public int records;
+
+    private FinanceServiceImpl financeService;
+
+    @Setup
+    public void setUp() {
+        FinanceRecordRepository financeRecordRepository = mock(FinanceRecordRepository.class, withSettings().stubOnly());
+        when(financeRecordRepository.findByRecordDateBetweenOrderByRecordDateAsc(any(), any()))
+                .thenReturn(syntheticRecords(records));
+
+        Map<String, List<?>> orderData = new HashMap<>();
+        orderData.put("salesOrderCounts", Collections.nCopies(12, 0));
+        orderData.put("purchaseOrderCounts", Collections.nCopies(12, 0));
+        orderData.put("salesTotalAmounts", Collections.nCopies(12, BigDecimal.ZERO));
+        orderData.put("purchaseTotalAmounts", Collections.nCopies(12, BigDecimal.ZERO));
+        OrderService orderService = mock(OrderService.class, withSettings().stubOnly());
+        when(orderService.getMonthlyTypedOrderData(YEAR)).thenReturn(orderData);
+
+        financeService = new FinanceServiceImpl();
+        ReflectionTestUtils.setField(financeService, "financeRecordRepository", financeRecordRepository);
+        ReflectionTestUtils.setField(financeService, "orderService", orderService);
+    }
+
+    @Benchmark
+    public Map<String, Object> getMonthlyFinanceData() {
+        return financeService.getMonthlyFinanceData(YEAR);
+    }
+
+    /**
+     * 全年随机分布的记录，金额保留两位小数，按日期升序（与仓库查询一致）
+     */
+    private static List<FinanceRecord> syntheticRecords(int count) {
+        Random random = new Random(42);
+        List<FinanceRecord> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.set(YEAR, Calendar.JANUARY, 1, 0, 0, 0);
+            calendar.add(Calendar.SECOND, random.nextInt(365 * 24 * 3600));
+            BigDecimal income = BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+            BigDecimal expense = BigDecimal.valueOf(random.nextInt(800_000), 2);
+            FinanceRecord record = new FinanceRecord();
+            record.setRecordDate(calendar.getTime());
+            record.setIncome(income);
+            record.setExpense(expense);
+            record.setProfit(income.subtract(expense));
+            list.add(record);
+        }
+        list.sort(Comparator.comparing(FinanceRecord::getRecordDate));
+        return list;
+    }
+}
@@ -0,0 +1,69 @@
+package com.mogutou.erp.common;
+
+import java.nio.charset.Charset;
+
+/**
+ * 汉字拼音首字母工具类
+ * 利用GB2312一级汉字按拼音排序的特点，通过编码区间得到首字母，不依赖拼音库
+ * 二级汉字（按部首排序）无法取得首字母，直接忽略
+ */
+public class PinyinInitials {
+
+    private static final Charset GB2312 = Charset.forName("GB2312");
+
+    // 各声母在GB2312一级汉字区的起始编码，没有以i、u、v开头的拼音
+    private static final int[] BOUNDARIES = {
+        45217, 45253, 45761, 46318, 46826, 47010, 47297, 47614, 48119, 49062, 49324, 49896,
+        50371, 50614, 50622, 50906, 51387, 51446, 52218, 52698, 52980, 53689, 54481
+    };
+    private static final char[] LETTERS = {
+        'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'j', 'k', 'l', 'm',
+        'n', 'o', 'p', 'q', 'r', 's', 't', 'w', 'x', 'y', 'z'
+    };
+    private static final int LEVEL1_END = 55289;
+
+    private PinyinInitials() {
+    }
+
+    /**
+     * 获取字符串的拼音首字母（小写），字母和数字原样保留，其他字符忽略
+     * 例：无线鼠标M1 -> wxsbm1
+     */
+    public static String of(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 128) {
+                if (Character.isLetterOrDigit(c)) {
+                    sb.append(Character.toLowerCase(c));
+                }
+                continue;
+            }
+            char initial = initialOf(c);
+            if (initial != 0) {
+                sb.append(initial);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static char initialOf(char c) {
+        byte[] bytes = String.valueOf(c).getBytes(GB2312);
+        if (bytes.length != 2) {
+            return 0;
+        }
+        int code = (bytes[0] & 0xff) * 256 + (bytes[1] & 0xff);
+        if (code < BOUNDARIES[0] || code > LEVEL1_END) {
+            return 0;
+        }
+        for (int i = BOUNDARIES.length - 1; i >= 0; i--) {
+            if (code >= BOUNDARIES[i]) {
+                return LETTERS[i];
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.mogutou.erp.common;
+
+/**
+ * 资源繁忙异常：报表连接池、隔离线程池等已满时快速失败，而不是排队等待
+ * 由GlobalExceptionHandler转换为503响应，并通过Retry-After提示客户端稍后重试
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    private final int retryAfterSeconds;
+
+    public ServiceBusyException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
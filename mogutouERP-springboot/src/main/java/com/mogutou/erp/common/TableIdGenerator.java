@@ -0,0 +1,93 @@
+package com.mogutou.erp.common;
+
+import com.baomidou.mybatisplus.core.incrementer.IdentifierGenerator;
+import jakarta.persistence.TableGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MyBatis-Plus主键生成器，与Hibernate共用id_generator号段表
+ * 号段大小和表名取实体id字段上的@TableGenerator，分配方式与Hibernate的pooled优化器一致：
+ * 读到的值v为本号段上限，号段为(v - 大小, v]，同时把表中的值改为v + 大小。
+ * JPA和MyBatis-Plus写同一张表时拿到的号段不会重叠。
+ */
+@Component
+public class TableIdGenerator implements IdentifierGenerator {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(TableIdGenerator.class);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // 实体类 -> id字段上的号段配置
+    private final Map<Class<?>, TableGenerator> generators = new ConcurrentHashMap<>();
+
+    // 号段名 -> 当前号段
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    @Override
+    public Number nextId(Object entity) {
+        TableGenerator generator = generators.computeIfAbsent(entity.getClass(), TableIdGenerator::findGenerator);
+        Block block = blocks.computeIfAbsent(generator.pkColumnValue(), k -> new Block());
+        synchronized (block) {
+            if (block.next > block.hi) {
+                block.hi = allocate(generator);
+                block.next = block.hi - generator.allocationSize() + 1;
+            }
+            return block.next++;
+        }
+    }
+
+    /**
+     * 在独立事务中取一个号段，返回号段上限
+     */
+    private long allocate(TableGenerator generator) {
+        String name = generator.pkColumnValue();
+        int size = generator.allocationSize();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Long hi = transaction.execute(status -> {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            Long value = jdbcTemplate.query("SELECT next_val FROM id_generator WHERE gen_name = ? FOR UPDATE",
+                    rs -> rs.next() ? rs.getLong(1) : null, name);
+            if (value == null) {
+                jdbcTemplate.update("INSERT INTO id_generator (gen_name, next_val) VALUES (?, 0)", name);
+                value = 0L;
+            }
+            // 新建的号段表起点低于一个号段时跳过，与Hibernate首次取号的处理一致，避免出现0或负数ID
+            long upper = value < size ? value + size : value;
+            jdbcTemplate.update("UPDATE id_generator SET next_val = ? WHERE gen_name = ?", upper + size, name);
+            return upper;
+        });
+        log.debug("分配主键号段: {} ({}, {}]", name, hi - size, hi);
+        return hi;
+    }
+
+    private static TableGenerator findGenerator(Class<?> entityClass) {
+        for (Class<?> type = entityClass; type != null; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                TableGenerator generator = field.getAnnotation(TableGenerator.class);
+                if (generator != null) {
+                    return generator;
+                }
+            }
+        }
+        throw new IllegalStateException("实体未配置号段主键(@TableGenerator): " + entityClass.getName());
+    }
+
+    private static class Block {
+        long next = 1;
+        long hi = 0;
+    }
+}
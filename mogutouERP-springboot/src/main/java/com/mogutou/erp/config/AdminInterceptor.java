@@ -0,0 +1,45 @@
+package com.mogutou.erp.config;
+
+import com.mogutou.erp.entity.User;
+import com.mogutou.erp.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.Optional;
+
+/**
+ * 管理接口拦截器（/api/admin/**）
+ * 在JwtInterceptor之后执行，按其设置的用户名查角色，非管理员返回403，管理接口内不再逐个判断
+ */
+@Component
+public class AdminInterceptor implements HandlerInterceptor {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(AdminInterceptor.class);
+
+    @Autowired
+    private UserService userService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        String username = (String) request.getAttribute("username");
+        if (isAdmin(username)) {
+            return true;
+        }
+        log.warn("非管理员访问管理接口被拒绝: user={}, uri={}", username, request.getRequestURI());
+        response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+        response.setContentType("application/json;charset=UTF-8");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"code\":403,\"error\":\"仅管理员可以访问\"}");
+        return false;
+    }
+
+    private boolean isAdmin(String username) {
+        if (username == null) {
+            return false;
+        }
+        Optional<User> userOpt = userService.findByUsername(username);
+        return userOpt.isPresent() && "admin".equalsIgnoreCase(userOpt.get().getRole());
+    }
+}
@@ -0,0 +1,137 @@
+package com.mogutou.erp.config;
+
+import com.mogutou.erp.common.ServiceBusyException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 舱壁隔离：一组接口使用独立的有界线程池执行，池和队列都满时立即拒绝
+ * 慢接口（如AI调用）只会占满自己的线程池，不会占用Tomcat工作线程拖慢下单、库存等接口
+ * 作为MeterBinder注册后，并发、排队、饱和度、拒绝次数按name标签输出到 /actuator/prometheus
+ */
+public class Bulkhead implements MeterBinder {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(Bulkhead.class);
+
+    private final String name;
+    private final ThreadPoolTaskExecutor executor;
+    private final int retryAfterSeconds;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public Bulkhead(String name, ThreadPoolTaskExecutor executor, int retryAfterSeconds) {
+        this.name = name;
+        this.executor = executor;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * 提交到舱壁线程池执行；已满时抛出ServiceBusyException，由GlobalExceptionHandler返回503
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (TaskRejectedException e) {
+            throw rejected();
+        }
+    }
+
+    /**
+     * 带超时提交：超时后结果以TimeoutException结束并取消任务，还在排队的不再执行，正在执行的线程收到中断
+     * 阻塞在网络读上的调用不一定响应中断，这种情况仍要靠调用自身的读超时结束
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task, long timeout, TimeUnit unit) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running;
+        try {
+            running = executor.submit(() -> {
+                try {
+                    result.complete(task.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            throw rejected();
+        }
+        result.orTimeout(timeout, unit).whenComplete((value, error) -> {
+            if (error instanceof TimeoutException) {
+                running.cancel(true);
+                log.warn("舱壁{}任务超时已取消，超时时间: {} {}", name, timeout, unit);
+            }
+        });
+        return result;
+    }
+
+    private ServiceBusyException rejected() {
+        long rejected = rejectedCount.incrementAndGet();
+        log.warn("舱壁{}已满，拒绝请求，累计拒绝{}次", name, rejected);
+        return new ServiceBusyException("服务繁忙，请稍后重试", retryAfterSeconds);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrent() {
+        return executor.getMaxPoolSize();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueSize() {
+        return executor.getQueueSize();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * 饱和度：正在执行的任务数 / 最大并发数
+     */
+    public double getSaturation() {
+        int max = getMaxConcurrent();
+        return max == 0 ? 0 : (double) getActiveCount() / max;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("erp.bulkhead.active", this, Bulkhead::getActiveCount)
+                .description("舱壁中正在执行的任务数").tag("name", name).register(registry);
+        Gauge.builder("erp.bulkhead.queued", this, Bulkhead::getQueueSize)
+                .description("舱壁中排队的任务数").tag("name", name).register(registry);
+        Gauge.builder("erp.bulkhead.saturation", this, Bulkhead::getSaturation)
+                .description("舱壁饱和度").tag("name", name).register(registry);
+        FunctionCounter.builder("erp.bulkhead.rejected", this, Bulkhead::getRejectedCount)
+                .description("舱壁已满被拒绝的请求数").tag("name", name).register(registry);
+    }
+
+    public Map<String, Object> getStats() {
+        ThreadPoolExecutor pool = executor.getThreadPoolExecutor();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("maxConcurrent", getMaxConcurrent());
+        stats.put("active", getActiveCount());
+        stats.put("queued", getQueueSize());
+        stats.put("queueCapacity", executor.getQueueCapacity());
+        stats.put("saturation", getSaturation());
+        stats.put("completed", pool.getCompletedTaskCount());
+        stats.put("rejected", getRejectedCount());
+        return stats;
+    }
+}
@@ -0,0 +1,28 @@
+package com.mogutou.erp.config;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * 仓库/Mapper方法调用的JFR事件（包含其中的JDBC执行和等待连接的时间）
+ * 默认不开启，只在按需性能采样期间记录，未开启时几乎没有开销
+ */
+@Name(DataAccessEvent.NAME)
+@Label("Data Access")
+@Category("Mogutou ERP")
+@Description("Repository or mapper call, including JDBC execution")
+@StackTrace(false)
+class DataAccessEvent extends Event {
+
+    static final String NAME = "com.mogutou.erp.DataAccess";
+
+    @Label("Type")
+    String type;
+
+    @Label("Method")
+    String method;
+}
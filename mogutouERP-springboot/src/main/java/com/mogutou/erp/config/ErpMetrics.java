@@ -0,0 +1,123 @@
+package com.mogutou.erp.config;
+
+import com.mogutou.erp.entity.Order;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * 业务热点路径的运行指标，统一在这里命名和打标签，通过 /actuator/prometheus 输出
+ * 调用方用Timer.start()计时，结束时连同结果交给这里记录
+ */
+@Component
+public class ErpMetrics {
+
+    public static final String OUTCOME_SUCCESS = "success";
+    // 参数或业务校验不通过（如库存不足）
+    public static final String OUTCOME_REJECTED = "rejected";
+    // 行锁等待超时、死锁
+    public static final String OUTCOME_CONTENTION = "contention";
+    public static final String OUTCOME_ERROR = "error";
+
+    @Autowired
+    private MeterRegistry registry;
+
+    /**
+     * 订单创建/确认耗时与商品行数
+     */
+    public void recordOrder(String operation, Order order, Timer.Sample sample, Throwable failure) {
+        String type = order != null && order.getOrderType() != null ? order.getOrderType() : "UNKNOWN";
+        sample.stop(Timer.builder("erp.order")
+                .description("订单创建、确认耗时")
+                .tag("operation", operation)
+                .tag("type", type)
+                .tag("outcome", outcomeOf(failure))
+                .register(registry));
+        if (order != null && order.getGoods() != null) {
+            DistributionSummary.builder("erp.order.lines")
+                    .description("订单商品行数")
+                    .tag("operation", operation)
+                    .register(registry)
+                    .record(order.getGoods().size());
+        }
+    }
+
+    /**
+     * 入库/出库耗时，并单独统计锁竞争失败次数
+     */
+    public void recordStock(String direction, Timer.Sample sample, Throwable failure) {
+        String outcome = outcomeOf(failure);
+        sample.stop(Timer.builder("erp.inventory.stock")
+                .description("入库、出库耗时")
+                .tag("direction", direction)
+                .tag("outcome", outcome)
+                .register(registry));
+        if (OUTCOME_CONTENTION.equals(outcome)) {
+            Counter.builder("erp.inventory.contention")
+                    .description("出入库因锁竞争失败的次数")
+                    .tag("direction", direction)
+                    .register(registry)
+                    .increment();
+        }
+    }
+
+    /**
+     * JWT认证耗时（含按用户名查用户）
+     */
+    public void recordAuth(Timer.Sample sample, boolean allowed, int status) {
+        String outcome = allowed ? OUTCOME_SUCCESS : String.valueOf(status);
+        sample.stop(Timer.builder("erp.auth.jwt")
+                .description("JWT认证耗时")
+                .tag("outcome", outcome)
+                .register(registry));
+    }
+
+    /**
+     * 单次DeepSeek调用耗时，按模式区分
+     */
+    public void recordAiCall(String mode, Timer.Sample sample, boolean success) {
+        sample.stop(Timer.builder("erp.ai.call")
+                .description("DeepSeek接口单次调用耗时")
+                .tag("mode", mode)
+                .tag("outcome", success ? OUTCOME_SUCCESS : OUTCOME_ERROR)
+                .register(registry));
+    }
+
+    public void recordAiRetry(String mode) {
+        Counter.builder("erp.ai.retries")
+                .description("DeepSeek调用失败后的重试次数")
+                .tag("mode", mode)
+                .register(registry)
+                .increment();
+    }
+
+    public void recordAiFallback(String mode) {
+        Counter.builder("erp.ai.fallbacks")
+                .description("AI调用失败改用本地分析结果的次数")
+                .tag("mode", mode)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * 按异常链分类：调用方常把异常包一层（如订单确认时包成RuntimeException），要沿cause查找
+     * 锁竞争优先于业务校验
+     */
+    static String outcomeOf(Throwable failure) {
+        if (failure == null) {
+            return OUTCOME_SUCCESS;
+        }
+        boolean rejected = false;
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof ConcurrencyFailureException) {
+                return OUTCOME_CONTENTION;
+            }
+            rejected |= t instanceof IllegalArgumentException;
+        }
+        return rejected ? OUTCOME_REJECTED : OUTCOME_ERROR;
+    }
+}
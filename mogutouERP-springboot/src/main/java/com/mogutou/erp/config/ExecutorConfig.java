@@ -0,0 +1,101 @@
+package com.mogutou.erp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.support.CompositeTaskDecorator;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 后台线程池配置
+ * 所有后台任务使用有界线程池，避免占满Tomcat工作线程或无限堆积任务
+ * 提交任务时带上当前的链路追踪上下文（ContextPropagatingTaskDecorator），后台任务的span挂在发起请求的链路下
+ */
+@Configuration
+public class ExecutorConfig {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ExecutorConfig.class);
+
+    /**
+     * 图片缩略图生成线程池
+     */
+    @Bean(name = "imageVariantExecutor")
+    public ThreadPoolTaskExecutor imageVariantExecutor(
+            @Value("${image.variant.pool-size:2}") int poolSize,
+            @Value("${image.variant.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-variant-");
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        // 队列满时丢弃任务，缩略图缺失时接口会回退到原图
+        executor.setRejectedExecutionHandler((task, pool) ->
+                log.warn("缩略图任务队列已满，丢弃任务，当前队列长度: {}", pool.getQueue().size()));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * AI指令解析舱壁（/ai/parse），单次调用可能阻塞20~90秒
+     */
+    @Bean(name = "aiParseBulkhead")
+    public Bulkhead aiParseBulkhead(
+            @Value("${ai.bulkhead.parse.max-concurrent:8}") int maxConcurrent,
+            @Value("${ai.bulkhead.parse.queue-capacity:8}") int queueCapacity) {
+        return new Bulkhead("ai-parse", bulkheadExecutor("ai-parse-", maxConcurrent, queueCapacity), 10);
+    }
+
+    /**
+     * AI业务洞察舱壁（/ai/insights）
+     */
+    @Bean(name = "aiInsightsBulkhead")
+    public Bulkhead aiInsightsBulkhead(
+            @Value("${ai.bulkhead.insights.max-concurrent:4}") int maxConcurrent,
+            @Value("${ai.bulkhead.insights.queue-capacity:4}") int queueCapacity) {
+        return new Bulkhead("ai-insights", bulkheadExecutor("ai-insights-", maxConcurrent, queueCapacity), 30);
+    }
+
+    /**
+     * 舱壁线程池：固定大小、有界队列，满了直接拒绝（默认AbortPolicy）
+     * 执行时带上提交时的链路追踪上下文和登录用户名（读写路由按用户名判断读己之写）
+     * 只复制用户名，不把请求对象交给任务：任务可能在请求结束、请求对象被容器回收复用之后才执行
+     */
+    private ThreadPoolTaskExecutor bulkheadExecutor(String threadNamePrefix, int maxConcurrent, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setTaskDecorator(new CompositeTaskDecorator(List.<TaskDecorator>of(new ContextPropagatingTaskDecorator(), task -> {
+            String username = ReadWriteRoutingDataSource.currentUsername();
+            return () -> {
+                ReadWriteRoutingDataSource.setTaskUsername(username);
+                try {
+                    task.run();
+                } finally {
+                    ReadWriteRoutingDataSource.setTaskUsername(null);
+                }
+            };
+        })));
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 数据一致性检查线程池
+     * 并行度即同时执行的检查查询数，保持很小，避免营业时间内给数据库带来压力
+     */
+    @Bean(name = "consistencyCheckPool", destroyMethod = "shutdown")
+    public ForkJoinPool consistencyCheckPool(@Value("${consistency.check.parallelism:2}") int parallelism) {
+        return new ForkJoinPool(parallelism);
+    }
+}
@@ -0,0 +1,439 @@
+package com.mogutou.erp.config;
+
+import com.mogutou.erp.common.ServiceBusyException;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 按需JFR性能采样
+ * 同一时间只允许一个采样，到时自动停止，.jfr文件保存在本地目录（可用JMC打开），
+ * 停止后解析出分配热点、热点方法、锁竞争、Socket读写和数据访问耗时的汇总
+ * 目录总大小超过配额时删除最旧的文件；新采样的大小上限为配额减去已有文件，不会把目录写超配额
+ */
+@Component
+public class JfrProfiler {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(JfrProfiler.class);
+
+    static final int MIN_SECONDS = 5;
+    static final int MAX_SECONDS = 300;
+    // 一次采样至少要能写这么多，开始前删除旧文件腾出空间，配额本身不够时拒绝开始
+    static final long MIN_RECORDING_BYTES = 1024 * 1024;
+    private static final int TOP_N = 15;
+    private static final String APP_PACKAGE = "com.mogutou.erp.";
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9_.-]+\\.jfr");
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Value("${profiling.dir:profiling}")
+    private String directory;
+
+    @Value("${profiling.max-disk-mb:512}")
+    private long maxDiskMb;
+
+    // 以下字段由this加锁保护
+    private Recording active;
+    private Path activeFile;
+    private String activeRequestedBy;
+    private Instant activeStartedAt;
+    private Instant activeEndsAt;
+    private Map<String, Object> lastSummary;
+
+    /**
+     * 开始采样，durationSeconds限制在5~300秒之间；已有采样在进行时抛出ServiceBusyException
+     */
+    public synchronized Map<String, Object> start(int durationSeconds, String requestedBy) throws IOException {
+        if (!FlightRecorder.isAvailable()) {
+            throw new IllegalStateException("当前JVM不支持JFR");
+        }
+        if (active != null) {
+            int remaining = (int) Math.max(1, Duration.between(Instant.now(), activeEndsAt).getSeconds());
+            throw new ServiceBusyException("已有性能采样正在进行，预计" + remaining + "秒后结束", remaining);
+        }
+        int seconds = Math.max(MIN_SECONDS, Math.min(durationSeconds, MAX_SECONDS));
+        Path dir = directory();
+        Files.createDirectories(dir);
+        enforceQuota(null, quotaBytes() - MIN_RECORDING_BYTES);
+        long remaining = quotaBytes() - usedBytes();
+        if (remaining < MIN_RECORDING_BYTES) {
+            throw new IllegalStateException("采样目录剩余配额不足（剩余" + remaining / 1024 + "KB），请调大profiling.max-disk-mb");
+        }
+
+        Path file = dir.resolve("erp-" + LocalDateTime.now().format(FILE_TIME) + ".jfr");
+        Recording recording = new Recording(settings());
+        recording.setName(file.getFileName().toString());
+        recording.setToDisk(true);
+        recording.setMaxSize(remaining);
+        recording.setDestination(file);
+        recording.start();
+
+        active = recording;
+        activeFile = file;
+        activeRequestedBy = requestedBy;
+        activeStartedAt = Instant.now();
+        activeEndsAt = activeStartedAt.plusSeconds(seconds);
+        log.info("开始JFR性能采样: file={}, duration={}s, requestedBy={}", file, seconds, requestedBy);
+
+        CompletableFuture.runAsync(() -> finish(recording),
+                CompletableFuture.delayedExecutor(seconds, TimeUnit.SECONDS));
+        return status();
+    }
+
+    /**
+     * 提前结束当前采样，没有采样在进行时返回false
+     */
+    public boolean stop() {
+        Recording recording;
+        synchronized (this) {
+            recording = active;
+        }
+        if (recording == null) {
+            return false;
+        }
+        finish(recording);
+        return true;
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", active != null);
+        if (active != null) {
+            status.put("file", activeFile.getFileName().toString());
+            status.put("requestedBy", activeRequestedBy);
+            status.put("startedAt", activeStartedAt.toString());
+            status.put("endsAt", activeEndsAt.toString());
+        }
+        status.put("diskUsageBytes", diskUsage());
+        status.put("quotaBytes", quotaBytes());
+        status.put("lastSummary", lastSummary);
+        return status;
+    }
+
+    /**
+     * 本地保存的采样文件，最新的在前
+     */
+    public List<Map<String, Object>> listRecordings() throws IOException {
+        List<Map<String, Object>> recordings = new ArrayList<>();
+        for (Path file : recordingFiles()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", file.getFileName().toString());
+            item.put("sizeBytes", Files.size(file));
+            item.put("lastModified", Files.getLastModifiedTime(file).toInstant().toString());
+            recordings.add(item);
+        }
+        recordings.sort(Comparator.comparing((Map<String, Object> item) -> (String) item.get("lastModified")).reversed());
+        return recordings;
+    }
+
+    /**
+     * 按文件名取已保存的采样文件，文件名只能是本目录下的.jfr文件
+     */
+    public Path resolveRecording(String name) {
+        if (name == null || !FILE_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("无效的采样文件名: " + name);
+        }
+        Path file = directory().resolve(name).normalize();
+        if (!file.startsWith(directory()) || !Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("采样文件不存在: " + name);
+        }
+        synchronized (this) {
+            if (active != null && file.equals(activeFile)) {
+                throw new IllegalArgumentException("采样尚未结束: " + name);
+            }
+        }
+        return file;
+    }
+
+    private void finish(Recording recording) {
+        Path file;
+        synchronized (this) {
+            if (active != recording) {
+                return;
+            }
+            file = activeFile;
+            try {
+                recording.stop();
+            } catch (IllegalStateException e) {
+                log.warn("JFR采样已停止: {}", e.getMessage());
+            } finally {
+                recording.close();
+                active = null;
+                activeFile = null;
+            }
+        }
+        try {
+            Map<String, Object> summary = summarize(file);
+            synchronized (this) {
+                lastSummary = summary;
+            }
+            enforceQuota(file);
+            log.info("JFR性能采样结束: file={}, size={}", file, Files.size(file));
+        } catch (IOException e) {
+            log.error("解析JFR采样文件失败: {}", file, e);
+        }
+    }
+
+    /**
+     * 在JDK自带的profile配置基础上调整：
+     * 方法采样每10ms一次，分配只用采样事件，记录锁竞争、5ms以上的线程等待、Socket读写（包括JDBC与数据库的通信），
+     * 以及全部数据访问事件
+     */
+    static Map<String, String> settings() throws IOException {
+        Map<String, String> settings;
+        try {
+            settings = new HashMap<>(Configuration.getConfiguration("profile").getSettings());
+        } catch (ParseException e) {
+            throw new IOException("读取JFR profile配置失败", e);
+        }
+        settings.put("jdk.ExecutionSample#enabled", "true");
+        settings.put("jdk.ExecutionSample#period", "10 ms");
+        settings.put("jdk.ObjectAllocationSample#enabled", "true");
+        settings.put("jdk.ObjectAllocationSample#throttle", "300/s");
+        settings.put("jdk.ObjectAllocationSample#stackTrace", "true");
+        settings.put("jdk.ObjectAllocationInNewTLAB#enabled", "false");
+        settings.put("jdk.ObjectAllocationOutsideTLAB#enabled", "false");
+        settings.put("jdk.JavaMonitorEnter#enabled", "true");
+        settings.put("jdk.JavaMonitorEnter#threshold", "5 ms");
+        settings.put("jdk.ThreadPark#enabled", "true");
+        settings.put("jdk.ThreadPark#threshold", "5 ms");
+        settings.put("jdk.SocketRead#enabled", "true");
+        settings.put("jdk.SocketRead#threshold", "1 ms");
+        settings.put("jdk.SocketWrite#enabled", "true");
+        settings.put("jdk.SocketWrite#threshold", "1 ms");
+        settings.put(DataAccessEvent.NAME + "#enabled", "true");
+        settings.put(DataAccessEvent.NAME + "#threshold", "0 ms");
+        return settings;
+    }
+
+    /**
+     * 解析采样文件：分配热点（按本项目最近的调用位置）、热点方法（栈顶和本项目方法）、
+     * 锁竞争、Socket读写（按远端地址）、数据访问（按仓库/Mapper方法），各取前15
+     */
+    public Map<String, Object> summarize(Path file) throws IOException {
+        Map<String, Aggregate> allocationSites = new HashMap<>();
+        Map<String, Aggregate> allocatedTypes = new HashMap<>();
+        Map<String, Aggregate> hotMethods = new HashMap<>();
+        Map<String, Aggregate> hotAppMethods = new HashMap<>();
+        Map<String, Aggregate> lockContention = new HashMap<>();
+        Map<String, Aggregate> socketIo = new HashMap<>();
+        Map<String, Aggregate> dataAccess = new HashMap<>();
+        long executionSamples = 0;
+
+        try (RecordingFile recordingFile = new RecordingFile(file)) {
+            while (recordingFile.hasMoreEvents()) {
+                RecordedEvent event = recordingFile.readEvent();
+                switch (event.getEventType().getName()) {
+                    case "jdk.ObjectAllocationSample" -> {
+                        long weight = event.getLong("weight");
+                        allocationSites.computeIfAbsent(appFrame(event.getStackTrace()), k -> new Aggregate()).add(0, weight);
+                        allocatedTypes.computeIfAbsent(className(event.getClass("objectClass")), k -> new Aggregate()).add(0, weight);
+                    }
+                    case "jdk.ExecutionSample" -> {
+                        executionSamples++;
+                        RecordedStackTrace stackTrace = event.getStackTrace();
+                        hotMethods.computeIfAbsent(topFrame(stackTrace), k -> new Aggregate()).add(0, 0);
+                        String appFrame = appFrame(stackTrace);
+                        if (appFrame.startsWith(APP_PACKAGE)) {
+                            hotAppMethods.computeIfAbsent(appFrame, k -> new Aggregate()).add(0, 0);
+                        }
+                    }
+                    case "jdk.JavaMonitorEnter" -> lockContention
+                            .computeIfAbsent("monitor " + className(event.getClass("monitorClass")) + " @ " + appFrame(event.getStackTrace()),
+                                    k -> new Aggregate())
+                            .add(event.getDuration().toNanos(), 0);
+                    case "jdk.ThreadPark" -> lockContention
+                            .computeIfAbsent("park " + className(event.getClass("parkedClass")) + " @ " + appFrame(event.getStackTrace()),
+                                    k -> new Aggregate())
+                            .add(event.getDuration().toNanos(), 0);
+                    case "jdk.SocketRead" -> socketIo
+                            .computeIfAbsent("read " + event.getString("host") + ":" + event.getInt("port"), k -> new Aggregate())
+                            .add(event.getDuration().toNanos(), Math.max(0, event.getLong("bytesRead")));
+                    case "jdk.SocketWrite" -> socketIo
+                            .computeIfAbsent("write " + event.getString("host") + ":" + event.getInt("port"), k -> new Aggregate())
+                            .add(event.getDuration().toNanos(), Math.max(0, event.getLong("bytesWritten")));
+                    case DataAccessEvent.NAME -> dataAccess
+                            .computeIfAbsent(event.getString("type") + "." + event.getString("method"), k -> new Aggregate())
+                            .add(event.getDuration().toNanos(), 0);
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("file", file.getFileName().toString());
+        summary.put("sizeBytes", Files.size(file));
+        summary.put("executionSamples", executionSamples);
+        summary.put("allocationSites", top(allocationSites, Comparator.comparingLong(a -> a.bytes)));
+        summary.put("allocatedTypes", top(allocatedTypes, Comparator.comparingLong(a -> a.bytes)));
+        summary.put("hotMethods", top(hotMethods, Comparator.comparingLong(a -> a.count)));
+        summary.put("hotApplicationMethods", top(hotAppMethods, Comparator.comparingLong(a -> a.count)));
+        summary.put("lockContention", top(lockContention, Comparator.comparingLong(a -> a.totalNanos)));
+        summary.put("socketIo", top(socketIo, Comparator.comparingLong(a -> a.totalNanos)));
+        summary.put("dataAccess", top(dataAccess, Comparator.comparingLong(a -> a.totalNanos)));
+        return summary;
+    }
+
+    /**
+     * 目录总大小超过配额时按修改时间从旧到新删除，keep指定的文件不删除
+     */
+    void enforceQuota(Path keep) throws IOException {
+        enforceQuota(keep, quotaBytes());
+    }
+
+    /**
+     * 按修改时间从旧到新删除，直到目录总大小不超过limit，keep指定的文件不删除
+     */
+    void enforceQuota(Path keep, long limit) throws IOException {
+        List<Path> files = recordingFiles();
+        files.sort(Comparator.comparingLong(JfrProfiler::lastModified));
+        long total = 0;
+        for (Path file : files) {
+            total += Files.size(file);
+        }
+        for (Path file : files) {
+            if (total <= limit) {
+                break;
+            }
+            if (file.equals(keep)) {
+                continue;
+            }
+            total -= Files.size(file);
+            Files.deleteIfExists(file);
+            log.info("JFR采样目录超出配额，删除旧文件: {}", file);
+        }
+    }
+
+    private List<Path> recordingFiles() throws IOException {
+        Path dir = directory();
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.filter(path -> FILE_NAME.matcher(path.getFileName().toString()).matches())
+                    .filter(Files::isRegularFile)
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private long diskUsage() {
+        try {
+            return usedBytes();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private long usedBytes() throws IOException {
+        long total = 0;
+        for (Path file : recordingFiles()) {
+            total += Files.size(file);
+        }
+        return total;
+    }
+
+    private Path directory() {
+        return Paths.get(directory).toAbsolutePath().normalize();
+    }
+
+    private long quotaBytes() {
+        return maxDiskMb * 1024 * 1024;
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static String topFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        return frameName(stackTrace.getFrames().get(0));
+    }
+
+    /**
+     * 栈中最靠近栈顶的本项目方法，没有时取栈顶
+     */
+    private static String appFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(APP_PACKAGE)) {
+                return frameName(frame);
+            }
+        }
+        return frameName(stackTrace.getFrames().get(0));
+    }
+
+    private static String frameName(RecordedFrame frame) {
+        String name = frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+        return frame.getLineNumber() > 0 ? name + ":" + frame.getLineNumber() : name;
+    }
+
+    private static String className(RecordedClass recordedClass) {
+        return recordedClass != null ? recordedClass.getName() : "unknown";
+    }
+
+    private static List<Map<String, Object>> top(Map<String, Aggregate> aggregates, Comparator<Aggregate> order) {
+        return aggregates.entrySet().stream()
+                .sorted(Map.Entry.<String, Aggregate>comparingByValue(order).reversed())
+                .limit(TOP_N)
+                .map(entry -> {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("name", entry.getKey());
+                    item.put("count", entry.getValue().count);
+                    if (entry.getValue().totalNanos > 0) {
+                        item.put("totalMs", TimeUnit.NANOSECONDS.toMillis(entry.getValue().totalNanos));
+                    }
+                    if (entry.getValue().bytes > 0) {
+                        item.put("bytes", entry.getValue().bytes);
+                    }
+                    return item;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static class Aggregate {
+        long count;
+        long totalNanos;
+        long bytes;
+
+        void add(long nanos, long size) {
+            count++;
+            totalNanos += nanos;
+            bytes += size;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.mogutou.erp.entity.User;
 import com.mogutou.erp.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
@@ -19,9 +20,23 @@ public class JwtInterceptor implements HandlerInterceptor {
     
     @Autowired
     private UserService userService;
+
+    @Autowired
+    private ErpMetrics erpMetrics;
     
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        Timer.Sample sample = Timer.start();
+        boolean allowed = false;
+        try {
+            allowed = authenticate(request, response);
+            return allowed;
+        } finally {
+            erpMetrics.recordAuth(sample, allowed, response.getStatus());
+        }
+    }
+
+    private boolean authenticate(HttpServletRequest request, HttpServletResponse response) throws Exception {
         String requestURI = request.getRequestURI();
         String method = request.getMethod();
         
@@ -0,0 +1,14 @@
+package com.mogutou.erp.config;
+
+import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * MyBatis-Plus配置
+ * 日常读写仍走JPA；批量导入、批量确认、对账修复等大批量写入使用mapper包下的Mapper，
+ * 直接执行批量/集合SQL，不经过持久化上下文。与JPA共用数据源和事务。
+ */
+@Configuration
+@MapperScan("com.mogutou.erp.mapper")
+public class MybatisPlusConfig {
+}
@@ -0,0 +1,132 @@
+package com.mogutou.erp.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 读写分离路由数据源
+ * 只读事务（@Transactional(readOnly = true)）走只读库连接池，其余走主库。
+ * 用户自己的写事务提交后的一小段时间内，该用户的只读事务仍走主库，保证能读到刚写入的数据（读己之写）。
+ * 标记了@ReportingQuery的方法执行期间走独立的报表连接池。
+ * 必须包在LazyConnectionDataSourceProxy里使用：事务开始时只读标记还没设置，要推迟到第一条SQL时才取真实连接。
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    public static final String PRIMARY = "primary";
+    public static final String REPLICA = "replica";
+    public static final String REPORTING = "reporting";
+
+    // 当前线程是否在执行报表查询，由ReportingQueryInterceptor设置
+    private static final ThreadLocal<Boolean> REPORTING_FLAG = new ThreadLocal<>();
+
+    // 舱壁任务中的登录用户名，提交任务时从请求中复制
+    private static final ThreadLocal<String> TASK_USERNAME = new ThreadLocal<>();
+
+    // 超过该数量时清理已过期的写入记录
+    private static final int CLEANUP_THRESHOLD = 10000;
+
+    private final long readYourWritesMillis;
+
+    // 用户名 -> 最近一次写事务提交时间
+    private final Map<String, Long> lastWriteAt = new ConcurrentHashMap<>();
+
+    public ReadWriteRoutingDataSource(long readYourWritesMillis) {
+        this.readYourWritesMillis = readYourWritesMillis;
+    }
+
+    public static boolean isReporting() {
+        return Boolean.TRUE.equals(REPORTING_FLAG.get());
+    }
+
+    public static void setReporting(boolean reporting) {
+        if (reporting) {
+            REPORTING_FLAG.set(Boolean.TRUE);
+        } else {
+            REPORTING_FLAG.remove();
+        }
+    }
+
+    static void setTaskUsername(String username) {
+        if (username != null) {
+            TASK_USERNAME.set(username);
+        } else {
+            TASK_USERNAME.remove();
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (isReporting()) {
+            return REPORTING;
+        }
+        String username = currentUsername();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            recordWrite(username);
+            return PRIMARY;
+        }
+        if (username != null && wroteRecently(username, System.currentTimeMillis())) {
+            log.debug("用户{}刚提交过写事务，只读事务改走主库", username);
+            return PRIMARY;
+        }
+        return REPLICA;
+    }
+
+    /**
+     * 用户在读己之写窗口内时返回true
+     */
+    boolean wroteRecently(String username, long now) {
+        Long writtenAt = lastWriteAt.get(username);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (now - writtenAt <= readYourWritesMillis) {
+            return true;
+        }
+        lastWriteAt.remove(username, writtenAt);
+        return false;
+    }
+
+    private void recordWrite(String username) {
+        if (username == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 窗口从提交时开始计算，回滚的事务不记录
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markWritten(username);
+                }
+            });
+        } else {
+            markWritten(username);
+        }
+    }
+
+    private void markWritten(String username) {
+        long now = System.currentTimeMillis();
+        lastWriteAt.put(username, now);
+        if (lastWriteAt.size() > CLEANUP_THRESHOLD) {
+            lastWriteAt.entrySet().removeIf(e -> now - e.getValue() > readYourWritesMillis);
+        }
+    }
+
+    /**
+     * 当前请求的用户名（JwtInterceptor设置）；舱壁任务中为提交时复制的用户名，其他后台线程中为null
+     */
+    static String currentUsername() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return TASK_USERNAME.get();
+        }
+        Object username = attributes.getAttribute("username", RequestAttributes.SCOPE_REQUEST);
+        return username instanceof String ? (String) username : null;
+    }
+}
@@ -0,0 +1,17 @@
+package com.mogutou.erp.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记报表类查询方法：方法内的SQL使用独立的报表连接池，带语句超时，并限制同时执行和排队的报表数
+ * 只对Spring代理的public方法生效；嵌套调用时沿用外层的报表连接
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReportingQuery {
+}
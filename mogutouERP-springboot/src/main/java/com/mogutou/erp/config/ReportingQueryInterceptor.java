@@ -0,0 +1,51 @@
+package com.mogutou.erp.config;
+
+import com.mogutou.erp.common.ServiceBusyException;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 报表查询拦截器
+ * 同时执行加排队的报表数超过上限时直接拒绝，报表变慢或失败，不占用下单等事务请求的连接
+ */
+public class ReportingQueryInterceptor implements MethodInterceptor {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ReportingQueryInterceptor.class);
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMillis;
+
+    /**
+     * @param maxConcurrent        报表连接池大小，即同时执行的报表数
+     * @param queueLimit           允许排队等待的报表数
+     * @param acquireTimeoutMillis 排队等待的最长时间
+     */
+    public ReportingQueryInterceptor(int maxConcurrent, int queueLimit, long acquireTimeoutMillis) {
+        this.permits = new Semaphore(maxConcurrent + queueLimit, true);
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (ReadWriteRoutingDataSource.isReporting()) {
+            return invocation.proceed();
+        }
+        if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            log.warn("报表查询繁忙，拒绝执行: {}", invocation.getMethod().getName());
+            throw new ServiceBusyException("报表查询繁忙，请稍后重试", 5);
+        }
+        ReadWriteRoutingDataSource.setReporting(true);
+        try {
+            return invocation.proceed();
+        } finally {
+            ReadWriteRoutingDataSource.setReporting(false);
+            permits.release();
+        }
+    }
+
+    int availablePermits() {
+        return permits.availablePermits();
+    }
+}
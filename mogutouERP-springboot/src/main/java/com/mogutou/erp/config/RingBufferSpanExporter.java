@@ -0,0 +1,117 @@
+package com.mogutou.erp.config;
+
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 本地span导出器：最近的span保存在固定大小的内存环形缓冲区中，写满后覆盖最旧的
+ * 不需要外部采集服务，通过 /api/admin/traces 按链路查看各环节耗时
+ */
+public class RingBufferSpanExporter implements SpanExporter {
+
+    private final SpanData[] buffer;
+    private long written;
+
+    public RingBufferSpanExporter(int capacity) {
+        this.buffer = new SpanData[capacity];
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        for (SpanData span : spans) {
+            buffer[(int) (written++ % buffer.length)] = span;
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    /**
+     * 缓冲区中现有的span，按写入顺序
+     */
+    public synchronized List<SpanData> snapshot() {
+        int size = (int) Math.min(written, buffer.length);
+        List<SpanData> spans = new ArrayList<>(size);
+        for (long i = written - size; i < written; i++) {
+            spans.add(buffer[(int) (i % buffer.length)]);
+        }
+        return spans;
+    }
+
+    /**
+     * 最近的链路，按开始时间倒序；minDurationMs大于0时只返回总耗时不低于该值的链路
+     */
+    public List<Map<String, Object>> recentTraces(int limit, long minDurationMs) {
+        Map<String, List<SpanData>> byTrace = snapshot().stream()
+                .collect(Collectors.groupingBy(SpanData::getTraceId, LinkedHashMap::new, Collectors.toList()));
+        List<Map<String, Object>> traces = new ArrayList<>();
+        for (Map.Entry<String, List<SpanData>> entry : byTrace.entrySet()) {
+            List<SpanData> spans = entry.getValue();
+            long start = spans.stream().mapToLong(SpanData::getStartEpochNanos).min().orElse(0);
+            long end = spans.stream().mapToLong(SpanData::getEndEpochNanos).max().orElse(0);
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(end - start);
+            if (durationMs < minDurationMs) {
+                continue;
+            }
+            SpanData root = spans.stream()
+                    .filter(span -> !span.getParentSpanContext().isValid())
+                    .findFirst()
+                    .orElse(spans.stream().min(Comparator.comparingLong(SpanData::getStartEpochNanos)).get());
+            Map<String, Object> trace = new LinkedHashMap<>();
+            trace.put("traceId", entry.getKey());
+            trace.put("name", root.getName());
+            trace.put("start", TimeUnit.NANOSECONDS.toMillis(start));
+            trace.put("durationMs", durationMs);
+            trace.put("spanCount", spans.size());
+            traces.add(trace);
+        }
+        traces.sort(Comparator.comparing(trace -> -((Long) trace.get("start"))));
+        return traces.size() > limit ? traces.subList(0, limit) : traces;
+    }
+
+    /**
+     * 一条链路的全部span，按开始时间排序
+     */
+    public List<Map<String, Object>> getTrace(String traceId) {
+        return snapshot().stream()
+                .filter(span -> span.getTraceId().equals(traceId))
+                .sorted(Comparator.comparingLong(SpanData::getStartEpochNanos))
+                .map(RingBufferSpanExporter::toMap)
+                .collect(Collectors.toList());
+    }
+
+    private static Map<String, Object> toMap(SpanData span) {
+        SpanContext parent = span.getParentSpanContext();
+        Map<String, Object> item = new LinkedHashMap<>();
+        item.put("spanId", span.getSpanId());
+        item.put("parentSpanId", parent.isValid() ? parent.getSpanId() : null);
+        item.put("name", span.getName());
+        item.put("kind", span.getKind().name());
+        item.put("start", TimeUnit.NANOSECONDS.toMillis(span.getStartEpochNanos()));
+        item.put("durationMs", TimeUnit.NANOSECONDS.toMillis(span.getEndEpochNanos() - span.getStartEpochNanos()));
+        item.put("status", span.getStatus().getStatusCode().name());
+        Map<String, String> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+        item.put("attributes", attributes);
+        return item;
+    }
+}
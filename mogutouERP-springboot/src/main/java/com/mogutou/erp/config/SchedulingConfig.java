@@ -0,0 +1,12 @@
+package com.mogutou.erp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * 定时任务配置（库存快照压缩等）
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
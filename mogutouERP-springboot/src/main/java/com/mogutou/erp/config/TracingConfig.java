@@ -0,0 +1,48 @@
+package com.mogutou.erp.config;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * 链路追踪配置
+ * HTTP请求的span由Spring Boot自动创建；服务、仓库、Mapper方法和DeepSeek调用的span由本项目补充，
+ * 全部导出到内存环形缓冲区，不依赖外部采集服务
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public RingBufferSpanExporter ringBufferSpanExporter(@Value("${tracing.buffer.size:5000}") int capacity) {
+        return new RingBufferSpanExporter(capacity);
+    }
+
+    /**
+     * 为服务、仓库、Mapper的public方法织入span，排在最外层，span耗时包含事务提交
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor tracingAdvisor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return Modifier.isPublic(method.getModifiers()) && method.getDeclaringClass() != Object.class;
+            }
+        };
+        pointcut.setClassFilter(TracingInterceptor::isTraced);
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new TracingInterceptor(observationRegistry));
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+}
@@ -0,0 +1,115 @@
+package com.mogutou.erp.config;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.ClassUtils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务、仓库、Mapper方法的span
+ * 每次经过Spring代理的调用创建一个子span（名称为 类名.方法名），同类内部的自调用不单独产生span
+ * 仓库和Mapper的调用另外记录为JFR事件（DataAccessEvent），供按需性能采样使用
+ */
+public class TracingInterceptor implements MethodInterceptor {
+
+    static final String SERVICE_PACKAGE = "com.mogutou.erp.service.";
+    // 内存索引、读模型只在内存中计算，调用频繁，不单独产生span
+    static final String INDEX_PACKAGE = "com.mogutou.erp.service.index.";
+    static final String REPOSITORY_PACKAGE = "com.mogutou.erp.repository.";
+    static final String MAPPER_PACKAGE = "com.mogutou.erp.mapper.";
+
+    private static final String SERVICE_OBSERVATION = "app.service";
+
+    // 延迟获取，避免在创建代理时提前初始化ObservationRegistry，导致其跳过tracing处理器的注册
+    private final ObjectProvider<ObservationRegistry> observationRegistry;
+
+    // 代理类 -> span中显示的类名（仓库和Mapper是JDK代理，取本项目的接口名）
+    private final Map<Class<?>, String> typeNames = new ConcurrentHashMap<>();
+
+    public TracingInterceptor(ObjectProvider<ObservationRegistry> observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Class<?> targetClass = invocation.getThis() != null
+                ? AopUtils.getTargetClass(invocation.getThis()) : invocation.getMethod().getDeclaringClass();
+        String typeName = typeNames.computeIfAbsent(targetClass, TracingInterceptor::typeName);
+        String methodName = invocation.getMethod().getName();
+        String name = observationName(typeName);
+        if (SERVICE_OBSERVATION.equals(name)) {
+            return observe(invocation, name, typeName, methodName);
+        }
+        // 数据访问调用同时记录为JFR事件，性能采样时按仓库方法汇总数据库耗时
+        DataAccessEvent event = new DataAccessEvent();
+        event.begin();
+        try {
+            return observe(invocation, name, typeName, methodName);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.type = typeName;
+                event.method = methodName;
+                event.commit();
+            }
+        }
+    }
+
+    private Object observe(MethodInvocation invocation, String name, String typeName, String methodName) throws Throwable {
+        ObservationRegistry registry = observationRegistry.getIfAvailable();
+        if (registry == null || registry.isNoop()) {
+            return invocation.proceed();
+        }
+        return Observation.createNotStarted(name, registry)
+                .contextualName(typeName + "." + methodName)
+                .lowCardinalityKeyValue("class", typeName)
+                .lowCardinalityKeyValue("method", methodName)
+                .observeChecked(invocation::proceed);
+    }
+
+    /**
+     * 是否为需要追踪的类：service包下的类，或实现了repository/mapper包下接口的代理
+     */
+    static boolean isTraced(Class<?> targetClass) {
+        if (targetClass.getName().startsWith(INDEX_PACKAGE)) {
+            return false;
+        }
+        if (targetClass.getName().startsWith(SERVICE_PACKAGE)) {
+            return true;
+        }
+        for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(targetClass)) {
+            if (type.getName().startsWith(REPOSITORY_PACKAGE) || type.getName().startsWith(MAPPER_PACKAGE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String typeName(Class<?> targetClass) {
+        if (targetClass.getName().startsWith(SERVICE_PACKAGE)) {
+            return targetClass.getSimpleName();
+        }
+        for (Class<?> type : ClassUtils.getAllInterfacesForClassAsSet(targetClass)) {
+            if (type.getName().startsWith(REPOSITORY_PACKAGE) || type.getName().startsWith(MAPPER_PACKAGE)) {
+                return type.getSimpleName();
+            }
+        }
+        return targetClass.getSimpleName();
+    }
+
+    private static String observationName(String typeName) {
+        if (typeName.endsWith("Repository")) {
+            return "app.repository";
+        }
+        if (typeName.endsWith("Mapper")) {
+            return "app.mapper";
+        }
+        return SERVICE_OBSERVATION;
+    }
+}
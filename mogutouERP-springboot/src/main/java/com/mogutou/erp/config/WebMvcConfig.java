@@ -17,6 +17,9 @@ public class WebMvcConfig implements WebMvcConfigurer {
     @Autowired
     private JwtInterceptor jwtInterceptor;
 
+    @Autowired
+    private AdminInterceptor adminInterceptor;
+
     @Autowired
     private ServletContext servletContext;
 
@@ -32,6 +35,9 @@ public class WebMvcConfig implements WebMvcConfigurer {
                     "/api/auth/register",
                     "/error"
                 );
+        // 按注册顺序执行，先由JWT拦截器认证并设置用户名，再校验管理员角色
+        registry.addInterceptor(adminInterceptor)
+                .addPathPatterns("/api/admin/**");
     }
     
     
@@ -41,7 +47,7 @@ public class WebMvcConfig implements WebMvcConfigurer {
                 .allowedOrigins("http://localhost:5174", "http://localhost:9876")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowedHeaders("*")
-                .exposedHeaders("Authorization")
+                .exposedHeaders("Authorization", "Retry-After")
                 .allowCredentials(true);
     }
 
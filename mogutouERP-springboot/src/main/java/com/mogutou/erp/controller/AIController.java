@@ -1,17 +1,22 @@
 package com.mogutou.erp.controller;
 
+import com.mogutou.erp.config.Bulkhead;
+import com.mogutou.erp.config.ErpMetrics;
 import com.mogutou.erp.service.AIService;
 import com.mogutou.erp.service.external.DeepSeekAIService;
 import com.mogutou.erp.dto.AIRequest;
 import com.mogutou.erp.dto.AIResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.web.bind.annotation.*;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 
 /**
  * AI控制器
  * 处理自然语言理解和AI分析相关的HTTP请求
+ * 解析和洞察接口异步执行在各自的舱壁线程池中，不占用Tomcat工作线程；舱壁满时返回503
  */
 @RestController
 @RequestMapping("/ai")
@@ -23,51 +28,50 @@ public class AIController {
     @Autowired
     private DeepSeekAIService deepSeekAIService;
     
-    // 用于处理超时的线程池
-    private ExecutorService executorService = Executors.newCachedThreadPool();
+    @Autowired
+    @Qualifier("aiParseBulkhead")
+    private Bulkhead aiParseBulkhead;
+
+    @Autowired
+    @Qualifier("aiInsightsBulkhead")
+    private Bulkhead aiInsightsBulkhead;
+
+    @Autowired
+    private ErpMetrics erpMetrics;
 
     /**
      * 解析自然语言并执行相应操作
      */
     @PostMapping("/parse")
-    public AIResponse parse(@RequestBody AIRequest request) {
-        return aiService.parseAndExecute(request.getInput(), request.isConfirmed());
+    public CompletableFuture<AIResponse> parse(@RequestBody AIRequest request) {
+        return aiParseBulkhead.submit(() -> aiService.parseAndExecute(request.getInput(), request.isConfirmed()));
     }
 
     /**
      * 获取业务洞察分析 - 优化版本
-     * 使用线程池和超时机制，确保即使AI处理超时也能返回基础分析
+     * 使用舱壁线程池和超时机制，确保即使AI处理超时也能返回基础分析
      */
     @PostMapping("/insights")
-    public AIResponse getInsights(@RequestBody AIRequest request) {
-        try {
-            // 创建带超时的Future任务
-            Future<AIResponse> future = executorService.submit(() -> {
-                try {
-                    return aiService.getBusinessInsights(request);
-                } catch (Exception e) {
+    public CompletableFuture<AIResponse> getInsights(@RequestBody AIRequest request) {
+        // 超时后取消舱壁中的任务，并返回基本分析结果
+        return aiInsightsBulkhead.submit(() -> {
+                    try {
+                        return aiService.getBusinessInsights(request);
+                    } catch (Exception e) {
+                        return generateBackupResponse(e, request);
+                    }
+                }, 90, TimeUnit.SECONDS)
+                .exceptionally(e -> {
+                    System.err.println("AI分析超时或异常：" + e.getMessage());
                     return generateBackupResponse(e, request);
-                }
-            });
-            
-            // 等待任务完成，设置超时时间
-            return future.get(90, TimeUnit.SECONDS);
-            
-        } catch (TimeoutException e) {
-            // 超时情况下返回基本分析结果
-            System.err.println("AI分析超时：" + e.getMessage());
-            return generateBackupResponse(e, request);
-        } catch (Exception e) {
-            // 其他异常情况
-            System.err.println("AI分析异常：" + e.getMessage());
-            return generateBackupResponse(e, request);
-        }
+                });
     }
     
     /**
      * 生成备用响应，避免用户等待过长时间
      */
-    private AIResponse generateBackupResponse(Exception e, AIRequest request) {
+    private AIResponse generateBackupResponse(Throwable e, AIRequest request) {
+        erpMetrics.recordAiFallback("INSIGHTS");
         try {
             String analysisType = request.getAnalysisType() != null ? request.getAnalysisType() : "GENERAL";
             
@@ -96,6 +100,14 @@ public class AIController {
         return deepSeekAIService.getServiceStatus();
     }
 
+    /**
+     * 各舱壁的并发、排队、饱和度和拒绝次数
+     */
+    @GetMapping("/bulkheads")
+    public List<Map<String, Object>> getBulkheads() {
+        return List.of(aiParseBulkhead.getStats(), aiInsightsBulkhead.getStats());
+    }
+
     /**
      * AI服务健康检查
      */
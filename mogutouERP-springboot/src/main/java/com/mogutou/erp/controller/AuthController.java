@@ -3,6 +3,7 @@ package com.mogutou.erp.controller;
 import com.mogutou.erp.common.Result;
 import com.mogutou.erp.config.JwtConfig;
 import com.mogutou.erp.entity.User;
+import com.mogutou.erp.service.ImageVariantService;
 import com.mogutou.erp.service.UserService;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.http.HttpServletRequest;
@@ -29,6 +30,9 @@ public class AuthController {
     @Autowired
     private JwtConfig jwtConfig;
 
+    @Autowired
+    private ImageVariantService imageVariantService;
+
     @Autowired
     private ServletContext servletContext;
 
@@ -66,8 +70,13 @@ public class AuthController {
         }
     }
     
+    /**
+     * 获取当前用户信息
+     * avatarSize为头像展示尺寸（像素），返回不小于该尺寸的最小缩略图
+     */
     @GetMapping("/user")
-    public Result<Map<String, Object>> getUserInfo(HttpServletRequest request) {
+    public Result<Map<String, Object>> getUserInfo(HttpServletRequest request,
+                                                   @RequestParam(value = "avatarSize", defaultValue = "80") int avatarSize) {
         try {
             // 记录调试信息
             System.out.println("🔍 获取用户信息请求开始");
@@ -95,7 +104,12 @@ public class AuthController {
                 Map<String, Object> userInfo = new HashMap<>();
                 userInfo.put("name", user.getUsername());
                 userInfo.put("roles", new String[]{user.getRole() != null ? user.getRole() : "USER"});
-                userInfo.put("avatar", user.getAvatar() != null ? user.getAvatar() : "https://wpimg.wallstcn.com/f778738c-e4f8-4870-b634-56703b4acafe.gif");
+                if (user.getAvatar() != null) {
+                    userInfo.put("avatar", imageVariantService.resolveVariantUrl(user.getAvatar(), avatarSize));
+                    userInfo.put("avatarOriginal", user.getAvatar());
+                } else {
+                    userInfo.put("avatar", "https://wpimg.wallstcn.com/f778738c-e4f8-4870-b634-56703b4acafe.gif");
+                }
                 userInfo.put("tel", user.getTel() != null ? user.getTel() : "");
                 userInfo.put("email", user.getEmail() != null ? user.getEmail() : "");
                 
@@ -0,0 +1,63 @@
+package com.mogutou.erp.controller;
+
+import com.mogutou.erp.common.Result;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 二级缓存管理接口（仅管理员，由AdminInterceptor校验）
+ */
+@RestController
+@RequestMapping("/api/admin/cache")
+public class CacheController {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CacheController.class);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * 各缓存区域的命中、未命中、写入次数和当前条目数
+     */
+    @GetMapping("/stats")
+    public Result<Map<String, Object>> getStats() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("hitCount", region.getHitCount());
+            item.put("missCount", region.getMissCount());
+            item.put("putCount", region.getPutCount());
+            item.put("elementCount", region.getElementCountInMemory());
+            regions.put(regionName, item);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hitCount", statistics.getSecondLevelCacheHitCount());
+        result.put("missCount", statistics.getSecondLevelCacheMissCount());
+        result.put("putCount", statistics.getSecondLevelCachePutCount());
+        result.put("naturalIdHitCount", statistics.getNaturalIdCacheHitCount());
+        result.put("naturalIdMissCount", statistics.getNaturalIdCacheMissCount());
+        result.put("regions", regions);
+        return Result.success(result);
+    }
+
+    /**
+     * 清空全部二级缓存，直接改过数据库中的商品、公司、用户数据后使用
+     */
+    @PostMapping("/evict")
+    public Result<Void> evictAll() {
+        entityManagerFactory.getCache().evictAll();
+        log.info("二级缓存已清空");
+        return Result.success("二级缓存已清空", null);
+    }
+}
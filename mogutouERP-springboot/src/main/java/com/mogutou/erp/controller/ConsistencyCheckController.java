@@ -0,0 +1,74 @@
+package com.mogutou.erp.controller;
+
+import com.mogutou.erp.common.Result;
+import com.mogutou.erp.entity.ConsistencyMismatch;
+import com.mogutou.erp.service.ConsistencyCheckService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * 数据一致性检查管理接口（仅管理员，由AdminInterceptor校验）
+ */
+@RestController
+@RequestMapping("/api/admin/consistency")
+public class ConsistencyCheckController {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ConsistencyCheckController.class);
+
+    @Autowired
+    private ConsistencyCheckService consistencyCheckService;
+
+    /**
+     * 手动启动一次检查
+     */
+    @PostMapping("/run")
+    public Result<Map<String, Object>> startCheck() {
+        try {
+            consistencyCheckService.startCheck();
+            return Result.success("数据一致性检查已启动", consistencyCheckService.getStatus());
+        } catch (IllegalStateException e) {
+            return Result.error(409, e.getMessage());
+        }
+    }
+
+    /**
+     * 查询检查进度
+     */
+    @GetMapping("/status")
+    public Result<Map<String, Object>> getStatus() {
+        return Result.success(consistencyCheckService.getStatus());
+    }
+
+    /**
+     * 分页查询不一致记录，默认取最近一次检查
+     */
+    @GetMapping("/mismatches")
+    public Result<Page<ConsistencyMismatch>> getMismatches(
+            @RequestParam(value = "runId", required = false) Long runId,
+            @RequestParam(value = "checkType", required = false) String checkType,
+            @RequestParam(value = "page", defaultValue = "0") Integer page,
+            @RequestParam(value = "size", defaultValue = "20") Integer size) {
+        try {
+            return Result.success(consistencyCheckService.getMismatches(runId, checkType, page, size));
+        } catch (Exception e) {
+            log.error("查询数据不一致记录失败: {}", e.getMessage(), e);
+            return Result.error("查询数据不一致记录失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 对账修复：按订单商品总价重新计算金额不一致的订单，默认取最近一次检查
+     */
+    @PostMapping("/repair/order-amount")
+    public Result<Integer> repairOrderAmounts(
+            @RequestParam(value = "runId", required = false) Long runId) {
+        try {
+            return Result.success(consistencyCheckService.repairOrderAmounts(runId));
+        } catch (Exception e) {
+            log.error("订单金额对账修复失败: {}", e.getMessage(), e);
+            return Result.error("订单金额对账修复失败: " + e.getMessage());
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package com.mogutou.erp.controller;
 
 import com.mogutou.erp.common.Result;
+import com.mogutou.erp.entity.FileBlob;
+import com.mogutou.erp.entity.FileReference;
 import com.mogutou.erp.entity.User;
+import com.mogutou.erp.service.FileStorageService;
+import com.mogutou.erp.service.ImageVariantService;
 import com.mogutou.erp.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -30,6 +39,12 @@ public class FileController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private FileStorageService fileStorageService;
+    
+    @Autowired
+    private ImageVariantService imageVariantService;
+    
     @Value("${file.upload.path:uploads}")
     private String uploadPath;
     
@@ -39,24 +54,21 @@ public class FileController {
     @PostMapping("/upload")
     public Result<Map<String, String>> uploadFile(@RequestParam("file") MultipartFile file) {
         try {
-            // 确保上传目录存在
-            File uploadDir = new File(uploadPath);
-            if (!uploadDir.exists()) {
-                uploadDir.mkdirs();
-            }
-            
             // 生成唯一文件名
-            String originalFilename = file.getOriginalFilename();
-            String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String newFilename = UUID.randomUUID().toString() + extension;
+            String newFilename = UUID.randomUUID().toString() + getExtension(file.getOriginalFilename());
             
-            // 保存文件
-            Path filePath = Paths.get(uploadPath, newFilename);
-            Files.copy(file.getInputStream(), filePath);
+            // 保存文件（相同内容只保存一份）
+            String url = "/api/uploads/" + newFilename;
+            FileReference reference = fileStorageService.store(file, url);
+            
+            // 图片在后台生成缩略图
+            if (isImage(file)) {
+                imageVariantService.generateVariantsAsync(reference);
+            }
             
             // 返回文件URL
             Map<String, String> response = new HashMap<>();
-            response.put("url", "/api/uploads/" + newFilename);
+            response.put("url", url);
             
             return Result.success("文件上传成功", response);
         } catch (IOException e) {
@@ -90,24 +102,16 @@ public class FileController {
             
             User user = userOpt.get();
             
-            // 确保上传目录存在
-            String avatarPath = uploadPath + "/avatars";
-            File uploadDir = new File(avatarPath);
-            if (!uploadDir.exists()) {
-                uploadDir.mkdirs();
-            }
-            
             // 生成唯一文件名
-            String originalFilename = file.getOriginalFilename();
-            String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String newFilename = "avatar_" + userId + "_" + UUID.randomUUID().toString().substring(0, 8) + extension;
-            
-            // 保存文件
-            Path filePath = Paths.get(avatarPath, newFilename);
-            Files.copy(file.getInputStream(), filePath);
+            String newFilename = "avatar_" + userId + "_" + UUID.randomUUID().toString().substring(0, 8)
+                    + getExtension(file.getOriginalFilename());
             
-            // 更新用户头像URL
+            // 保存文件（相同内容只保存一份）
             String avatarUrl = "/api/uploads/avatars/" + newFilename;
+            FileReference reference = fileStorageService.store(file, avatarUrl);
+            
+            // 头像在后台生成缩略图，生成前接口返回原图
+            imageVariantService.generateVariantsAsync(reference);
             
             // 更新用户头像字段
             user.setAvatar(avatarUrl);
@@ -126,13 +130,69 @@ public class FileController {
     
     /**
      * 文件访问接口
+     * 通过引用表把逻辑URL解析到内容块，旧版本直接落盘的文件按原路径读取
+     * 指定w参数时返回对应尺寸的缩略图
      */
     @GetMapping("/uploads/**")
-    public void getFile(HttpServletRequest request) {
-        // 这里需要实现文件访问逻辑
-        // 由于Spring Boot可以自动处理静态资源，我们可以通过配置来实现
-        // 在application.properties中添加：
-        // spring.mvc.static-path-pattern=/api/uploads/**
-        // spring.web.resources.static-locations=file:uploads/
+    public ResponseEntity<Resource> getFile(HttpServletRequest request,
+                                            @RequestParam(value = "w", required = false) Integer width) {
+        String url = request.getRequestURI().substring(request.getContextPath().length());
+        
+        Optional<FileReference> referenceOpt = fileStorageService.findByUrl(url);
+        if (referenceOpt.isPresent()) {
+            Optional<FileBlob> blobOpt = fileStorageService.findBlob(referenceOpt.get().getSha256());
+            if (blobOpt.isPresent()) {
+                FileBlob blob = blobOpt.get();
+                if (width != null) {
+                    Optional<Path> variantOpt = imageVariantService.findVariant(blob, width);
+                    if (variantOpt.isPresent()) {
+                        Path variantPath = variantOpt.get();
+                        return ResponseEntity.ok()
+                                .contentType(resolveContentType(null, variantPath.getFileName().toString()))
+                                .eTag(blob.getSha256() + "_" + width)
+                                .cacheControl(CacheControl.maxAge(365, java.util.concurrent.TimeUnit.DAYS).cachePublic().immutable())
+                                .body(new FileSystemResource(variantPath));
+                    }
+                }
+                Path blobPath = fileStorageService.resolveBlobPath(blob);
+                if (Files.exists(blobPath)) {
+                    // 内容块按摘要寻址，内容永远不会变化，可以长期缓存
+                    return ResponseEntity.ok()
+                            .contentType(resolveContentType(blob.getContentType(), url))
+                            .eTag(blob.getSha256())
+                            .cacheControl(CacheControl.maxAge(365, java.util.concurrent.TimeUnit.DAYS).cachePublic().immutable())
+                            .body(new FileSystemResource(blobPath));
+                }
+            }
+        }
+        
+        // 兼容旧文件：/api/uploads/xxx 对应 uploads/xxx
+        String relativePath = url.substring("/api/uploads/".length());
+        Path base = Paths.get(uploadPath).toAbsolutePath().normalize();
+        Path legacyPath = base.resolve(relativePath).normalize();
+        if (!legacyPath.startsWith(base) || !Files.isRegularFile(legacyPath)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(resolveContentType(null, url))
+                .body(new FileSystemResource(legacyPath));
+    }
+    
+    private MediaType resolveContentType(String contentType, String url) {
+        if (contentType != null && !contentType.isEmpty()) {
+            return MediaType.parseMediaType(contentType);
+        }
+        return MediaTypeFactory.getMediaType(url).orElse(MediaType.APPLICATION_OCTET_STREAM);
+    }
+    
+    private boolean isImage(MultipartFile file) {
+        return file.getContentType() != null && file.getContentType().startsWith("image/");
+    }
+    
+    private String getExtension(String originalFilename) {
+        if (originalFilename == null || !originalFilename.contains(".")) {
+            return "";
+        }
+        return originalFilename.substring(originalFilename.lastIndexOf("."));
     }
-}
\ No newline at end of file
+}
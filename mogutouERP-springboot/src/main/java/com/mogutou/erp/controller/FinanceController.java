@@ -1,6 +1,11 @@
 package com.mogutou.erp.controller;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mogutou.erp.common.Result;
+import com.mogutou.erp.common.ResultCode;
+import com.mogutou.erp.common.ServiceBusyException;
 import com.mogutou.erp.entity.Finance;
 import com.mogutou.erp.entity.FinanceRecord;
 import com.mogutou.erp.service.FinanceService;
@@ -8,21 +13,34 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/finance")
 public class FinanceController {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FinanceController.class);
+
+    // DateTimeFormatter不可变且线程安全，所有请求共用一个实例
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     @Autowired
     private FinanceService financeService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @GetMapping("/{year}")
     public Result<Finance> getFinanceByYear(@PathVariable Integer year) {
         try {
@@ -65,6 +83,9 @@ public class FinanceController {
             
             Finance finance = new Finance(profit, turnover, salesOrderQuantity, purchaseOrderQuantity, salesTotalAmounts, purchaseTotalAmounts);
             return Result.success(finance);
+        } catch (ServiceBusyException e) {
+            // 报表连接池繁忙，交给GlobalExceptionHandler返回503
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return Result.error(500, "获取年度财务数据失败: " + e.getMessage());
@@ -111,6 +132,9 @@ public class FinanceController {
             }
             
             return Result.success(result);
+        } catch (ServiceBusyException e) {
+            // 报表连接池繁忙，交给GlobalExceptionHandler返回503
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return Result.error(500, "获取财务统计数据失败: " + e.getMessage());
@@ -140,12 +164,11 @@ public class FinanceController {
             
             // 转换为前端需要的格式
             List<Map<String, Object>> result = new ArrayList<>();
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
             
             for (FinanceRecord record : records) {
                 Map<String, Object> item = new HashMap<>();
                 item.put("id", record.getId());
-                item.put("date", dateFormat.format(record.getRecordDate()));
+                item.put("date", formatDate(record.getRecordDate()));
                 item.put("income", record.getIncome());
                 item.put("expense", record.getExpense());
                 item.put("profit", record.getProfit());
@@ -161,6 +184,66 @@ public class FinanceController {
         }
     }
     
+    /**
+     * 流式获取财务数据
+     * 返回格式与 /data 相同，但从数据库游标逐条读取并直接写入响应，
+     * 不构建中间List/Map，单个请求的内存占用与日期范围无关
+     */
+    @GetMapping("/data/stream")
+    public ResponseEntity<StreamingResponseBody> streamFinanceData(
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endDate) {
+        Date parsedStart = parseDate(startDate);
+        Date parsedEnd = parseDate(endDate);
+        
+        if (parsedStart == null) {
+            Calendar cal = Calendar.getInstance();
+            cal.set(Calendar.DAY_OF_MONTH, 1);
+            parsedStart = cal.getTime();
+        }
+        
+        if (parsedEnd == null) {
+            parsedEnd = new Date();
+        }
+        
+        final Date start = parsedStart;
+        final Date end = parsedEnd;
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+                generator.writeStartObject();
+                generator.writeNumberField("code", ResultCode.SUCCESS.getCode());
+                generator.writeStringField("message", ResultCode.SUCCESS.getMessage());
+                generator.writeArrayFieldStart("data");
+                financeService.streamFinanceRecords(start, end, record -> writeFinanceRecord(generator, record));
+                generator.writeEndArray();
+                generator.writeEndObject();
+            } catch (Exception e) {
+                // 响应头已经发出，只能记录日志，客户端会收到不完整的JSON
+                log.error("流式输出财务数据失败: {}", e.getMessage(), e);
+                throw e;
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+    
+    private void writeFinanceRecord(JsonGenerator generator, FinanceRecord record) {
+        try {
+            generator.writeStartObject();
+            generator.writeObjectField("id", record.getId());
+            generator.writeStringField("date", formatDate(record.getRecordDate()));
+            generator.writeObjectField("income", record.getIncome());
+            generator.writeObjectField("expense", record.getExpense());
+            generator.writeObjectField("profit", record.getProfit());
+            generator.writeStringField("type", record.getRecordType());
+            generator.writeStringField("description", record.getDescription());
+            generator.writeEndObject();
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+    
     // 创建财务记录
     @PostMapping
     public Result<FinanceRecord> createFinanceRecord(@RequestBody FinanceRecord record) {
@@ -173,6 +256,19 @@ public class FinanceController {
         }
     }
     
+    // 批量导入财务记录
+    @PostMapping("/batch")
+    public Result<Integer> importFinanceRecords(@RequestBody List<FinanceRecord> records) {
+        try {
+            return Result.success(financeService.createFinanceRecords(records));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Result.error(500, "批量导入财务记录失败: " + e.getMessage());
+        }
+    }
+    
     // 更新财务记录
     @PutMapping("/{id}")
     public Result<FinanceRecord> updateFinanceRecord(
@@ -199,6 +295,16 @@ public class FinanceController {
         }
     }
     
+    /**
+     * 格式化记录日期（数据库返回的可能是java.sql.Date，不能直接调用toInstant）
+     */
+    private String formatDate(Date date) {
+        if (date == null) {
+            return null;
+        }
+        return DATE_FORMATTER.format(Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()));
+    }
+    
     /**
      * 解析日期字符串
      */
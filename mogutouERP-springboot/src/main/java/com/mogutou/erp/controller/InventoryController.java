@@ -1,12 +1,21 @@
 package com.mogutou.erp.controller;
 
 import com.mogutou.erp.common.Result;
+import com.mogutou.erp.common.ServiceBusyException;
 import com.mogutou.erp.entity.Inventory;
+import com.mogutou.erp.entity.InventoryStock;
+import com.mogutou.erp.entity.StockMovement;
 import com.mogutou.erp.service.InventoryService;
+import com.mogutou.erp.service.InventoryStockService;
+import com.mogutou.erp.service.StockReservationService;
+import com.mogutou.erp.service.StockLedgerService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
+
 @RestController
 @RequestMapping("/api/inventory")
 @CrossOrigin
@@ -16,6 +25,15 @@ public class InventoryController {
     @Autowired
     private InventoryService inventoryService;
 
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private InventoryStockService inventoryStockService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
     /**
      * 获取库存列表
      */
@@ -58,11 +76,89 @@ public class InventoryController {
     }
 
     /**
-     * 获取所有商品名称列表（用于自动提示）
+     * 获取低库存列表（库存数量不高于预警阈值）
+     */
+    @GetMapping("/low-stock")
+    public Result<Page<Inventory>> getLowStockList(
+            @RequestParam(value = "page", defaultValue = "0") Integer page,
+            @RequestParam(value = "size", defaultValue = "10") Integer size) {
+        try {
+            log.info("获取低库存列表: page={}, size={}", page, size);
+            Page<Inventory> lowStockPage = inventoryService.getLowStockList(page, size);
+            log.info("获取低库存列表成功，总数: {}", lowStockPage.getTotalElements());
+            return Result.success(lowStockPage);
+        } catch (Exception e) {
+            log.error("获取低库存列表失败: {}", e.getMessage(), e);
+            return Result.error("获取低库存列表失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 库存估值：总金额及按分类、按仓库的汇总，由数据库聚合计算，前端不再拉取全部库存自行相乘
+     */
+    @GetMapping("/valuation")
+    public Result<java.util.Map<String, Object>> getValuation() {
+        try {
+            return Result.success(inventoryService.getValuation());
+        } catch (ServiceBusyException e) {
+            // 报表连接池繁忙，交给GlobalExceptionHandler返回503
+            throw e;
+        } catch (Exception e) {
+            log.error("获取库存估值失败: {}", e.getMessage(), e);
+            return Result.error("获取库存估值失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按分类的库存估值（增量维护的汇总，供首页看板轮询）
+     */
+    @GetMapping("/valuation/categories")
+    public Result<java.util.List<java.util.Map<String, Object>>> getCategoryValuation() {
+        try {
+            return Result.success(inventoryService.getCategoryValuation());
+        } catch (Exception e) {
+            log.error("获取分类库存估值失败: {}", e.getMessage(), e);
+            return Result.error("获取分类库存估值失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 组合搜索库存（名称、编码、分类），结果按匹配程度排序
+     * q在三个字段中查找，name/code/category分别只在对应字段中查找，多个条件同时满足
+     */
+    @GetMapping("/search")
+    public Result<Page<Inventory>> searchInventory(
+            @RequestParam(value = "q", required = false) String keyword,
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "code", required = false) String code,
+            @RequestParam(value = "category", required = false) String category,
+            @RequestParam(value = "page", defaultValue = "0") Integer page,
+            @RequestParam(value = "size", defaultValue = "10") Integer size) {
+        try {
+            Page<Inventory> result = inventoryService.searchInventory(keyword, name, code, category, page, size);
+            log.debug("库存搜索: q={}, name={}, code={}, category={}, 命中={}",
+                    keyword, name, code, category, result.getTotalElements());
+            return Result.success(result);
+        } catch (Exception e) {
+            log.error("库存搜索失败: {}", e.getMessage(), e);
+            return Result.error("库存搜索失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取商品名称列表（用于自动提示）
+     * 传入prefix时按名称、编码或拼音首字母前缀从内存索引中取前limit个，否则返回全部名称
      */
     @GetMapping("/product-names")
-    public Result<java.util.List<String>> getAllProductNames() {
+    public Result<java.util.List<String>> getAllProductNames(
+            @RequestParam(value = "prefix", required = false) String prefix,
+            @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
         try {
+            if (prefix != null && !prefix.trim().isEmpty()) {
+                java.util.List<String> matchedNames = inventoryService.searchProductNames(prefix, Math.min(limit, 100));
+                log.debug("按前缀查找商品名称: prefix={}, 数量={}", prefix, matchedNames.size());
+                return Result.success(matchedNames);
+            }
             log.info("获取所有商品名称列表");
             java.util.List<String> productNames = inventoryService.getAllProductNames();
             log.info("获取商品名称列表成功，数量: {}", productNames.size());
@@ -209,4 +305,102 @@ public class InventoryController {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * 批量出入库（如整单到货入库）
+     * 同一商品的多条明细会合并，整批在一个事务中提交，任一明细失败整批回滚
+     */
+    @PostMapping("/movements/batch")
+    public Result batchStockMovements(@RequestBody java.util.List<com.mogutou.erp.dto.StockMovementRequest> movements) {
+        try {
+            log.info("接收到批量出入库请求: 明细数={}", movements != null ? movements.size() : 0);
+            java.util.List<Inventory> updatedInventories = inventoryService.applyStockMovements(movements);
+            return Result.success(updatedInventories);
+        } catch (IllegalArgumentException e) {
+            log.warn("批量出入库参数错误或库存不足: {}", e.getMessage());
+            return Result.error(e.getMessage());
+        } catch (jakarta.persistence.EntityNotFoundException e) {
+            log.warn("批量出入库的库存不存在: {}", e.getMessage());
+            return Result.error("库存不存在: " + e.getMessage());
+        } catch (Exception e) {
+            log.error("批量出入库失败: {}", e.getMessage(), e);
+            return Result.error(e.getMessage());
+        }
+    }
+
+    /**
+     * 分页查询某商品的库存流水
+     */
+    @GetMapping("/{id}/movements")
+    public Result<Page<StockMovement>> getStockMovements(
+            @PathVariable Long id,
+            @RequestParam(value = "page", defaultValue = "0") Integer page,
+            @RequestParam(value = "size", defaultValue = "20") Integer size) {
+        try {
+            return Result.success(stockLedgerService.getMovements(id, page, size));
+        } catch (Exception e) {
+            log.error("获取库存流水失败: {}", e.getMessage(), e);
+            return Result.error("获取库存流水失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询某商品在指定时刻的库存数量
+     */
+    @GetMapping("/{id}/quantity-at")
+    public Result<Integer> getQuantityAt(
+            @PathVariable Long id,
+            @RequestParam("time") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime time) {
+        try {
+            return Result.success(stockLedgerService.getQuantityAt(id, time));
+        } catch (Exception e) {
+            log.error("查询历史库存失败: {}", e.getMessage(), e);
+            return Result.error("查询历史库存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询某商品在各仓库的库存
+     */
+    @GetMapping("/{id}/locations")
+    public Result<java.util.List<InventoryStock>> getLocationStocks(@PathVariable Long id) {
+        try {
+            return Result.success(inventoryStockService.getStocks(id));
+        } catch (Exception e) {
+            log.error("查询分仓库存失败: {}", e.getMessage(), e);
+            return Result.error("查询分仓库存失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 跨仓库存汇总，detail=true时附带每个商品的跨仓合计
+     */
+    @GetMapping("/stock-rollup")
+    public Result<java.util.Map<String, Object>> getStockRollup(
+            @RequestParam(value = "detail", defaultValue = "false") boolean detail) {
+        try {
+            return Result.success(inventoryStockService.rollup(detail));
+        } catch (Exception e) {
+            log.error("跨仓库存汇总失败: {}", e.getMessage(), e);
+            return Result.error("跨仓库存汇总失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 查询商品的可承诺量：库存数量减去未确认销售订单的有效预占
+     */
+    @GetMapping("/{id}/available")
+    public Result<java.util.Map<String, Integer>> getAvailableToPromise(@PathVariable Long id) {
+        try {
+            java.util.Map<String, Integer> result = new java.util.LinkedHashMap<>();
+            int reserved = stockReservationService.getReserved(id);
+            int available = stockReservationService.getAvailableToPromise(id);
+            result.put("quantity", available + reserved);
+            result.put("reserved", reserved);
+            result.put("available", available);
+            return Result.success(result);
+        } catch (Exception e) {
+            log.error("查询可承诺量失败: {}", e.getMessage(), e);
+            return Result.error("查询可承诺量失败: " + e.getMessage());
+        }
+    }
+}
@@ -6,9 +6,15 @@ import com.mogutou.erp.entity.OrderGoods;
 import com.mogutou.erp.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 @RestController
@@ -39,6 +45,21 @@ public class OrderController {
         }
     }
     
+    /**
+     * 导出订单（CSV），边查询边写出响应，不在内存中汇总全部数据
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestParam(value = "type", required = false) String type) {
+        log.info("接收到订单导出请求: type={}", type);
+        String filename = "orders-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss")) + ".csv";
+        StreamingResponseBody body = out -> orderService.exportOrders(type, out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(new MediaType("text", "csv", java.nio.charset.StandardCharsets.UTF_8))
+                .body(body);
+    }
+    
     @PostMapping
     public Result<Order> createOrder(@RequestBody Order order) {
         try {
@@ -115,6 +136,14 @@ public class OrderController {
         return Result.success(orderService.confirmOrder(id, freight));
     }
     
+    /**
+     * 批量确认订单，请求体为 订单ID -> 运费
+     */
+    @PostMapping("/confirm/batch")
+    public Result<Integer> confirmOrders(@RequestBody java.util.Map<Long, Float> freights) {
+        return Result.success(orderService.confirmOrders(freights));
+    }
+    
     @GetMapping("/type/{type}")
     public Result<Page<Order>> getOrdersByType(
             @PathVariable String type,
@@ -0,0 +1,109 @@
+package com.mogutou.erp.controller;
+
+import com.mogutou.erp.common.Result;
+import com.mogutou.erp.config.JfrProfiler;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按需JFR性能采样接口（仅管理员，由AdminInterceptor校验）
+ * 线上延迟升高时开始一次限时采样，结束后查看分配热点、热点方法等汇总，或下载.jfr文件用JMC分析
+ */
+@RestController
+@RequestMapping("/api/admin/profiling")
+public class ProfilingController {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ProfilingController.class);
+
+    @Autowired
+    private JfrProfiler jfrProfiler;
+
+    /**
+     * 开始采样，durationSeconds为采样时长（5~300秒），同一时间只允许一个采样
+     */
+    @PostMapping("/start")
+    public Result<Map<String, Object>> start(@RequestParam(defaultValue = "60") int durationSeconds,
+                                             HttpServletRequest request) {
+        try {
+            return Result.success("性能采样已开始", jfrProfiler.start(durationSeconds, (String) request.getAttribute("username")));
+        } catch (IllegalStateException e) {
+            return Result.error(500, e.getMessage());
+        } catch (IOException e) {
+            log.error("开始性能采样失败", e);
+            return Result.error(500, "开始性能采样失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 提前结束当前采样
+     */
+    @PostMapping("/stop")
+    public Result<Map<String, Object>> stop() {
+        if (!jfrProfiler.stop()) {
+            return Result.error(400, "没有正在进行的性能采样");
+        }
+        return Result.success("性能采样已结束", jfrProfiler.status());
+    }
+
+    /**
+     * 当前采样状态、磁盘占用和最近一次采样的汇总
+     */
+    @GetMapping("/status")
+    public Result<Map<String, Object>> status() {
+        return Result.success(jfrProfiler.status());
+    }
+
+    /**
+     * 本地保存的采样文件列表
+     */
+    @GetMapping("/recordings")
+    public Result<List<Map<String, Object>>> listRecordings() {
+        try {
+            return Result.success(jfrProfiler.listRecordings());
+        } catch (IOException e) {
+            return Result.error(500, "读取采样目录失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 解析指定采样文件的汇总
+     */
+    @GetMapping("/recordings/{name}/summary")
+    public Result<Map<String, Object>> summary(@PathVariable String name) {
+        try {
+            return Result.success(jfrProfiler.summarize(jfrProfiler.resolveRecording(name)));
+        } catch (IllegalArgumentException e) {
+            return Result.error(404, e.getMessage());
+        } catch (IOException e) {
+            log.error("解析采样文件失败: {}", name, e);
+            return Result.error(500, "解析采样文件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 下载采样文件
+     */
+    @GetMapping("/recordings/{name}")
+    public ResponseEntity<Resource> download(@PathVariable String name) {
+        Path file;
+        try {
+            file = jfrProfiler.resolveRecording(name);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "\"")
+                .body(new FileSystemResource(file));
+    }
+}
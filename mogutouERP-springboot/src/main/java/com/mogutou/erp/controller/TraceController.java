@@ -0,0 +1,43 @@
+package com.mogutou.erp.controller;
+
+import com.mogutou.erp.common.Result;
+import com.mogutou.erp.config.RingBufferSpanExporter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 链路追踪查看接口（仅管理员，由AdminInterceptor校验）
+ * 数据来自内存环形缓冲区，只保留最近的span，服务重启后清空
+ */
+@RestController
+@RequestMapping("/api/admin/traces")
+public class TraceController {
+
+    @Autowired
+    private RingBufferSpanExporter spanExporter;
+
+    /**
+     * 最近的链路，minDurationMs用于筛选慢请求
+     */
+    @GetMapping
+    public Result<List<Map<String, Object>>> getRecentTraces(
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(defaultValue = "0") long minDurationMs) {
+        return Result.success(spanExporter.recentTraces(Math.max(1, Math.min(limit, 500)), minDurationMs));
+    }
+
+    /**
+     * 一条链路的全部span（按开始时间排序，parentSpanId表示调用关系）
+     */
+    @GetMapping("/{traceId}")
+    public Result<List<Map<String, Object>>> getTrace(@PathVariable String traceId) {
+        List<Map<String, Object>> spans = spanExporter.getTrace(traceId);
+        if (spans.isEmpty()) {
+            return Result.error(404, "链路不存在或已被覆盖: " + traceId);
+        }
+        return Result.success(spans);
+    }
+}
@@ -0,0 +1,62 @@
+package com.mogutou.erp.dto;
+
+/**
+ * 批量出入库明细DTO
+ * 通过库存ID或商品编码指定商品，delta为正表示入库、为负表示出库
+ */
+public class StockMovementRequest {
+    
+    private Long id;
+    private String productCode;
+    private Integer delta;
+    private Double unitPrice;   // 可选，入库时更新单价
+    private String location;    // 可选，更新库存位置
+    
+    public StockMovementRequest() {}
+    
+    public StockMovementRequest(Long id, String productCode, Integer delta) {
+        this.id = id;
+        this.productCode = productCode;
+        this.delta = delta;
+    }
+    
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getProductCode() {
+        return productCode;
+    }
+    
+    public void setProductCode(String productCode) {
+        this.productCode = productCode;
+    }
+    
+    public Integer getDelta() {
+        return delta;
+    }
+    
+    public void setDelta(Integer delta) {
+        this.delta = delta;
+    }
+    
+    public Double getUnitPrice() {
+        return unitPrice;
+    }
+    
+    public void setUnitPrice(Double unitPrice) {
+        this.unitPrice = unitPrice;
+    }
+    
+    public String getLocation() {
+        return location;
+    }
+    
+    public void setLocation(String location) {
+        this.location = location;
+    }
+}
@@ -6,6 +6,8 @@ import lombok.NoArgsConstructor;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 
 @Data
@@ -13,6 +15,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Entity
 @Table(name = "company")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "company")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Company {
 
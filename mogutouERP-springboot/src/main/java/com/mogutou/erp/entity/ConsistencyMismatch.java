@@ -0,0 +1,43 @@
+package com.mogutou.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 数据一致性检查发现的不一致记录
+ */
+@Data
+@Entity
+@Table(name = "consistency_mismatch", indexes = {
+        @Index(name = "idx_mismatch_run", columnList = "run_id, check_type")
+})
+public class ConsistencyMismatch {
+
+    // 检查项
+    public static final String CHECK_ORDER_AMOUNT = "ORDER_AMOUNT";         // 订单金额 = 订单商品总价之和
+    public static final String CHECK_INVENTORY_LEDGER = "INVENTORY_LEDGER"; // 库存数量 = 库存流水之和
+    public static final String CHECK_ORDER_FINANCE = "ORDER_FINANCE";       // 已完成订单有且只有一条财务记录
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false)
+    private Long runId;
+
+    @Column(name = "check_type", nullable = false, length = 30)
+    private String checkType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "expected_value", length = 64)
+    private String expectedValue;
+
+    @Column(name = "actual_value", length = 64)
+    private String actualValue;
+
+    @Column(name = "detected_at", nullable = false)
+    private LocalDateTime detectedAt;
+}
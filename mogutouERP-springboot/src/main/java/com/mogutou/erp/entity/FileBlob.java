@@ -0,0 +1,37 @@
+package com.mogutou.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 上传文件内容块
+ * 以内容的SHA-256作为主键，相同内容的文件只保存一份
+ */
+@Data
+@Entity
+@Table(name = "file_blob")
+public class FileBlob {
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    private Long size;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "storage_path", nullable = false)
+    private String storagePath;
+
+    @Column(name = "ref_count")
+    private Integer refCount = 0;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
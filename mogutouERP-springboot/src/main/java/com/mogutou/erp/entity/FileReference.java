@@ -0,0 +1,35 @@
+package com.mogutou.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 文件引用
+ * 将对外暴露的逻辑URL映射到实际存储的内容块
+ */
+@Data
+@Entity
+@Table(name = "file_reference")
+public class FileReference {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String url;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -5,11 +5,18 @@ import java.math.BigDecimal;
 import java.util.Date;
 
 @Entity
-@Table(name = "finance_record")
+@Table(name = "finance_record", indexes = {
+        @Index(name = "idx_finance_order_id", columnList = "order_id")
+})
+@com.baomidou.mybatisplus.annotation.TableName("finance_record")
 public class FinanceRecord {
     
+    // 主键按号段从id_generator表预取（每次50个），插入不依赖自增返回值，Hibernate才能批量INSERT
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "finance_record_id")
+    @TableGenerator(name = "finance_record_id", table = "id_generator", pkColumnName = "gen_name",
+            valueColumnName = "next_val", pkColumnValue = "finance_record", allocationSize = 50)
+    @com.baomidou.mybatisplus.annotation.TableId(type = com.baomidou.mybatisplus.annotation.IdType.ASSIGN_ID)
     private Long id;
     
     @Column(name = "record_date", nullable = false)
@@ -34,6 +41,10 @@ public class FinanceRecord {
     @Column(name = "created_by")
     private String createdBy;
     
+    // 订单确认自动生成的记录关联订单ID，手工记录为空
+    @Column(name = "order_id")
+    private Long orderId;
+    
     @Column(name = "created_at")
     @Temporal(TemporalType.TIMESTAMP)
     private Date createdAt;
@@ -111,6 +122,14 @@ public class FinanceRecord {
         this.createdBy = createdBy;
     }
     
+    public Long getOrderId() {
+        return orderId;
+    }
+    
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+    
     public Date getCreatedAt() {
         return createdAt;
     }
@@ -2,16 +2,26 @@ package com.mogutou.erp.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import java.time.LocalDateTime;
 
 @Data
 @Entity
 @Table(name = "goods")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "goods")
+@NaturalIdCache(region = "goods-natural-id")
 public class Goods {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
+    // 自然键：按编码查找走二级缓存（GoodsRepository.findOneByCode）
+    @NaturalId(mutable = true)
     private String code;
     private String name;
     private String category;
@@ -24,7 +34,9 @@ public class Goods {
     @Column(name = "selling_price")
     private Float sellingPrice;
     
-    @Column(name = "stock")
+    // 库存以inventory表为准，这里只读取对应库存记录的数量，不再单独写入
+    // 该值随实体进入二级缓存，库存变更后由GoodsCacheEvictionListener清除对应商品的缓存
+    @Formula("(SELECT COALESCE(MAX(i.quantity), 0) FROM inventory i WHERE i.goods_id = id)")
     private Integer stock = 0;
     
     private Integer status = 1;
@@ -4,13 +4,19 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "inventory")
+@Table(name = "inventory", indexes = {
+        @Index(name = "idx_product_name", columnList = "product_name")
+})
 public class Inventory {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // 对应的商品ID，商品与库存一一对应；手工新建、未关联商品的库存为空
+    @Column(name = "goods_id", unique = true)
+    private Long goodsId;
+
     @Column(nullable = false)
     private String productName;
 
@@ -48,6 +54,14 @@ public class Inventory {
         this.id = id;
     }
 
+    public Long getGoodsId() {
+        return goodsId;
+    }
+
+    public void setGoodsId(Long goodsId) {
+        this.goodsId = goodsId;
+    }
+
     public String getProductName() {
         return productName;
     }
@@ -0,0 +1,41 @@
+package com.mogutou.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 分仓库存
+ * 每个商品在每个仓库一行，inventory.quantity为各仓库数量之和
+ */
+@Data
+@Entity
+@Table(name = "inventory_stock",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stock_inventory_location", columnNames = {"inventory_id", "location"}),
+        indexes = @Index(name = "idx_stock_location", columnList = "location"))
+public class InventoryStock {
+
+    public static final String DEFAULT_LOCATION = "默认仓库";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "inventory_id", nullable = false)
+    private Long inventoryId;
+
+    @Column(nullable = false, length = 100)
+    private String location;
+
+    @Column(nullable = false)
+    private Integer quantity = 0;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
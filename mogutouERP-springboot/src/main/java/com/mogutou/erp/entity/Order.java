@@ -10,10 +10,15 @@ import java.util.List;
 @Data
 @Entity
 @Table(name = "orders")
+@com.baomidou.mybatisplus.annotation.TableName("orders")
 @com.fasterxml.jackson.annotation.JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Order {
+    // 主键按号段从id_generator表预取（每次50个），插入不依赖自增返回值，Hibernate才能批量INSERT
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "orders_id")
+    @TableGenerator(name = "orders_id", table = "id_generator", pkColumnName = "gen_name",
+            valueColumnName = "next_val", pkColumnValue = "orders", allocationSize = 50)
+    @com.baomidou.mybatisplus.annotation.TableId(type = com.baomidou.mybatisplus.annotation.IdType.ASSIGN_ID)
     private Long id;
     
     @Column(name = "order_no", nullable = false)
@@ -23,6 +28,7 @@ public class Order {
     private String orderType; // PURCHASE-采购订单，SALE-销售订单
     
     @Transient // 不持久化到数据库，仅用于接收前端参数
+    @com.baomidou.mybatisplus.annotation.TableField(exist = false)
     private String type; // 前端传递的订单类型：customer-客户订单，purchase-采购订单
     
     @Column(name = "customer_name")
@@ -56,6 +62,7 @@ public class Order {
     
     @ManyToOne
     @JoinColumn(name = "operator_id")
+    @com.baomidou.mybatisplus.annotation.TableField(exist = false)
     private User operator;
     
     private String status = "PENDING"; // 订单状态：PENDING-待处理，PROCESSING-处理中，COMPLETED-已完成，CANCELLED-已取消
@@ -71,6 +78,7 @@ public class Order {
     
     @OneToMany(mappedBy = "order", cascade = {CascadeType.PERSIST, CascadeType.MERGE, CascadeType.REMOVE}, fetch = FetchType.EAGER)
     @JsonManagedReference
+    @com.baomidou.mybatisplus.annotation.TableField(exist = false)
     private List<OrderGoods> goods = new java.util.ArrayList<>();
     
     @PrePersist
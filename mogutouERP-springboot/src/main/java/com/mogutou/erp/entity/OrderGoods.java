@@ -10,8 +10,11 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "order_goods")
 public class OrderGoods {
+    // 主键按号段从id_generator表预取（每次200个），插入不依赖自增返回值，Hibernate才能批量INSERT
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_goods_id")
+    @TableGenerator(name = "order_goods_id", table = "id_generator", pkColumnName = "gen_name",
+            valueColumnName = "next_val", pkColumnValue = "order_goods", allocationSize = 200)
     private Long id;
     
     @ManyToOne(fetch = FetchType.LAZY)
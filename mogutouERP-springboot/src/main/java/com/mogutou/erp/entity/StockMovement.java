@@ -0,0 +1,51 @@
+package com.mogutou.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 库存流水（只追加，不修改不删除）
+ * 每次库存数量变化记录一条，delta为正表示入库、为负表示出库
+ */
+@Data
+@Entity
+@Table(name = "stock_movement", indexes = {
+        @Index(name = "idx_movement_inventory", columnList = "inventory_id, id"),
+        @Index(name = "idx_movement_created_at", columnList = "created_at")
+})
+public class StockMovement {
+
+    // 流水来源
+    public static final String SOURCE_OPENING = "OPENING";   // 期初（启用流水前的库存）
+    public static final String SOURCE_MANUAL = "MANUAL";     // 手工出入库
+    public static final String SOURCE_ADJUST = "ADJUST";     // 编辑库存时直接修改数量
+    public static final String SOURCE_BATCH = "BATCH";       // 批量出入库
+    public static final String SOURCE_ORDER = "ORDER";       // 订单确认
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "inventory_id", nullable = false)
+    private Long inventoryId;
+
+    @Column(nullable = false)
+    private Integer delta;
+
+    @Column(name = "source_type", nullable = false, length = 20)
+    private String sourceType;
+
+    @Column(name = "source_id")
+    private Long sourceId;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
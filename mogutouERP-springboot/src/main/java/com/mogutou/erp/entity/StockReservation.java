@@ -0,0 +1,53 @@
+package com.mogutou.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 库存预占
+ * 销售订单创建时按商品预占库存，订单确认时转为出库（CONSUMED），
+ * 订单删除时释放（RELEASED），超过有效期未确认由定时任务置为过期（EXPIRED）
+ */
+@Data
+@Entity
+@Table(name = "stock_reservation", indexes = {
+        @Index(name = "idx_reservation_order", columnList = "order_id"),
+        @Index(name = "idx_reservation_status_expires", columnList = "status, expires_at")
+})
+public class StockReservation {
+
+    public static final String STATUS_ACTIVE = "ACTIVE";
+    public static final String STATUS_CONSUMED = "CONSUMED";
+    public static final String STATUS_RELEASED = "RELEASED";
+    public static final String STATUS_EXPIRED = "EXPIRED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "inventory_id", nullable = false)
+    private Long inventoryId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.mogutou.erp.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * 库存快照
+ * 定时把流水压缩成快照：快照数量 = 上一快照数量 + 其后到lastMovementId为止的流水之和，
+ * 查询某一时刻的库存只需取该时刻前最近的快照再加上之后的少量流水
+ */
+@Data
+@Entity
+@Table(name = "stock_snapshot", indexes = {
+        @Index(name = "idx_snapshot_inventory", columnList = "inventory_id, last_movement_id")
+})
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "inventory_id", nullable = false)
+    private Long inventoryId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    // 快照包含的最后一条流水ID
+    @Column(name = "last_movement_id", nullable = false)
+    private Long lastMovementId;
+
+    // 快照包含的最后一条流水的时间
+    @Column(name = "snapshot_at", nullable = false)
+    private LocalDateTime snapshotAt;
+}
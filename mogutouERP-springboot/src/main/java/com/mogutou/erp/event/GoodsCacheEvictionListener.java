@@ -0,0 +1,36 @@
+package com.mogutou.erp.event;
+
+import com.mogutou.erp.entity.Goods;
+import com.mogutou.erp.entity.Inventory;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 商品二级缓存清除
+ * Goods.stock是按inventory表计算的公式字段，会随商品实体一起进入二级缓存，
+ * 库存变更提交后清除对应商品的缓存，下次读取时重新计算
+ */
+@Component
+public class GoodsCacheEvictionListener {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(GoodsCacheEvictionListener.class);
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (event.isDeleted()) {
+            // 删除事件不带商品ID，库存记录删除很少发生，直接清空商品区域
+            entityManagerFactory.getCache().evict(Goods.class);
+            log.debug("库存记录{}已删除，清空商品缓存", event.getInventoryId());
+            return;
+        }
+        Inventory snapshot = event.getSnapshot();
+        if (snapshot != null && snapshot.getGoodsId() != null) {
+            entityManagerFactory.getCache().evict(Goods.class, snapshot.getGoodsId());
+        }
+    }
+}
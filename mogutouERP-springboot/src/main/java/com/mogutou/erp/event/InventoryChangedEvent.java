@@ -0,0 +1,114 @@
+package com.mogutou.erp.event;
+
+import com.mogutou.erp.entity.Inventory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 库存变更事件
+ * 库存记录新增、修改、出入库或删除后发布，供内存索引和读模型同步使用
+ * 事件中保存的是变更时刻的字段快照，不持有托管实体的引用
+ * 序号在事件创建时递增分配：同一库存行的写入持有行锁直到提交，序号顺序即提交顺序，
+ * 提交后监听器的执行顺序可能交错，订阅方据此丢弃过期的快照
+ */
+public class InventoryChangedEvent {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final long sequence;
+    private final Long inventoryId;
+    private final boolean deleted;
+    private final String productName;
+    private final String productCode;
+    private final String category;
+    private final String location;
+    private final Integer quantity;
+    private final Double unitPrice;
+    private final Inventory snapshot;
+
+    private InventoryChangedEvent(Long inventoryId, boolean deleted, String productName, String productCode,
+                                  String category, String location, Integer quantity, Double unitPrice,
+                                  Inventory snapshot) {
+        this.sequence = SEQUENCE.incrementAndGet();
+        this.inventoryId = inventoryId;
+        this.deleted = deleted;
+        this.productName = productName;
+        this.productCode = productCode;
+        this.category = category;
+        this.location = location;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.snapshot = snapshot;
+    }
+
+    public static InventoryChangedEvent saved(Inventory inventory) {
+        return new InventoryChangedEvent(inventory.getId(), false, inventory.getProductName(),
+                inventory.getProductCode(), inventory.getCategory(), inventory.getLocation(),
+                inventory.getQuantity(), inventory.getUnitPrice(), copyOf(inventory));
+    }
+
+    public static InventoryChangedEvent deleted(Long inventoryId) {
+        return new InventoryChangedEvent(inventoryId, true, null, null, null, null, null, null, null);
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Long getInventoryId() {
+        return inventoryId;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getProductCode() {
+        return productCode;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public Double getUnitPrice() {
+        return unitPrice;
+    }
+
+    /**
+     * 变更后完整记录的副本，删除事件为null
+     */
+    public Inventory getSnapshot() {
+        return snapshot == null ? null : copyOf(snapshot);
+    }
+
+    public static Inventory copyOf(Inventory inventory) {
+        Inventory copy = new Inventory();
+        copy.setId(inventory.getId());
+        copy.setGoodsId(inventory.getGoodsId());
+        copy.setProductName(inventory.getProductName());
+        copy.setProductCode(inventory.getProductCode());
+        copy.setQuantity(inventory.getQuantity());
+        copy.setUnit(inventory.getUnit());
+        copy.setUnitPrice(inventory.getUnitPrice());
+        copy.setLocation(inventory.getLocation());
+        copy.setCategory(inventory.getCategory());
+        copy.setDescription(inventory.getDescription());
+        copy.setWarningThreshold(inventory.getWarningThreshold());
+        copy.setCreatedAt(inventory.getCreatedAt());
+        copy.setUpdatedAt(inventory.getUpdatedAt());
+        return copy;
+    }
+}
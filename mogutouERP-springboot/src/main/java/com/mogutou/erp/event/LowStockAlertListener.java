@@ -0,0 +1,20 @@
+package com.mogutou.erp.event;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 低库存预警监听器
+ * 事务提交后才处理，回滚的出库不会产生预警
+ */
+@Component
+public class LowStockAlertListener {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(LowStockAlertListener.class);
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLowStock(LowStockEvent event) {
+        log.warn("库存预警: 商品={}, 编码={}, 当前库存={}, 预警阈值={}",
+                event.getProductName(), event.getProductCode(), event.getQuantity(), event.getWarningThreshold());
+    }
+}
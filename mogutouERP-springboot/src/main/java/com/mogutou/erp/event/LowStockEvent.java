@@ -0,0 +1,51 @@
+package com.mogutou.erp.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * 低库存预警事件
+ * 仅在库存数量由高于预警阈值变为不高于预警阈值时发布一次
+ */
+public class LowStockEvent {
+
+    private final Long inventoryId;
+    private final String productName;
+    private final String productCode;
+    private final Integer quantity;
+    private final Integer warningThreshold;
+    private final LocalDateTime occurredAt;
+
+    public LowStockEvent(Long inventoryId, String productName, String productCode,
+                         Integer quantity, Integer warningThreshold) {
+        this.inventoryId = inventoryId;
+        this.productName = productName;
+        this.productCode = productCode;
+        this.quantity = quantity;
+        this.warningThreshold = warningThreshold;
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    public Long getInventoryId() {
+        return inventoryId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getProductCode() {
+        return productCode;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public Integer getWarningThreshold() {
+        return warningThreshold;
+    }
+
+    public LocalDateTime getOccurredAt() {
+        return occurredAt;
+    }
+}
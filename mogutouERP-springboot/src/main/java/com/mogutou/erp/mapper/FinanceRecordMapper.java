@@ -0,0 +1,10 @@
+package com.mogutou.erp.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.mogutou.erp.entity.FinanceRecord;
+
+/**
+ * 财务记录Mapper，批量导入使用BaseMapper的insert(Collection)批量插入
+ */
+public interface FinanceRecordMapper extends BaseMapper<FinanceRecord> {
+}
@@ -0,0 +1,28 @@
+package com.mogutou.erp.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.mogutou.erp.entity.Order;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Map;
+
+public interface OrderMapper extends BaseMapper<Order> {
+
+    /**
+     * 批量确认订单：一条UPDATE按订单ID分别设置运费，只更新尚未完成的订单，返回更新行数
+     */
+    @Update("<script>UPDATE orders SET status = 'COMPLETED', updated_at = NOW(), freight = CASE id " +
+            "<foreach collection='freights' index='id' item='freight'>WHEN #{id} THEN #{freight} </foreach>END " +
+            "WHERE status &lt;&gt; 'COMPLETED' AND id IN " +
+            "<foreach collection='freights' index='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int completeOrders(@Param("freights") Map<Long, Float> freights);
+
+    /**
+     * 批量修正订单金额：一条UPDATE按订单ID分别设置金额，返回更新行数
+     */
+    @Update("<script>UPDATE orders SET updated_at = NOW(), amount = CASE id " +
+            "<foreach collection='amounts' index='id' item='amount'>WHEN #{id} THEN #{amount} </foreach>END " +
+            "WHERE id IN <foreach collection='amounts' index='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int updateAmounts(@Param("amounts") Map<Long, Float> amounts);
+}
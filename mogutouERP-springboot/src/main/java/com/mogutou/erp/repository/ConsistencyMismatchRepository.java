@@ -0,0 +1,25 @@
+package com.mogutou.erp.repository;
+
+import com.mogutou.erp.entity.ConsistencyMismatch;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ConsistencyMismatchRepository extends JpaRepository<ConsistencyMismatch, Long> {
+
+    Page<ConsistencyMismatch> findByRunIdOrderByIdAsc(Long runId, Pageable pageable);
+
+    Page<ConsistencyMismatch> findByRunIdAndCheckTypeOrderByIdAsc(Long runId, String checkType, Pageable pageable);
+
+    // 某批次某检查项不一致记录的实体ID（对账修复用）
+    @Query("SELECT m.entityId FROM ConsistencyMismatch m WHERE m.runId = :runId AND m.checkType = :checkType ORDER BY m.entityId ASC")
+    java.util.List<Long> findEntityIds(@org.springframework.data.repository.query.Param("runId") Long runId,
+                                       @org.springframework.data.repository.query.Param("checkType") String checkType);
+
+    // 最近一次检查的批次ID
+    @Query("SELECT MAX(m.runId) FROM ConsistencyMismatch m")
+    Long findLatestRunId();
+}
@@ -0,0 +1,22 @@
+package com.mogutou.erp.repository;
+
+import com.mogutou.erp.entity.FileBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, String> {
+
+    // 新内容插入一行，已存在的内容只增加引用计数（并发上传同一文件时由数据库保证原子性）
+    @Modifying
+    @Query(value = "INSERT INTO file_blob (sha256, size, content_type, storage_path, ref_count, created_at) " +
+                   "VALUES (:sha256, :size, :contentType, :storagePath, 1, NOW()) " +
+                   "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1", nativeQuery = true)
+    int upsertReference(@Param("sha256") String sha256,
+                        @Param("size") long size,
+                        @Param("contentType") String contentType,
+                        @Param("storagePath") String storagePath);
+}
@@ -0,0 +1,13 @@
+package com.mogutou.erp.repository;
+
+import com.mogutou.erp.entity.FileReference;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface FileReferenceRepository extends JpaRepository<FileReference, Long> {
+
+    Optional<FileReference> findByUrl(String url);
+}
@@ -5,12 +5,16 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 @Repository
 public interface FinanceRecordRepository extends JpaRepository<FinanceRecord, Long> {
@@ -18,6 +22,14 @@ public interface FinanceRecordRepository extends JpaRepository<FinanceRecord, Lo
     // 根据日期范围查询财务记录
     List<FinanceRecord> findByRecordDateBetweenOrderByRecordDateAsc(Date startDate, Date endDate);
     
+    // 按日期范围流式读取财务记录（服务端游标，固定批次读取）
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT f FROM FinanceRecord f WHERE f.recordDate BETWEEN :startDate AND :endDate ORDER BY f.recordDate ASC")
+    Stream<FinanceRecord> streamByRecordDateBetween(@Param("startDate") Date startDate, @Param("endDate") Date endDate);
+    
     // 分页查询
     Page<FinanceRecord> findByRecordDateBetween(Date startDate, Date endDate, Pageable pageable);
     
@@ -0,0 +1,14 @@
+package com.mogutou.erp.repository;
+
+import com.mogutou.erp.entity.Goods;
+
+import java.util.Optional;
+
+/**
+ * 商品自然键查找
+ * 商品编码唯一，按编码加载可以命中二级缓存
+ */
+public interface GoodsRepositoryCustom {
+
+    Optional<Goods> findOneByCode(String code);
+}
@@ -0,0 +1,22 @@
+package com.mogutou.erp.repository;
+
+import com.mogutou.erp.entity.Goods;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.util.Optional;
+
+public class GoodsRepositoryCustomImpl implements GoodsRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Goods> findOneByCode(String code) {
+        if (code == null || code.isEmpty()) {
+            return Optional.empty();
+        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(Goods.class).loadOptional(code);
+    }
+}
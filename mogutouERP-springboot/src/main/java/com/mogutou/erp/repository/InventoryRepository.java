@@ -7,7 +7,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface InventoryRepository extends JpaRepository<Inventory, Long> {
+public interface InventoryRepository extends JpaRepository<Inventory, Long>, InventoryRepositoryCustom {
     // 根据产品名称查询
     Page<Inventory> findByProductNameContaining(String productName, Pageable pageable);
 
@@ -17,9 +17,62 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     // 根据类别查询
     Page<Inventory> findByCategoryContaining(String category, Pageable pageable);
 
+    // 根据商品ID查找（商品与库存一一对应）
+    java.util.Optional<Inventory> findByGoodsId(Long goodsId);
+
+    // 根据商品ID查库存ID（按商品出入库时先取ID，再按ID加锁）
+    @org.springframework.data.jpa.repository.Query("SELECT i.id FROM Inventory i WHERE i.goodsId = :goodsId")
+    java.util.Optional<Long> findIdByGoodsId(@org.springframework.data.repository.query.Param("goodsId") Long goodsId);
+
     // 根据商品名称精确查找
     java.util.Optional<Inventory> findByProductName(String productName);
 
+    // 查询低库存商品（库存数量 <= 预警阈值），按距离阈值的差值升序，最紧缺的排在前面
+    // 条件写成 quantity - warning_threshold <= 0，可以命中函数索引 idx_stock_margin
+    @org.springframework.data.jpa.repository.Query(
+            value = "SELECT i FROM Inventory i WHERE i.quantity - i.warningThreshold <= 0 ORDER BY i.quantity - i.warningThreshold ASC",
+            countQuery = "SELECT COUNT(i) FROM Inventory i WHERE i.quantity - i.warningThreshold <= 0")
+    Page<Inventory> findLowStock(Pageable pageable);
+
+    // 加载内存索引用：只取ID、名称、编码
+    @org.springframework.data.jpa.repository.Query("SELECT i.id, i.productName, i.productCode FROM Inventory i")
+    java.util.List<Object[]> findAllNameIndexRows();
+
+    // 只查当前库存数量（编辑库存时计算调整差额）
+    @org.springframework.data.jpa.repository.Query("SELECT i.quantity FROM Inventory i WHERE i.id = :id")
+    Integer findQuantityById(@org.springframework.data.repository.query.Param("id") Long id);
+
+    // 批量出入库：按ID升序加行锁，多个事务以相同顺序加锁，避免死锁
+    @org.springframework.data.jpa.repository.Lock(jakarta.persistence.LockModeType.PESSIMISTIC_WRITE)
+    @org.springframework.data.jpa.repository.Query("SELECT i FROM Inventory i WHERE i.id IN :ids ORDER BY i.id ASC")
+    java.util.List<Inventory> findAllByIdInForUpdate(@org.springframework.data.repository.query.Param("ids") java.util.Collection<Long> ids);
+
+    // 批量出入库：商品编码 -> 库存ID
+    @org.springframework.data.jpa.repository.Query("SELECT i.productCode, i.id FROM Inventory i WHERE i.productCode IN :codes")
+    java.util.List<Object[]> findIdsByProductCodeIn(@org.springframework.data.repository.query.Param("codes") java.util.Collection<String> codes);
+
+    // 加载搜索索引用：只取ID、名称、编码、分类
+    @org.springframework.data.jpa.repository.Query("SELECT i.id, i.productName, i.productCode, i.category FROM Inventory i")
+    java.util.List<Object[]> findAllSearchIndexRows();
+
+    // 库存估值：按分类分组汇总数量与金额，在数据库中一次完成
+    @org.springframework.data.jpa.repository.Query(
+            "SELECT i.category, COUNT(i), COALESCE(SUM(i.quantity), 0), COALESCE(SUM(i.quantity * i.unitPrice), 0) " +
+            "FROM Inventory i GROUP BY i.category")
+    java.util.List<Object[]> sumValuationByCategory();
+
+    // 库存估值：按分仓库存行汇总各仓库的数量与金额，单价取自库存
+    // inventory.location只记录最后一次写入的仓库，不能用来分仓统计
+    @org.springframework.data.jpa.repository.Query(
+            "SELECT s.location, COUNT(DISTINCT s.inventoryId), COALESCE(SUM(s.quantity), 0), COALESCE(SUM(s.quantity * i.unitPrice), 0) " +
+            "FROM InventoryStock s JOIN Inventory i ON i.id = s.inventoryId " +
+            "WHERE s.quantity <> 0 GROUP BY s.location")
+    java.util.List<Object[]> sumValuationByLocation();
+
+    // 加载分类估值汇总用：只取ID、分类、数量、单价
+    @org.springframework.data.jpa.repository.Query("SELECT i.id, i.category, i.quantity, i.unitPrice FROM Inventory i")
+    java.util.List<Object[]> findAllValuationRows();
+
     // 获取所有商品名称（去重）
     @org.springframework.data.jpa.repository.Query("SELECT DISTINCT i.productName FROM Inventory i")
     java.util.List<String> findAllDistinctProductNames();
@@ -0,0 +1,14 @@
+package com.mogutou.erp.repository;
+
+import com.mogutou.erp.entity.Inventory;
+
+import java.util.Optional;
+
+/**
+ * 库存行锁
+ * 出入库先锁定库存行再计算新数量，数量、流水和分仓库存在同一把锁下更新
+ */
+public interface InventoryRepositoryCustom {
+
+    Optional<Inventory> findByIdForUpdate(Long id);
+}
@@ -0,0 +1,43 @@
+package com.mogutou.erp.repository;
+
+import com.mogutou.erp.entity.Inventory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.Optional;
+
+public class InventoryRepositoryCustomImpl implements InventoryRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<Inventory> findByIdForUpdate(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Inventory managed = findManaged(id);
+        if (managed == null) {
+            // 当前事务还没加载过该行，直接 SELECT ... FOR UPDATE
+            return Optional.ofNullable(entityManager.find(Inventory.class, id, LockModeType.PESSIMISTIC_WRITE));
+        }
+        if (entityManager.getLockMode(managed) != LockModeType.PESSIMISTIC_WRITE) {
+            // 本事务中已无锁加载过，加锁查询不会更新已托管实例的字段：先写出本事务的修改，再加锁重新读取
+            entityManager.flush();
+            entityManager.refresh(managed, LockModeType.PESSIMISTIC_WRITE);
+        }
+        return Optional.of(managed);
+    }
+
+    /**
+     * 只查当前持久化上下文，不访问数据库
+     */
+    private Inventory findManaged(Long id) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Inventory.class);
+        return (Inventory) session.getPersistenceContextInternal().getEntity(session.generateEntityKey(id, persister));
+    }
+}
@@ -0,0 +1,48 @@
+package com.mogutou.erp.repository;
+
+import com.mogutou.erp.entity.InventoryStock;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface InventoryStockRepository extends JpaRepository<InventoryStock, Long> {
+
+    List<InventoryStock> findByInventoryIdOrderByLocationAsc(Long inventoryId);
+
+    // 出入库时锁定该商品的分仓行，按ID升序加锁避免死锁
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM InventoryStock s WHERE s.inventoryId = :inventoryId ORDER BY s.id ASC")
+    List<InventoryStock> findByInventoryIdForUpdate(@Param("inventoryId") Long inventoryId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM InventoryStock s WHERE s.inventoryId = :inventoryId AND s.location = :location")
+    Optional<InventoryStock> findByInventoryIdAndLocationForUpdate(@Param("inventoryId") Long inventoryId,
+                                                                  @Param("location") String location);
+
+    @Modifying
+    void deleteByInventoryId(Long inventoryId);
+
+    // 各仓库的库存合计（仓库, 合计），在数据库中聚合，不把分仓行读进内存
+    @Query("SELECT s.location, COALESCE(SUM(s.quantity), 0) FROM InventoryStock s GROUP BY s.location ORDER BY s.location")
+    List<Object[]> sumQuantityByLocation();
+
+    // 各商品的跨仓合计（库存ID, 合计），合计为0的商品不返回
+    @Query("SELECT s.inventoryId, SUM(s.quantity) FROM InventoryStock s GROUP BY s.inventoryId HAVING SUM(s.quantity) <> 0")
+    List<Object[]> sumQuantityByInventory();
+
+    // 为还没有分仓记录的库存按其location字段生成一行，数量为当前库存
+    @Modifying
+    @Query(value = "INSERT INTO inventory_stock (inventory_id, location, quantity, updated_at) " +
+                   "SELECT i.id, COALESCE(NULLIF(TRIM(i.location), ''), '默认仓库'), i.quantity, NOW() FROM inventory i " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM inventory_stock s WHERE s.inventory_id = i.id)",
+           nativeQuery = true)
+    int seedFromInventory();
+}
@@ -5,12 +5,16 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
@@ -27,4 +31,17 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
            "FROM Order o WHERE function('YEAR', o.createdAt) = :year AND o.orderType IN ('SALE', 'PURCHASE') " +
            "GROUP BY function('MONTH', o.createdAt), o.orderType")
     List<Map<String, Object>> getMonthlyOrderStatisticsByType(@Param("year") int year);
+
+    // 订单导出：按订单商品展开的扁平行，只查询标量列，不加载实体图
+    // 配合连接参数 useCursorFetch=true 使用服务端游标，按固定批次读取
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o.id, o.orderNo, o.orderType, o.status, o.customerName, o.contactPerson, o.tel, " +
+           "o.amount, o.freight, o.createdAt, g.code, g.name, og.quantity, og.unitPrice, og.totalPrice " +
+           "FROM Order o LEFT JOIN o.goods og LEFT JOIN og.goods g " +
+           "WHERE (:orderType IS NULL OR o.orderType = :orderType) " +
+           "ORDER BY o.id, og.id")
+    Stream<Object[]> streamOrderExportRows(@Param("orderType") String orderType);
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.mogutou.erp.repository;
+
+import com.mogutou.erp.entity.StockMovement;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    // 某商品的库存流水，最新的在前
+    Page<StockMovement> findByInventoryIdOrderByIdDesc(Long inventoryId, Pageable pageable);
+
+    // 指定时间之前的最大流水ID（快照压缩的上界）
+    @Query("SELECT MAX(m.id) FROM StockMovement m WHERE m.createdAt < :cutoff")
+    Long findMaxIdCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    // 某商品在afterId之后、until之前（含）的流水合计
+    @Query("SELECT COALESCE(SUM(m.delta), 0) FROM StockMovement m " +
+           "WHERE m.inventoryId = :inventoryId AND m.id > :afterId AND m.createdAt <= :until")
+    Long sumDeltaAfter(@Param("inventoryId") Long inventoryId,
+                       @Param("afterId") Long afterId,
+                       @Param("until") LocalDateTime until);
+
+    // 为还没有任何流水的库存补一条期初流水，数量为当前库存
+    @Modifying
+    @Query(value = "INSERT INTO stock_movement (inventory_id, delta, source_type, created_at) " +
+                   "SELECT i.id, i.quantity, 'OPENING', NOW() FROM inventory i " +
+                   "WHERE NOT EXISTS (SELECT 1 FROM stock_movement m WHERE m.inventory_id = i.id)",
+           nativeQuery = true)
+    int insertOpeningMovements();
+}
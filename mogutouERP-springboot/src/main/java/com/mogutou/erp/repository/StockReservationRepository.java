@@ -0,0 +1,31 @@
+package com.mogutou.erp.repository;
+
+import com.mogutou.erp.entity.StockReservation;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    // 订单确认/删除时锁定该订单的有效预占，与过期清理互斥
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.orderId = :orderId AND r.status = 'ACTIVE' ORDER BY r.id ASC")
+    List<StockReservation> findActiveByOrderIdForUpdate(@Param("orderId") Long orderId);
+
+    // 已到期的有效预占，每次清理一批
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM StockReservation r WHERE r.status = 'ACTIVE' AND r.expiresAt <= :now ORDER BY r.id ASC")
+    List<StockReservation> findExpiredForUpdate(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // 启动时重建内存计数：各商品有效预占合计
+    @Query("SELECT r.inventoryId, SUM(r.quantity) FROM StockReservation r WHERE r.status = 'ACTIVE' GROUP BY r.inventoryId")
+    List<Object[]> sumActiveByInventory();
+}
@@ -0,0 +1,35 @@
+package com.mogutou.erp.repository;
+
+import com.mogutou.erp.entity.StockSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, Long> {
+
+    // 指定时刻之前最近的一次快照
+    Optional<StockSnapshot> findFirstByInventoryIdAndSnapshotAtLessThanEqualOrderByLastMovementIdDesc(
+            Long inventoryId, LocalDateTime time);
+
+    // 快照压缩：对上次快照之后、upToId（含）之前有流水的商品各生成一条新快照
+    // 新快照数量 = 上一快照数量 + 新增流水之和，一条INSERT ... SELECT完成
+    @Modifying
+    @Query(value = "INSERT INTO stock_snapshot (inventory_id, quantity, last_movement_id, snapshot_at) " +
+                   "SELECT m.inventory_id, " +
+                   "       COALESCE((SELECT s.quantity FROM stock_snapshot s WHERE s.inventory_id = m.inventory_id " +
+                   "                 ORDER BY s.last_movement_id DESC LIMIT 1), 0) + SUM(m.delta), " +
+                   "       MAX(m.id), MAX(m.created_at) " +
+                   "FROM stock_movement m " +
+                   "WHERE m.id <= :upToId " +
+                   "  AND m.id > COALESCE((SELECT MAX(s.last_movement_id) FROM stock_snapshot s " +
+                   "                       WHERE s.inventory_id = m.inventory_id), 0) " +
+                   "GROUP BY m.inventory_id",
+           nativeQuery = true)
+    int compactUpTo(@Param("upToId") Long upToId);
+}
@@ -0,0 +1,14 @@
+package com.mogutou.erp.repository;
+
+import com.mogutou.erp.entity.User;
+
+import java.util.Optional;
+
+/**
+ * 用户自然键查找
+ * 每个请求的JWT校验都会按用户名查用户，按自然键加载可以命中二级缓存，不必每次查询数据库
+ */
+public interface UserRepositoryCustom {
+
+    Optional<User> findByUsername(String username);
+}
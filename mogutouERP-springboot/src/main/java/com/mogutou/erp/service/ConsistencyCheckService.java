@@ -0,0 +1,33 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.entity.ConsistencyMismatch;
+import org.springframework.data.domain.Page;
+
+import java.util.Map;
+
+/**
+ * 数据一致性检查服务
+ * 后台按主键分段核对订单金额、库存流水、订单财务记录，不一致的记录写入consistency_mismatch表
+ */
+public interface ConsistencyCheckService {
+
+    /**
+     * 在后台启动一次检查，返回批次ID；已有检查在运行时抛出IllegalStateException
+     */
+    Long startCheck();
+
+    /**
+     * 当前（或最近一次）检查的进度
+     */
+    Map<String, Object> getStatus();
+
+    /**
+     * 分页查询某批次的不一致记录，runId为空时取最近一次，checkType为空时返回全部检查项
+     */
+    Page<ConsistencyMismatch> getMismatches(Long runId, String checkType, Integer page, Integer size);
+
+    /**
+     * 对账修复：把某批次（为空时取最近一次）订单金额不一致的订单，按当前订单商品总价重新计算金额，返回修复的订单数
+     */
+    int repairOrderAmounts(Long runId);
+}
@@ -0,0 +1,36 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.entity.FileBlob;
+import com.mogutou.erp.entity.FileReference;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * 文件存储服务接口
+ * 按内容寻址保存上传文件，相同内容只落盘一次
+ */
+public interface FileStorageService {
+
+    /**
+     * 保存上传文件，并把逻辑URL登记到对应的内容块
+     */
+    FileReference store(MultipartFile file, String url) throws IOException;
+
+    /**
+     * 根据逻辑URL查找文件引用
+     */
+    Optional<FileReference> findByUrl(String url);
+
+    /**
+     * 根据内容摘要查找内容块
+     */
+    Optional<FileBlob> findBlob(String sha256);
+
+    /**
+     * 获取内容块在磁盘上的路径
+     */
+    Path resolveBlobPath(FileBlob blob);
+}
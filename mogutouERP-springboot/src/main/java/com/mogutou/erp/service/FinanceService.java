@@ -7,12 +7,16 @@ import org.springframework.data.domain.Pageable;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface FinanceService {
     
     // 获取指定日期范围内的财务记录
     List<FinanceRecord> getFinanceRecords(Date startDate, Date endDate);
     
+    // 逐条处理指定日期范围内的财务记录，不在内存中保留整个结果集
+    void streamFinanceRecords(Date startDate, Date endDate, Consumer<FinanceRecord> consumer);
+    
     // 分页获取财务记录
     Page<FinanceRecord> getFinanceRecordsPaged(Date startDate, Date endDate, Pageable pageable);
     
@@ -22,6 +26,9 @@ public interface FinanceService {
     // 创建财务记录
     FinanceRecord createFinanceRecord(FinanceRecord record);
     
+    // 批量创建财务记录（批量导入、订单批量确认），走批量INSERT，返回写入条数
+    int createFinanceRecords(List<FinanceRecord> records);
+    
     // 更新财务记录
     FinanceRecord updateFinanceRecord(Long id, FinanceRecord record);
     
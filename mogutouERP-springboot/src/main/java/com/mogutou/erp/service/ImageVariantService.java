@@ -0,0 +1,34 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.entity.FileBlob;
+import com.mogutou.erp.entity.FileReference;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * 图片缩略图服务接口
+ * 上传后在后台生成固定尺寸的缩略图，与原图存放在同一目录
+ */
+public interface ImageVariantService {
+
+    /**
+     * 预设的缩略图边长（像素），从小到大
+     */
+    int[] VARIANT_SIZES = {64, 128, 512};
+
+    /**
+     * 提交后台任务，为上传的图片生成各尺寸缩略图
+     */
+    void generateVariantsAsync(FileReference reference);
+
+    /**
+     * 获取已生成的指定尺寸缩略图路径
+     */
+    Optional<Path> findVariant(FileBlob blob, int size);
+
+    /**
+     * 返回不小于展示尺寸的最小缩略图URL，缩略图尚未生成或展示尺寸超过最大缩略图时返回原图URL
+     */
+    String resolveVariantUrl(String url, int displaySize);
+}
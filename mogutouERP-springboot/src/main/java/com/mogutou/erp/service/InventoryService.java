@@ -1,5 +1,6 @@
 package com.mogutou.erp.service;
 
+import com.mogutou.erp.entity.Goods;
 import com.mogutou.erp.entity.Inventory;
 import org.springframework.data.domain.Page;
 
@@ -39,6 +40,11 @@ public interface InventoryService {
      */
     Inventory stockOut(Inventory inventory);
 
+    /**
+     * 库存出库，并在库存流水中记录来源（如订单ID）
+     */
+    Inventory stockOut(Inventory inventory, String sourceType, Long sourceId);
+
     /**
      * 根据商品名称查找库存
      */
@@ -49,8 +55,51 @@ public interface InventoryService {
      */
     Inventory createOrUpdateInventoryFromGoods(String productName, String productCode, Integer quantity, Double unitPrice);
 
+    /**
+     * 为指定商品创建或更新库存（按商品ID关联），并在库存流水中记录来源（如订单ID）
+     */
+    Inventory createOrUpdateInventoryForGoods(Goods goods, Integer quantity, Double unitPrice,
+                                              String sourceType, Long sourceId);
+
+    /**
+     * 查找商品对应的库存（只读），按商品ID关联，未关联的旧数据按名称查找
+     */
+    Inventory findByGoods(Goods goods);
+
+    /**
+     * 获取低库存列表（库存数量不高于预警阈值）
+     */
+    Page<Inventory> getLowStockList(Integer page, Integer size);
+
     /**
      * 获取所有商品名称列表（用于自动提示）
      */
     java.util.List<String> getAllProductNames();
-}
\ No newline at end of file
+
+    /**
+     * 按前缀（名称、编码或拼音首字母）查找商品名称，最多返回limit个
+     */
+    java.util.List<String> searchProductNames(String prefix, int limit);
+
+    /**
+     * 批量出入库，同一商品的多条明细先合并，在一个事务中按库存ID顺序加锁更新
+     * 任一商品不存在或库存不足时整批回滚
+     */
+    java.util.List<Inventory> applyStockMovements(java.util.List<com.mogutou.erp.dto.StockMovementRequest> movements);
+
+    /**
+     * 组合搜索：keyword在名称、编码、分类中查找，name/code/category只在对应字段中查找，
+     * 多个条件同时满足，结果按匹配程度排序分页
+     */
+    Page<Inventory> searchInventory(String keyword, String name, String code, String category, Integer page, Integer size);
+
+    /**
+     * 库存估值：总数量、总金额，以及按分类、按仓库的汇总，由数据库分组聚合计算
+     */
+    java.util.Map<String, Object> getValuation();
+
+    /**
+     * 按分类的库存估值，读取增量维护的内存汇总，未加载完成时退回数据库聚合
+     */
+    java.util.List<java.util.Map<String, Object>> getCategoryValuation();
+}
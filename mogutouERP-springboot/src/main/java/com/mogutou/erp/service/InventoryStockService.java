@@ -0,0 +1,41 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.entity.InventoryStock;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分仓库存服务
+ * 维护(商品, 仓库)粒度的库存行，出库时按仓库分配，跨仓汇总按仓库并行计算
+ */
+public interface InventoryStockService {
+
+    /**
+     * 按数量变化更新分仓库存：正数入库到指定仓库，负数从指定仓库优先出库
+     * 仓库为空时使用默认仓库
+     * 调用方须已在同一事务中锁定对应的库存行（inventory），分仓行在其后按ID顺序加锁
+     */
+    void apply(Long inventoryId, String location, int delta);
+
+    /**
+     * 出库分配：先从指定仓库出，不足部分按库存从多到少依次从其他仓库出
+     * 返回各仓库实际出库数量；所有仓库合计不足时抛出IllegalArgumentException
+     */
+    Map<String, Integer> allocateOut(Long inventoryId, String preferredLocation, int quantity);
+
+    /**
+     * 查询某商品在各仓库的库存
+     */
+    List<InventoryStock> getStocks(Long inventoryId);
+
+    /**
+     * 删除商品的分仓库存
+     */
+    void deleteByInventoryId(Long inventoryId);
+
+    /**
+     * 跨仓汇总：各仓库合计、总计；includeProducts为true时附带每个商品的跨仓合计
+     */
+    Map<String, Object> rollup(boolean includeProducts);
+}
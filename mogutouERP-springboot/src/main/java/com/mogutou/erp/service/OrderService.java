@@ -1,11 +1,15 @@
 package com.mogutou.erp.service;
 
+import com.mogutou.erp.config.ErpMetrics;
+import com.mogutou.erp.config.ReportingQuery;
 import com.mogutou.erp.entity.Order;
 import com.mogutou.erp.entity.OrderGoods;
 import com.mogutou.erp.entity.User;
 import com.mogutou.erp.entity.Goods;
 import com.mogutou.erp.entity.Inventory;
 import com.mogutou.erp.entity.FinanceRecord;
+import com.mogutou.erp.entity.StockMovement;
+import com.mogutou.erp.mapper.OrderMapper;
 import com.mogutou.erp.repository.OrderRepository;
 import com.mogutou.erp.repository.GoodsRepository;
 import com.mogutou.erp.service.InventoryService;
@@ -17,16 +21,32 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.ArrayList;
+import java.util.stream.Stream;
 import java.math.BigDecimal;
+import cn.hutool.core.text.csv.CsvWriter;
+import io.micrometer.core.instrument.Timer;
 
 @Service
 public class OrderService {
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrderService.class);
 
+    private static final DateTimeFormatter EXPORT_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final String[] EXPORT_HEADER = {
+        "订单ID", "订单编号", "订单类型", "订单状态", "客户名称", "联系人", "联系电话",
+        "订单金额", "运费", "创建时间", "商品编码", "商品名称", "数量", "单价", "小计"
+    };
+
     @Autowired
     private OrderRepository orderRepository;
 
@@ -39,6 +59,15 @@ public class OrderService {
     @Autowired
     private FinanceService financeService;
 
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private ErpMetrics erpMetrics;
+
     /**
      * 获取订单列表，支持分页
      */
@@ -57,6 +86,19 @@ public class OrderService {
 
     @Transactional
     public Order createOrder(Order order, List<OrderGoods> goods) {
+        Timer.Sample sample = Timer.start();
+        Throwable failure = null;
+        try {
+            return doCreateOrder(order, goods);
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            erpMetrics.recordOrder("create", order, sample, failure);
+        }
+    }
+
+    private Order doCreateOrder(Order order, List<OrderGoods> goods) {
         log.info("开始创建订单，前端type: {}, orderType: {}", order.getType(), order.getOrderType());
 
         try {
@@ -105,25 +147,22 @@ public class OrderService {
                         throw new RuntimeException("订单商品中的商品对象不能为空");
                     }
 
-                    // 处理商品关联 - 如果只有名称没有ID，尝试根据名称查找或创建商品
+                    // 处理商品关联 - 如果没有ID，先按编码（走二级缓存）、再按名称查找，都找不到时创建商品
                     Goods goodsItem = item.getGoods();
-                    if (goodsItem.getId() == null && goodsItem.getName() != null) {
+                    Goods byCode = goodsItem.getId() == null
+                            ? goodsRepository.findOneByCode(goodsItem.getCode()).orElse(null) : null;
+                    if (byCode != null) {
+                        goodsItem = byCode;
+                        item.setGoods(goodsItem);
+                    } else if (goodsItem.getId() == null && goodsItem.getName() != null) {
                         List<Goods> existingGoods = goodsRepository.findByName(goodsItem.getName());
 
                         if (!existingGoods.isEmpty()) {
                             goodsItem = existingGoods.get(0);
                             log.info("使用现有商品: {}", goodsItem.getName());
-                            
-                            // 如果是销售订单，检查库存是否足够
-                            if ("SALE".equals(orderType) && goodsItem.getStock() < item.getQuantity()) {
-                                log.warn("商品库存不足: {}, 当前库存: {}, 需要: {}", 
-                                    goodsItem.getName(), goodsItem.getStock(), item.getQuantity());
-                                // 销售订单创建时只警告，不阻止创建，等确认时再严格检查
-                            }
                         } else {
                             // 创建新商品
                             goodsItem.setCode("G" + System.currentTimeMillis());
-                            goodsItem.setStock(0); // 新商品初始库存为0
                             goodsItem.setStatus(1);
                             // 设置商品价格为订单中的单价
                             if (item.getUnitPrice() != null) {
@@ -164,6 +203,11 @@ public class OrderService {
             Order savedOrder = orderRepository.save(order);
             log.info("订单保存成功: ID={}, 类型={}, 金额={}, 状态={}", 
                     savedOrder.getId(), savedOrder.getOrderType(), savedOrder.getAmount(), savedOrder.getStatus());
+
+            // 销售订单创建时预占库存，可承诺量不足时直接拒绝，不再等到确认时才失败
+            if ("SALE".equals(savedOrder.getOrderType())) {
+                reserveStock(savedOrder);
+            }
             
             // 🆕 移除自动确认功能，保持订单在PENDING状态
             // 用户需要手动确认订单才会更新库存和财务记录
@@ -205,28 +249,120 @@ public class OrderService {
         }
     }
 
+    /**
+     * AI订单分析读取的订单，与订单列表查询相同，但走报表连接池
+     */
+    @ReportingQuery
+    @Transactional(readOnly = true)
+    public Page<Order> getOrdersForAnalysis(String type, int limit) {
+        return getOrdersByType(type, 0, limit);
+    }
+
+    /**
+     * 以CSV格式流式导出订单及订单商品
+     * 通过数据库游标逐行读取并直接写出，内存占用与导出行数无关
+     *
+     * @param type 订单类型（customer/SALE、purchase/PURCHASE），为空时导出全部
+     * @return 导出的行数
+     */
+    @Transactional(readOnly = true)
+    public long exportOrders(String type, OutputStream out) throws IOException {
+        String orderType = null;
+        if ("customer".equalsIgnoreCase(type) || "SALE".equalsIgnoreCase(type)) {
+            orderType = "SALE";
+        } else if ("purchase".equalsIgnoreCase(type) || "PURCHASE".equalsIgnoreCase(type)) {
+            orderType = "PURCHASE";
+        }
+        log.info("开始导出订单: type={}, orderType={}", type, orderType);
+
+        // 写入UTF-8 BOM，Excel打开时才能正确识别中文
+        out.write(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+        BufferedWriter bufferedWriter = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        CsvWriter csvWriter = new CsvWriter(bufferedWriter);
+        csvWriter.writeHeaderLine(EXPORT_HEADER);
+
+        long rowCount = 0;
+        try (Stream<Object[]> rows = orderRepository.streamOrderExportRows(orderType)) {
+            java.util.Iterator<Object[]> iterator = rows.iterator();
+            String[] line = new String[EXPORT_HEADER.length];
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                for (int i = 0; i < row.length; i++) {
+                    Object value = row[i];
+                    if (value == null) {
+                        line[i] = "";
+                    } else if (value instanceof java.time.LocalDateTime) {
+                        line[i] = EXPORT_TIME_FORMATTER.format((java.time.LocalDateTime) value);
+                    } else {
+                        line[i] = value.toString();
+                    }
+                }
+                csvWriter.writeLine(line);
+                rowCount++;
+            }
+        }
+        csvWriter.flush();
+        log.info("订单导出完成: orderType={}, 行数={}", orderType, rowCount);
+        return rowCount;
+    }
+
     @Transactional
     public void deleteOrder(Long id) {
+        stockReservationService.release(id);
         orderRepository.deleteById(id);
     }
 
     @Transactional
     public Order confirmOrder(Long id, float freight) {
-        Order order = orderRepository.findById(id)
-            .orElseThrow(() -> new RuntimeException("订单不存在"));
+        Timer.Sample sample = Timer.start();
+        Order order = null;
+        Throwable failure = null;
+        try {
+            order = orderRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("订单不存在"));
 
-        if ("COMPLETED".equals(order.getStatus())) {
-            throw new RuntimeException("订单请勿重复确认");
+            if ("COMPLETED".equals(order.getStatus())) {
+                throw new RuntimeException("订单请勿重复确认");
+            }
+
+            Map<Long, Integer> reserved = checkStockOnOrderConfirm(order);
+
+            // 订单确认后自动更新库存
+            updateInventoryOnOrderConfirm(order, reserved);
+
+            // 订单确认后自动创建财务记录
+            createFinanceRecordOnOrderConfirm(order);
+
+            order.setStatus("COMPLETED");
+            order.setFreight(freight);
+            return orderRepository.save(order);
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            erpMetrics.recordOrder("confirm", order, sample, failure);
         }
-        
-        // 如果是销售订单，先检查所有商品库存是否足够
+    }
+
+    /**
+     * 销售订单：创建时已预占的商品直接转为出库，这里不再重复检查；
+     * 没有有效预占的（旧订单或预占已过期）先检查所有商品库存是否足够
+     * 这里读的是未加锁的快照，真正防止超卖的是出库时在库存行锁下的数量检查
+     * 返回各商品已预占的数量（库存ID -> 数量）
+     */
+    private Map<Long, Integer> checkStockOnOrderConfirm(Order order) {
+        Map<Long, Integer> reserved = new HashMap<>();
         if ("SALE".equals(order.getOrderType())) {
+            reserved = stockReservationService.consume(order.getId());
             for (OrderGoods orderGoods : order.getGoods()) {
                 Goods goods = orderGoods.getGoods();
                 Integer quantity = orderGoods.getQuantity();
                 
                 // 检查库存
-                Inventory inventory = inventoryService.findByProductName(goods.getName());
+                Inventory inventory = inventoryService.findByGoods(goods);
+                if (inventory != null && isReserved(reserved, inventory, quantity)) {
+                    continue;
+                }
                 if (inventory == null || inventory.getQuantity() < quantity) {
                     String errorMsg = "库存不足，无法确认订单。商品: " + goods.getName();
                     if (inventory != null) {
@@ -239,22 +375,45 @@ public class OrderService {
                 }
             }
         }
+        return reserved;
+    }
 
-        // 订单确认后自动更新库存
-        updateInventoryOnOrderConfirm(order);
-
-        // 订单确认后自动创建财务记录
-        createFinanceRecordOnOrderConfirm(order);
+    /**
+     * 批量确认订单（订单ID -> 运费），整批在一个事务中完成
+     * 库存仍逐个商品出库（需要加锁、记流水）；财务记录批量插入，订单状态和运费用一条UPDATE完成
+     * 返回确认的订单数
+     */
+    @Transactional
+    public int confirmOrders(Map<Long, Float> freights) {
+        if (freights == null || freights.isEmpty()) {
+            throw new IllegalArgumentException("确认的订单不能为空");
+        }
+        List<FinanceRecord> financeRecords = new ArrayList<>();
+        for (Long id : new java.util.TreeMap<>(freights).keySet()) {
+            Order order = orderRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("订单不存在: " + id));
+            if ("COMPLETED".equals(order.getStatus())) {
+                throw new RuntimeException("订单请勿重复确认: " + order.getOrderNo());
+            }
+            Map<Long, Integer> reserved = checkStockOnOrderConfirm(order);
+            updateInventoryOnOrderConfirm(order, reserved);
+            financeRecords.add(buildFinanceRecord(order));
+        }
 
-        order.setStatus("COMPLETED");
-        order.setFreight(freight);
-        return orderRepository.save(order);
+        financeService.createFinanceRecords(financeRecords);
+        int updated = orderMapper.completeOrders(freights);
+        if (updated != freights.size()) {
+            // 期间有订单被其他请求确认，整批回滚
+            throw new RuntimeException("部分订单状态已变化，请刷新后重试");
+        }
+        log.info("批量确认订单完成: 订单数={}", updated);
+        return updated;
     }
 
     /**
      * 订单确认时自动更新库存
      */
-    private void updateInventoryOnOrderConfirm(Order order) {
+    private void updateInventoryOnOrderConfirm(Order order, Map<Long, Integer> reserved) {
         try {
             log.info("开始更新订单库存，订单ID: {}, 订单类型: {}", order.getId(), order.getOrderType());
 
@@ -266,23 +425,19 @@ public class OrderService {
                 if ("PURCHASE".equals(order.getOrderType())) {
                     // 采购订单确认：增加库存
                     log.info("采购订单确认，增加库存: 商品={}, 数量={}", goods.getName(), quantity);
-                    inventoryService.createOrUpdateInventoryFromGoods(
-                        goods.getName(),
-                        goods.getCode(),
+                    inventoryService.createOrUpdateInventoryForGoods(
+                        goods,
                         quantity,
-                        unitPrice
+                        unitPrice,
+                        StockMovement.SOURCE_ORDER,
+                        order.getId()
                     );
-                    
-                    // 同步更新Goods表中的库存数量
-                    goods.setStock(goods.getStock() + quantity);
-                    goodsRepository.save(goods);
-                    log.info("更新商品库存: 商品={}, 新库存={}", goods.getName(), goods.getStock());
                 } else if ("SALE".equals(order.getOrderType())) {
                     // 销售订单确认：减少库存
                     log.info("销售订单确认，减少库存: 商品={}, 数量={}", goods.getName(), quantity);
-                    Inventory inventory = inventoryService.findByProductName(goods.getName());
+                    Inventory inventory = inventoryService.findByGoods(goods);
                     if (inventory != null) {
-                        if (inventory.getQuantity() < quantity) {
+                        if (!isReserved(reserved, inventory, quantity) && inventory.getQuantity() < quantity) {
                             throw new RuntimeException("库存不足，商品: " + goods.getName() +
                                 ", 当前库存: " + inventory.getQuantity() +
                                 ", 需要: " + quantity);
@@ -291,17 +446,7 @@ public class OrderService {
                         Inventory stockOutData = new Inventory();
                         stockOutData.setId(inventory.getId());
                         stockOutData.setQuantity(quantity);
-                        inventoryService.stockOut(stockOutData);
-                        
-                        // 同步更新Goods表中的库存数量
-                        if (goods.getStock() < quantity) {
-                            goods.setStock(0);
-                            log.warn("商品表库存数据不一致，已重置为0: 商品={}", goods.getName());
-                        } else {
-                            goods.setStock(goods.getStock() - quantity);
-                        }
-                        goodsRepository.save(goods);
-                        log.info("更新商品库存: 商品={}, 新库存={}", goods.getName(), goods.getStock());
+                        inventoryService.stockOut(stockOutData, StockMovement.SOURCE_ORDER, order.getId());
                     } else {
                         throw new RuntimeException("库存中未找到商品: " + goods.getName());
                     }
@@ -315,6 +460,35 @@ public class OrderService {
         }
     }
 
+    /**
+     * 为销售订单的商品预占库存，同一商品的多行合并；库存中还没有的商品不预占，确认时再检查
+     */
+    private void reserveStock(Order order) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderGoods item : order.getGoods()) {
+            if (item.getGoods() == null || item.getGoods().getId() == null || item.getQuantity() == null) {
+                continue;
+            }
+            Inventory inventory = inventoryService.findByGoods(item.getGoods());
+            if (inventory == null) {
+                log.warn("库存中未找到商品，暂不预占: {}", item.getGoods().getName());
+                continue;
+            }
+            quantities.merge(inventory.getId(), item.getQuantity(), Integer::sum);
+        }
+        if (!quantities.isEmpty()) {
+            stockReservationService.reserve(order.getId(), quantities);
+        }
+    }
+
+    /**
+     * 该商品的有效预占是否覆盖订单数量
+     */
+    private boolean isReserved(Map<Long, Integer> reserved, Inventory inventory, Integer quantity) {
+        Integer reservedQuantity = reserved.get(inventory.getId());
+        return reservedQuantity != null && reservedQuantity >= quantity;
+    }
+
     /**
      * 订单确认时自动创建财务记录
      */
@@ -322,43 +496,8 @@ public class OrderService {
         try {
             log.info("开始创建订单财务记录，订单ID: {}, 订单类型: {}", order.getId(), order.getOrderType());
 
-            FinanceRecord financeRecord = new FinanceRecord();
-            financeRecord.setRecordDate(new java.util.Date());
-            financeRecord.setCreatedBy("system"); // 系统自动创建
-
-            // 计算订单总金额
-            java.math.BigDecimal totalAmount = java.math.BigDecimal.ZERO;
-            for (OrderGoods orderGoods : order.getGoods()) {
-                log.info("财务记录计算 - 商品: {}, 单价: {}, 数量: {}, 总价: {}", 
-                    orderGoods.getGoods() != null ? orderGoods.getGoods().getName() : "null",
-                    orderGoods.getUnitPrice(),
-                    orderGoods.getQuantity(),
-                    orderGoods.getTotalPrice());
-                if (orderGoods.getTotalPrice() != null) {
-                    totalAmount = totalAmount.add(java.math.BigDecimal.valueOf(orderGoods.getTotalPrice()));
-                }
-            }
-            
-            log.info("财务记录总金额计算结果: {}", totalAmount);
-
-            if ("PURCHASE".equals(order.getOrderType())) {
-                // 采购订单：记录为支出
-                financeRecord.setExpense(totalAmount);
-                financeRecord.setIncome(java.math.BigDecimal.ZERO);
-                financeRecord.setRecordType("PURCHASE");
-                financeRecord.setDescription("采购订单自动记录 - 订单号: " + order.getOrderNo());
-                log.info("采购订单确认，记录支出: 金额={}", totalAmount);
-            } else if ("SALE".equals(order.getOrderType())) {
-                // 销售订单：记录为收入
-                financeRecord.setIncome(totalAmount);
-                financeRecord.setExpense(java.math.BigDecimal.ZERO);
-                financeRecord.setRecordType("SALES");
-                financeRecord.setDescription("销售订单自动记录 - 订单号: " + order.getOrderNo());
-                log.info("销售订单确认，记录收入: 金额={}", totalAmount);
-            }
-
             // 保存财务记录
-            financeService.createFinanceRecord(financeRecord);
+            financeService.createFinanceRecord(buildFinanceRecord(order));
             log.info("订单财务记录创建完成，订单ID: {}", order.getId());
 
         } catch (Exception e) {
@@ -367,6 +506,50 @@ public class OrderService {
         }
     }
 
+    /**
+     * 按订单商品总价生成财务记录（采购记支出，销售记收入）
+     */
+    private FinanceRecord buildFinanceRecord(Order order) {
+        FinanceRecord financeRecord = new FinanceRecord();
+        financeRecord.setRecordDate(new java.util.Date());
+        financeRecord.setCreatedBy("system"); // 系统自动创建
+        financeRecord.setOrderId(order.getId());
+
+        // 计算订单总金额
+        java.math.BigDecimal totalAmount = java.math.BigDecimal.ZERO;
+        for (OrderGoods orderGoods : order.getGoods()) {
+            log.info("财务记录计算 - 商品: {}, 单价: {}, 数量: {}, 总价: {}", 
+                orderGoods.getGoods() != null ? orderGoods.getGoods().getName() : "null",
+                orderGoods.getUnitPrice(),
+                orderGoods.getQuantity(),
+                orderGoods.getTotalPrice());
+            if (orderGoods.getTotalPrice() != null) {
+                totalAmount = totalAmount.add(java.math.BigDecimal.valueOf(orderGoods.getTotalPrice()));
+            }
+        }
+        
+        log.info("财务记录总金额计算结果: {}", totalAmount);
+
+        if ("PURCHASE".equals(order.getOrderType())) {
+            // 采购订单：记录为支出
+            financeRecord.setExpense(totalAmount);
+            financeRecord.setIncome(java.math.BigDecimal.ZERO);
+            financeRecord.setRecordType("PURCHASE");
+            financeRecord.setDescription("采购订单自动记录 - 订单号: " + order.getOrderNo());
+            log.info("采购订单确认，记录支出: 金额={}", totalAmount);
+        } else if ("SALE".equals(order.getOrderType())) {
+            // 销售订单：记录为收入
+            financeRecord.setIncome(totalAmount);
+            financeRecord.setExpense(java.math.BigDecimal.ZERO);
+            financeRecord.setRecordType("SALES");
+            financeRecord.setDescription("销售订单自动记录 - 订单号: " + order.getOrderNo());
+            log.info("销售订单确认，记录收入: 金额={}", totalAmount);
+        }
+
+        return financeRecord;
+    }
+
+    @ReportingQuery
     @Transactional(readOnly = true)
     public Map<String, List<?>> getMonthlyTypedOrderData(int year) {
         List<Map<String, Object>> monthlyStats = orderRepository.getMonthlyOrderStatisticsByType(year);
@@ -0,0 +1,33 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.entity.StockMovement;
+import org.springframework.data.domain.Page;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存流水服务
+ * 记录每一次库存数量变化，并定时压缩成快照，支持查询任意时刻的库存
+ */
+public interface StockLedgerService {
+
+    /**
+     * 追加一条库存流水，delta为0时忽略
+     */
+    void record(Long inventoryId, int delta, String sourceType, Long sourceId);
+
+    /**
+     * 分页查询某商品的库存流水，最新的在前
+     */
+    Page<StockMovement> getMovements(Long inventoryId, Integer page, Integer size);
+
+    /**
+     * 查询某商品在指定时刻的库存数量：最近的快照 + 其后的流水
+     */
+    int getQuantityAt(Long inventoryId, LocalDateTime time);
+
+    /**
+     * 把已提交的流水压缩成快照，返回生成的快照数
+     */
+    int compactSnapshots();
+}
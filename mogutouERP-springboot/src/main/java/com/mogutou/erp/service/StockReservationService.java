@@ -0,0 +1,40 @@
+package com.mogutou.erp.service;
+
+import java.util.Map;
+
+/**
+ * 库存预占服务
+ * 可承诺量（ATP）= 库存数量 − 有效预占，预占合计保存在内存计数中，数据库记录用于重启恢复和过期清理
+ */
+public interface StockReservationService {
+
+    /**
+     * 为订单预占库存（库存ID -> 数量），任一商品可承诺量不足时整单不预占并抛出IllegalArgumentException
+     */
+    void reserve(Long orderId, Map<Long, Integer> quantities);
+
+    /**
+     * 订单确认时把有效预占转为出库，返回各商品已预占的数量（库存ID -> 数量）；没有有效预占时返回空Map
+     */
+    Map<Long, Integer> consume(Long orderId);
+
+    /**
+     * 释放订单的有效预占（订单删除时）
+     */
+    void release(Long orderId);
+
+    /**
+     * 查询商品的可承诺量
+     */
+    int getAvailableToPromise(Long inventoryId);
+
+    /**
+     * 查询商品当前的有效预占合计；在事务中调用时不含本事务已确认或释放的预占
+     */
+    int getReserved(Long inventoryId);
+
+    /**
+     * 把到期未确认的预占置为过期并归还可承诺量，返回处理条数
+     */
+    int expireOverdue();
+}
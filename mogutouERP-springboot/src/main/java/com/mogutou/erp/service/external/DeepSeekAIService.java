@@ -3,6 +3,11 @@ package com.mogutou.erp.service.external;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mogutou.erp.config.ErpMetrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import okhttp3.*;
 import java.io.IOException;
@@ -32,6 +37,12 @@ public class DeepSeekAIService {
 
     private final ObjectMapper mapper = new ObjectMapper();
 
+    @Autowired
+    private ErpMetrics erpMetrics;
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
     /**
      * 智能对话模式 - 自然语言交流
      */
@@ -140,31 +151,43 @@ public class DeepSeekAIService {
         int maxRetries = 3;
         long baseDelay = 1500; // 增加基础延迟
         
+        // 指标标签只用已知的分析类型，避免任意输入产生大量时间序列
+        String mode = switch (analysisType.toUpperCase()) {
+            case "ORDER", "FINANCE", "INVENTORY", "SALES" -> "ANALYSIS_" + analysisType.toUpperCase();
+            default -> "ANALYSIS";
+        };
         for (int attempt = 1; attempt <= maxRetries; attempt++) {
+            Timer.Sample sample = Timer.start();
             try {
                 System.out.println(String.format("🔍 分析调用[%s] - 尝试%d/%d", analysisType, attempt, maxRetries));
                 
                 // 第一次尝试正常调用，第二次尝试简化提示词，第三次尝试降低生成长度
+                String result;
                 if (attempt == 1) {
-                    return callDeepSeekAPI(input, systemPrompt, timeoutSeconds);
+                    result = callDeepSeekAPI(input, systemPrompt, timeoutSeconds);
                 } else if (attempt == 2) {
                     // 简化提示词，减少对格式的要求
                     String simplifiedPrompt = simplifyAnalysisPrompt(systemPrompt);
-                    return callDeepSeekAPI(input, simplifiedPrompt, timeoutSeconds + 15); // 增加超时
+                    result = callDeepSeekAPI(input, simplifiedPrompt, timeoutSeconds + 15); // 增加超时
                 } else {
                     // 最后一次尝试：降低回复复杂度，增加超时时间
                     String emergencyPrompt = "你是数据分析师。分析以下数据并提供简短清晰的见解，无需格式化：\n";
                     // 进一步压缩输入数据
                     String reducedInput = reduceInputSize(input);
-                    return callDeepSeekAPI(reducedInput, emergencyPrompt, timeoutSeconds + 30); // 显著增加超时
+                    result = callDeepSeekAPI(reducedInput, emergencyPrompt, timeoutSeconds + 30); // 显著增加超时
                 }
+                erpMetrics.recordAiCall(mode, sample, true);
+                return result;
             } catch (IOException e) {
+                erpMetrics.recordAiCall(mode, sample, false);
                 System.err.println(String.format("❌ 分析失败[%s] - 尝试%d: %s", analysisType, attempt, e.getMessage()));
                 
                 if (attempt == maxRetries) {
                     // 返回基础分析结果而不是抛出异常
+                    erpMetrics.recordAiFallback(mode);
                     return generateBackupAnalysis(input, analysisType);
                 }
+                erpMetrics.recordAiRetry(mode);
                 
                 // 指数退避延迟
                 try {
@@ -321,23 +344,32 @@ public class DeepSeekAIService {
         // 尝试执行分析，带重试逻辑
         int maxAttempts = 3;
         for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            Timer.Sample sample = Timer.start();
             try {
                 System.out.println("🧠 AI调用[ORDER_ANALYSIS] - 尝试" + attempt + "/" + maxAttempts);
                 
                 String analysis = executeApiCall(requestBody, ORDER_ANALYSIS_TIMEOUT);
                 
                 // 检查回复质量
-                if (analysis != null && analysis.length() > 100) {
+                boolean usable = analysis != null && analysis.length() > 100;
+                erpMetrics.recordAiCall("ORDER_ANALYSIS", sample, usable);
+                if (usable) {
                     return analysis;
                 }
                 
                 System.out.println("⚠️ AI分析回复质量不佳，准备重试");
+                if (attempt < maxAttempts) {
+                    erpMetrics.recordAiRetry("ORDER_ANALYSIS");
+                }
                 
             } catch (Exception e) {
+                erpMetrics.recordAiCall("ORDER_ANALYSIS", sample, false);
                 System.err.println("❌ AI分析请求失败 (尝试 " + attempt + "/" + maxAttempts + "): " + e.getMessage());
                 if (attempt == maxAttempts) {
+                    erpMetrics.recordAiFallback("ORDER_ANALYSIS");
                     return "由于API限制，无法完成深度分析。请参考下方基础分析结果。";
                 }
+                erpMetrics.recordAiRetry("ORDER_ANALYSIS");
                 
                 // 等待后重试
                 try {
@@ -348,6 +380,7 @@ public class DeepSeekAIService {
             }
         }
         
+        erpMetrics.recordAiFallback("ORDER_ANALYSIS");
         return "抱歉，无法完成AI分析，请查看基础分析数据。";
     }
 
@@ -423,16 +456,21 @@ public class DeepSeekAIService {
         long baseDelay = 1000; // 1秒基础延迟
         
         for (int attempt = 1; attempt <= maxRetries; attempt++) {
+            Timer.Sample sample = Timer.start();
             try {
                 System.out.println(String.format("🤖 AI调用[%s] - 尝试%d/%d", mode, attempt, maxRetries));
-                return callDeepSeekAPI(input, systemPrompt, timeoutSeconds);
+                String result = callDeepSeekAPI(input, systemPrompt, timeoutSeconds);
+                erpMetrics.recordAiCall(mode, sample, true);
+                return result;
                 
             } catch (IOException e) {
+                erpMetrics.recordAiCall(mode, sample, false);
                 System.err.println(String.format("❌ AI调用失败[%s] - 尝试%d: %s", mode, attempt, e.getMessage()));
                 
                 if (attempt == maxRetries) {
                     throw new IOException(String.format("AI服务调用失败，已重试%d次：%s", maxRetries, e.getMessage()));
                 }
+                erpMetrics.recordAiRetry(mode);
                 
                 // 指数退避延迟
                 try {
@@ -477,6 +515,22 @@ public class DeepSeekAIService {
         }
     }
 
+    /**
+     * 为DeepSeek的HTTP调用创建客户端span，挂在当前请求/服务方法的链路下
+     */
+    private Response traceHttpCall(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        Observation observation = Observation.createNotStarted("app.ai.http", observationRegistry)
+                .contextualName(request.method() + " " + request.url().host())
+                .lowCardinalityKeyValue("http.method", request.method())
+                .lowCardinalityKeyValue("http.host", request.url().host());
+        return observation.observeChecked(() -> {
+            Response response = chain.proceed(request);
+            observation.lowCardinalityKeyValue("http.status", String.valueOf(response.code()));
+            return response;
+        });
+    }
+
     /**
      * 构建HTTP客户端
      */
@@ -486,6 +540,8 @@ public class DeepSeekAIService {
                 .writeTimeout(timeoutSeconds, TimeUnit.SECONDS)
                 .readTimeout(timeoutSeconds + 10, TimeUnit.SECONDS)
                 .retryOnConnectionFailure(true)
+                // 放在重试拦截器外层，一次调用（含连接级重试）对应一个span
+                .addInterceptor(this::traceHttpCall)
                 .addInterceptor(chain -> {
                     int maxRetries = 2;
                     int attempts = 0;
@@ -1423,13 +1423,13 @@ public class CommandExecutorServiceImpl implements CommandExecutorService {
             
             try {
                 if (orderType.isEmpty() || orderType.equalsIgnoreCase("SALE")) {
-                    Page<Order> salesOrders = orderService.getOrdersByType("SALE", 0, limit);
+                    Page<Order> salesOrders = orderService.getOrdersForAnalysis("SALE", limit);
                     allOrders.addAll(salesOrders.getContent());
                     System.out.println("✅ 销售订单查询完成: " + salesOrders.getContent().size() + "条");
                 }
                 
                 if (orderType.isEmpty() || orderType.equalsIgnoreCase("PURCHASE")) {
-                    Page<Order> purchaseOrders = orderService.getOrdersByType("PURCHASE", 0, limit);
+                    Page<Order> purchaseOrders = orderService.getOrdersForAnalysis("PURCHASE", limit);
                     allOrders.addAll(purchaseOrders.getContent());
                     System.out.println("✅ 采购订单查询完成: " + purchaseOrders.getContent().size() + "条");
                 }
@@ -1750,7 +1750,7 @@ public class CommandExecutorServiceImpl implements CommandExecutorService {
     /**
      * 产品信息内部类
      */
-    private static class ProductInfo {
+    static class ProductInfo {
         String name;
         int quantity;
         float unitPrice;
@@ -1909,7 +1909,7 @@ public class CommandExecutorServiceImpl implements CommandExecutorService {
     /**
      * 从文本中检测订单类型
      */
-    private String detectOrderTypeFromText(String text) {
+    String detectOrderTypeFromText(String text) {
         if (text == null || text.trim().isEmpty()) {
             return "";
         }
@@ -1987,7 +1987,7 @@ public class CommandExecutorServiceImpl implements CommandExecutorService {
     /**
      * 从文本中提取客户名称 - 增强版
      */
-    private String extractCustomerFromText(String text) {
+    String extractCustomerFromText(String text) {
         if (text == null || text.trim().isEmpty()) {
             return "";
         }
@@ -2192,7 +2192,7 @@ public class CommandExecutorServiceImpl implements CommandExecutorService {
     /**
      * 从文本中提取商品信息 - 正则表达式方法
      */
-    private ProductInfo extractProductFromText(String text) {
+    ProductInfo extractProductFromText(String text) {
         if (text == null || text.trim().isEmpty()) {
             return null;
         }
@@ -2466,7 +2466,7 @@ public class CommandExecutorServiceImpl implements CommandExecutorService {
     /**
      * 将中文数字转换为阿拉伯数字
      */
-    private int convertChineseNumber(String chineseNumber) {
+    int convertChineseNumber(String chineseNumber) {
         if (chineseNumber == null || chineseNumber.trim().isEmpty()) {
             return 0;
         }
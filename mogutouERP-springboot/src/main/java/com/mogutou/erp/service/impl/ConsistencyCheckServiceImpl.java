@@ -0,0 +1,309 @@
+package com.mogutou.erp.service.impl;
+
+import com.mogutou.erp.entity.ConsistencyMismatch;
+import com.mogutou.erp.mapper.OrderMapper;
+import com.mogutou.erp.repository.ConsistencyMismatchRepository;
+import com.mogutou.erp.service.ConsistencyCheckService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+public class ConsistencyCheckServiceImpl implements ConsistencyCheckService {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ConsistencyCheckServiceImpl.class);
+
+    /**
+     * 各检查项：遍历的表 + 在一个主键区间内找出不一致记录的SQL（返回 主键, 期望值, 实际值）
+     * 比较都在数据库内按集合完成，只把不一致的行传回应用
+     */
+    static final List<Check> CHECKS = Arrays.asList(
+            new Check(ConsistencyMismatch.CHECK_ORDER_AMOUNT, "orders",
+                    "SELECT o.id, COALESCE(SUM(og.total_price), 0), COALESCE(o.amount, 0) " +
+                    "FROM orders o LEFT JOIN order_goods og ON og.order_id = o.id " +
+                    "WHERE o.id BETWEEN ? AND ? " +
+                    "GROUP BY o.id, o.amount " +
+                    "HAVING ABS(COALESCE(SUM(og.total_price), 0) - COALESCE(o.amount, 0)) > 0.01"),
+            new Check(ConsistencyMismatch.CHECK_INVENTORY_LEDGER, "inventory",
+                    "SELECT i.id, COALESCE(SUM(m.delta), 0), i.quantity " +
+                    "FROM inventory i LEFT JOIN stock_movement m ON m.inventory_id = i.id " +
+                    "WHERE i.id BETWEEN ? AND ? " +
+                    "GROUP BY i.id, i.quantity " +
+                    "HAVING COALESCE(SUM(m.delta), 0) <> i.quantity"),
+            new Check(ConsistencyMismatch.CHECK_ORDER_FINANCE, "orders",
+                    "SELECT o.id, 1, (SELECT COUNT(*) FROM finance_record f WHERE f.order_id = o.id) AS record_count " +
+                    "FROM orders o " +
+                    "WHERE o.id BETWEEN ? AND ? AND o.status = 'COMPLETED' " +
+                    "HAVING record_count <> 1")
+    );
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ConsistencyMismatchRepository mismatchRepository;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("consistencyCheckPool")
+    private ForkJoinPool consistencyCheckPool;
+
+    // 每段的主键跨度
+    @Value("${consistency.check.chunk-size:1000}")
+    private int chunkSize;
+
+    // 每段查询后的停顿，控制对数据库的压力
+    @Value("${consistency.check.throttle-millis:50}")
+    private long throttleMillis;
+
+    // 单条检查查询的超时（秒）
+    @Value("${consistency.check.query-timeout-seconds:30}")
+    private int queryTimeoutSeconds;
+
+    private JdbcTemplate checkJdbcTemplate;
+
+    // 检查扫描放在只读事务中执行，由读写路由数据源分到只读库，不占主库连接
+    private TransactionTemplate readOnlyTransaction;
+
+    private final AtomicReference<CheckRun> currentRun = new AtomicReference<>();
+
+    @PostConstruct
+    public void init() {
+        // 独立的JdbcTemplate：流式读取 + 查询超时，不影响全局配置
+        checkJdbcTemplate = new JdbcTemplate(dataSource);
+        checkJdbcTemplate.setFetchSize(500);
+        checkJdbcTemplate.setQueryTimeout(queryTimeoutSeconds);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Scheduled(cron = "${consistency.check.cron:0 30 2 * * *}")
+    public void scheduledCheck() {
+        try {
+            startCheck();
+        } catch (IllegalStateException e) {
+            log.info("数据一致性检查正在运行，跳过本次定时检查");
+        }
+    }
+
+    @Override
+    public Long startCheck() {
+        CheckRun run = new CheckRun(System.currentTimeMillis());
+        CheckRun previous = currentRun.get();
+        if (previous != null && previous.isRunning() || !currentRun.compareAndSet(previous, run)) {
+            throw new IllegalStateException("已有数据一致性检查正在运行");
+        }
+        consistencyCheckPool.execute(() -> runChecks(run));
+        log.info("启动数据一致性检查: runId={}", run.runId);
+        return run.runId;
+    }
+
+    private void runChecks(CheckRun run) {
+        try {
+            for (Check check : CHECKS) {
+                Map<String, Object> range = readOnlyTransaction.execute(status -> checkJdbcTemplate.queryForMap(
+                        "SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM " + check.table));
+                if (range.get("min_id") == null) {
+                    continue;
+                }
+                long minId = ((Number) range.get("min_id")).longValue();
+                long maxId = ((Number) range.get("max_id")).longValue();
+                run.totalChunks.addAndGet((int) ((maxId - minId) / chunkSize + 1));
+                // 在当前ForkJoin工作线程中执行，子任务在同一个有界线程池内并行
+                new ChunkTask(run, check, minId, maxId).invoke();
+            }
+            run.finish("COMPLETED", null);
+            log.info("数据一致性检查完成: runId={}, 分段数={}, 不一致记录数={}",
+                    run.runId, run.doneChunks.get(), run.mismatches.get());
+        } catch (Exception e) {
+            run.finish("FAILED", e.getMessage());
+            log.error("数据一致性检查失败: runId={}, 错误: {}", run.runId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按主键区间二分，区间不超过chunkSize时直接执行检查SQL
+     */
+    private class ChunkTask extends RecursiveAction {
+        private final CheckRun run;
+        private final Check check;
+        private final long fromId;
+        private final long toId;
+
+        ChunkTask(CheckRun run, Check check, long fromId, long toId) {
+            this.run = run;
+            this.check = check;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected void compute() {
+            if (toId - fromId < chunkSize) {
+                checkChunk(run, check, fromId, toId);
+                return;
+            }
+            long middle = fromId + (toId - fromId) / 2;
+            invokeAll(new ChunkTask(run, check, fromId, middle), new ChunkTask(run, check, middle + 1, toId));
+        }
+    }
+
+    private void checkChunk(CheckRun run, Check check, long fromId, long toId) {
+        List<ConsistencyMismatch> found = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        // 每段一条SQL，在只读库上读到的是同一时刻的快照，复制延迟不会造成误报
+        readOnlyTransaction.executeWithoutResult(status -> checkJdbcTemplate.query(check.sql, rs -> {
+            ConsistencyMismatch mismatch = new ConsistencyMismatch();
+            mismatch.setRunId(run.runId);
+            mismatch.setCheckType(check.type);
+            mismatch.setEntityId(rs.getLong(1));
+            mismatch.setExpectedValue(rs.getString(2));
+            mismatch.setActualValue(rs.getString(3));
+            mismatch.setDetectedAt(now);
+            found.add(mismatch);
+        }, fromId, toId));
+
+        // 不一致记录在只读事务之外写入主库
+        if (!found.isEmpty()) {
+            mismatchRepository.saveAll(found);
+            run.mismatches.addAndGet(found.size());
+            log.warn("发现数据不一致: runId={}, 检查项={}, 主键区间=[{}, {}], 数量={}",
+                    run.runId, check.type, fromId, toId, found.size());
+        }
+        run.doneChunks.incrementAndGet();
+
+        if (throttleMillis > 0) {
+            try {
+                Thread.sleep(throttleMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        CheckRun run = currentRun.get();
+        if (run == null) {
+            status.put("status", "IDLE");
+            status.put("latestRunId", mismatchRepository.findLatestRunId());
+            return status;
+        }
+        status.put("runId", run.runId);
+        status.put("status", run.status);
+        status.put("startedAt", run.startedAt);
+        status.put("finishedAt", run.finishedAt);
+        status.put("totalChunks", run.totalChunks.get());
+        status.put("doneChunks", run.doneChunks.get());
+        status.put("mismatches", run.mismatches.get());
+        if (run.error != null) {
+            status.put("error", run.error);
+        }
+        return status;
+    }
+
+    @Override
+    public Page<ConsistencyMismatch> getMismatches(Long runId, String checkType, Integer page, Integer size) {
+        Long targetRunId = runId != null ? runId : mismatchRepository.findLatestRunId();
+        if (targetRunId == null) {
+            return Page.empty(PageRequest.of(page, size));
+        }
+        if (checkType != null && !checkType.isEmpty()) {
+            return mismatchRepository.findByRunIdAndCheckTypeOrderByIdAsc(targetRunId, checkType, PageRequest.of(page, size));
+        }
+        return mismatchRepository.findByRunIdOrderByIdAsc(targetRunId, PageRequest.of(page, size));
+    }
+
+    @Override
+    @Transactional
+    public int repairOrderAmounts(Long runId) {
+        Long targetRunId = runId != null ? runId : mismatchRepository.findLatestRunId();
+        if (targetRunId == null) {
+            return 0;
+        }
+        List<Long> orderIds = mismatchRepository.findEntityIds(targetRunId, ConsistencyMismatch.CHECK_ORDER_AMOUNT);
+        int repaired = 0;
+        for (int from = 0; from < orderIds.size(); from += chunkSize) {
+            List<Long> chunk = orderIds.subList(from, Math.min(from + chunkSize, orderIds.size()));
+            // 金额按修复时的订单商品重新计算，检查之后又有变化的订单也能得到正确结果
+            String placeholders = String.join(",", java.util.Collections.nCopies(chunk.size(), "?"));
+            Map<Long, Float> amounts = new HashMap<>();
+            checkJdbcTemplate.query(
+                    "SELECT o.id, COALESCE(SUM(og.total_price), 0) FROM orders o " +
+                    "LEFT JOIN order_goods og ON og.order_id = o.id WHERE o.id IN (" + placeholders + ") GROUP BY o.id",
+                    rs -> {
+                        amounts.put(rs.getLong(1), rs.getFloat(2));
+                    },
+                    chunk.toArray());
+            if (!amounts.isEmpty()) {
+                repaired += orderMapper.updateAmounts(amounts);
+            }
+        }
+        log.info("订单金额对账修复完成: runId={}, 不一致订单数={}, 修复数={}", targetRunId, orderIds.size(), repaired);
+        return repaired;
+    }
+
+    static class Check {
+        final String type;
+        final String table;
+        final String sql;
+
+        Check(String type, String table, String sql) {
+            this.type = type;
+            this.table = table;
+            this.sql = sql;
+        }
+    }
+
+    private static class CheckRun {
+        final Long runId;
+        final LocalDateTime startedAt = LocalDateTime.now();
+        final AtomicInteger totalChunks = new AtomicInteger();
+        final AtomicInteger doneChunks = new AtomicInteger();
+        final AtomicInteger mismatches = new AtomicInteger();
+        volatile String status = "RUNNING";
+        volatile LocalDateTime finishedAt;
+        volatile String error;
+
+        CheckRun(Long runId) {
+            this.runId = runId;
+        }
+
+        boolean isRunning() {
+            return "RUNNING".equals(status);
+        }
+
+        void finish(String finalStatus, String errorMessage) {
+            this.error = errorMessage;
+            this.finishedAt = LocalDateTime.now();
+            this.status = finalStatus;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.mogutou.erp.service.impl;
+
+import com.mogutou.erp.entity.FileBlob;
+import com.mogutou.erp.entity.FileReference;
+import com.mogutou.erp.repository.FileBlobRepository;
+import com.mogutou.erp.repository.FileReferenceRepository;
+import com.mogutou.erp.service.FileStorageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+public class FileStorageServiceImpl implements FileStorageService {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FileStorageServiceImpl.class);
+
+    private static final String BLOB_DIR = "blobs";
+    private static final String TEMP_DIR = "tmp";
+
+    @Autowired
+    private FileBlobRepository fileBlobRepository;
+
+    @Autowired
+    private FileReferenceRepository fileReferenceRepository;
+
+    @Value("${file.upload.path:uploads}")
+    private String uploadPath;
+
+    @Override
+    @Transactional
+    public FileReference store(MultipartFile file, String url) throws IOException {
+        // 临时文件与内容块放在同一目录下，保证可以原子移动
+        Path tempDir = Paths.get(uploadPath, TEMP_DIR);
+        Files.createDirectories(tempDir);
+        Path tempFile = tempDir.resolve(UUID.randomUUID() + ".part");
+
+        // 边写临时文件边计算摘要，不需要再读一遍
+        MessageDigest digest = newSha256();
+        long size;
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            size = Files.copy(in, tempFile);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+
+        // 按摘要前两级分片存放：blobs/ab/cd/abcd...
+        String storagePath = BLOB_DIR + "/" + sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256;
+        Path target = Paths.get(uploadPath, storagePath);
+        if (Files.exists(target)) {
+            Files.delete(tempFile);
+            log.info("文件内容已存在，复用内容块: sha256={}, url={}", sha256, url);
+        } else if (moveIntoStore(tempFile, target)) {
+            log.info("保存新内容块: sha256={}, size={}", sha256, size);
+            // 登记内容块的事务回滚时删除本次新建的文件，避免留下没有记录的孤儿内容块
+            deleteBlobOnRollback(sha256, target);
+        } else {
+            log.info("文件内容已由并发上传保存，复用内容块: sha256={}, url={}", sha256, url);
+        }
+
+        fileBlobRepository.upsertReference(sha256, size, file.getContentType(), storagePath);
+
+        FileReference reference = new FileReference();
+        reference.setUrl(url);
+        reference.setSha256(sha256);
+        reference.setOriginalFilename(file.getOriginalFilename());
+        return fileReferenceRepository.save(reference);
+    }
+
+    /**
+     * 把临时文件原子移动为内容块，返回是否由本次新建；目标已被并发上传创建时视为去重命中
+     */
+    private boolean moveIntoStore(Path tempFile, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(tempFile);
+            return false;
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+    }
+
+    private void deleteBlobOnRollback(String sha256, Path target) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                // 同一内容可能已由并发上传登记并提交，这时文件仍有引用，不能删除
+                if (fileBlobRepository.existsById(sha256)) {
+                    return;
+                }
+                try {
+                    Files.deleteIfExists(target);
+                    log.info("上传事务回滚，删除新建的内容块: sha256={}", sha256);
+                } catch (IOException e) {
+                    log.warn("删除孤儿内容块失败: sha256={}, 错误: {}", sha256, e.getMessage());
+                }
+            }
+        });
+    }
+
+    @Override
+    public Optional<FileReference> findByUrl(String url) {
+        return fileReferenceRepository.findByUrl(url);
+    }
+
+    @Override
+    public Optional<FileBlob> findBlob(String sha256) {
+        return fileBlobRepository.findById(sha256);
+    }
+
+    @Override
+    public Path resolveBlobPath(FileBlob blob) {
+        return Paths.get(uploadPath, blob.getStoragePath());
+    }
+
+    private MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.mogutou.erp.service.impl;
 
+import com.mogutou.erp.config.ReportingQuery;
 import com.mogutou.erp.entity.FinanceRecord;
+import com.mogutou.erp.mapper.FinanceRecordMapper;
 import com.mogutou.erp.repository.FinanceRecordRepository;
 import com.mogutou.erp.service.FinanceService;
 import com.mogutou.erp.service.OrderService;
@@ -11,30 +13,59 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import java.math.BigDecimal;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class FinanceServiceImpl implements FinanceService {
 
+    // 批量写入每批的条数
+    private static final int INSERT_BATCH_SIZE = 500;
+
     @Autowired
     private FinanceRecordRepository financeRecordRepository;
 
+    @Autowired
+    private FinanceRecordMapper financeRecordMapper;
+
     @Autowired
     @Lazy
     private OrderService orderService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
     
     @Override
+    @Transactional(readOnly = true)
     public List<FinanceRecord> getFinanceRecords(Date startDate, Date endDate) {
         return financeRecordRepository.findByRecordDateBetweenOrderByRecordDateAsc(startDate, endDate);
     }
     
     @Override
+    @Transactional(readOnly = true)
+    public void streamFinanceRecords(Date startDate, Date endDate, Consumer<FinanceRecord> consumer) {
+        try (Stream<FinanceRecord> records = financeRecordRepository.streamByRecordDateBetween(startDate, endDate)) {
+            records.forEach(record -> {
+                consumer.accept(record);
+                // 处理完立即脱离持久化上下文，避免一级缓存随行数增长
+                entityManager.detach(record);
+            });
+        }
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
     public Page<FinanceRecord> getFinanceRecordsPaged(Date startDate, Date endDate, Pageable pageable) {
         return financeRecordRepository.findByRecordDateBetween(startDate, endDate, pageable);
     }
     
     @Override
+    @ReportingQuery
+    @Transactional(readOnly = true)
     public Map<String, Object> getFinanceStatistics(Date startDate, Date endDate) {
         Map<String, Object> statistics = financeRecordRepository.getFinanceStatistics(startDate, endDate);
         
@@ -67,6 +98,28 @@ public class FinanceServiceImpl implements FinanceService {
         return financeRecordRepository.save(record);
     }
     
+    @Override
+    @Transactional
+    public int createFinanceRecords(List<FinanceRecord> records) {
+        if (records == null || records.isEmpty()) {
+            return 0;
+        }
+        // 不经过JPA，实体回调不会执行，这里补上创建时间和利润
+        Date now = new Date();
+        for (FinanceRecord record : records) {
+            if (record.getRecordDate() == null) {
+                throw new IllegalArgumentException("记录日期不能为空");
+            }
+            if (record.getCreatedAt() == null) {
+                record.setCreatedAt(now);
+            }
+            record.setUpdatedAt(now);
+            record.calculateProfit();
+        }
+        financeRecordMapper.insert(records, INSERT_BATCH_SIZE);
+        return records.size();
+    }
+    
     @Override
     @Transactional
     public FinanceRecord updateFinanceRecord(Long id, FinanceRecord record) {
@@ -96,6 +149,8 @@ public class FinanceServiceImpl implements FinanceService {
     }
     
     @Override
+    @ReportingQuery
+    @Transactional(readOnly = true)
     public Map<String, Object> getMonthlyFinanceData(int year) {
         // 创建包含12个月数据的结果
         Map<String, Object> result = new HashMap<>();
@@ -0,0 +1,208 @@
+package com.mogutou.erp.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mogutou.erp.entity.FileBlob;
+import com.mogutou.erp.entity.FileReference;
+import com.mogutou.erp.service.FileStorageService;
+import com.mogutou.erp.service.ImageVariantService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Optional;
+
+@Service
+public class ImageVariantServiceImpl implements ImageVariantService {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ImageVariantServiceImpl.class);
+
+    private static final String UPLOAD_URL_PREFIX = "/api/uploads/";
+
+    // 未命中缩略图的解析结果只缓存一段时间，期间缩略图生成后也能重新解析到
+    private static final Duration MISS_CACHE_TTL = Duration.ofSeconds(60);
+
+    // 解析结果缓存的最大条数，键为 URL@缩略图尺寸，最多是图片数的三倍
+    private static final long RESOLVED_CACHE_MAX_SIZE = 10_000;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    @Qualifier("imageVariantExecutor")
+    private TaskExecutor imageVariantExecutor;
+
+    // 缩略图生成后不会再变化，命中的解析结果长期缓存；未命中的短时间缓存，避免每次请求都查库
+    // 两者都有条数上限，不会随请求参数无限增长
+    private final Cache<String, String> resolvedUrlCache = Caffeine.newBuilder()
+            .maximumSize(RESOLVED_CACHE_MAX_SIZE)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+    private final Cache<String, Boolean> missedUrlCache = Caffeine.newBuilder()
+            .maximumSize(RESOLVED_CACHE_MAX_SIZE)
+            .expireAfterWrite(MISS_CACHE_TTL)
+            .build();
+
+    @Override
+    public void generateVariantsAsync(FileReference reference) {
+        imageVariantExecutor.execute(() -> {
+            try {
+                fileStorageService.findBlob(reference.getSha256()).ifPresent(this::generateVariants);
+                // 生成前缓存的未命中结果作废，下次请求重新解析到缩略图
+                evictResolved(reference.getUrl());
+            } catch (Exception e) {
+                log.error("生成缩略图失败: url={}, 错误: {}", reference.getUrl(), e.getMessage(), e);
+            }
+        });
+    }
+
+    private void generateVariants(FileBlob blob) {
+        Path original = fileStorageService.resolveBlobPath(blob);
+        BufferedImage source;
+        try {
+            source = ImageIO.read(original.toFile());
+        } catch (IOException e) {
+            log.warn("读取图片失败，跳过缩略图生成: sha256={}, 错误: {}", blob.getSha256(), e.getMessage());
+            return;
+        }
+        if (source == null) {
+            log.info("非图片文件，跳过缩略图生成: sha256={}", blob.getSha256());
+            return;
+        }
+
+        int longestSide = Math.max(source.getWidth(), source.getHeight());
+        for (int size : VARIANT_SIZES) {
+            // 不放大图片，原图已足够小的尺寸直接使用原图
+            if (size >= longestSide) {
+                break;
+            }
+            if (findVariant(blob, size).isPresent()) {
+                continue;
+            }
+            try {
+                writeVariant(source, original, size);
+            } catch (IOException e) {
+                log.error("写入缩略图失败: sha256={}, size={}, 错误: {}", blob.getSha256(), size, e.getMessage(), e);
+            }
+        }
+        log.info("缩略图生成完成: sha256={}, 原图尺寸={}x{}", blob.getSha256(), source.getWidth(), source.getHeight());
+    }
+
+    private void writeVariant(BufferedImage source, Path original, int size) throws IOException {
+        boolean hasAlpha = source.getColorModel().hasAlpha();
+        String format = hasAlpha ? "png" : "jpg";
+
+        double scale = (double) size / Math.max(source.getWidth(), source.getHeight());
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage scaled = new BufferedImage(width, height,
+                hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+
+        // 先写临时文件再原子移动，读取方不会看到写了一半的缩略图
+        Path target = variantPath(original, size, format);
+        Path temp = target.resolveSibling(target.getFileName() + ".part");
+        try {
+            ImageIO.write(scaled, format, temp.toFile());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public Optional<Path> findVariant(FileBlob blob, int size) {
+        Path original = fileStorageService.resolveBlobPath(blob);
+        for (String format : new String[]{"jpg", "png"}) {
+            Path path = variantPath(original, size, format);
+            if (Files.exists(path)) {
+                return Optional.of(path);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public String resolveVariantUrl(String url, int displaySize) {
+        if (url == null || !url.startsWith(UPLOAD_URL_PREFIX)) {
+            return url;
+        }
+        // 展示尺寸由客户端传入，先归到预设尺寸再作为缓存键；比最大缩略图还大时直接用原图
+        int variantSize = targetVariantSize(displaySize);
+        if (variantSize == 0) {
+            return url;
+        }
+        String cacheKey = url + "@" + variantSize;
+        String cached = resolvedUrlCache.getIfPresent(cacheKey);
+        if (cached != null) {
+            return cached;
+        }
+        if (missedUrlCache.getIfPresent(cacheKey) != null) {
+            return url;
+        }
+
+        String resolved = resolveFromStore(url, variantSize);
+        if (resolved.equals(url)) {
+            missedUrlCache.put(cacheKey, Boolean.TRUE);
+        } else {
+            resolvedUrlCache.put(cacheKey, resolved);
+        }
+        return resolved;
+    }
+
+    /**
+     * 不小于展示尺寸的最小预设尺寸；展示尺寸超过所有预设尺寸时返回0
+     */
+    private int targetVariantSize(int displaySize) {
+        for (int size : VARIANT_SIZES) {
+            if (size >= displaySize) {
+                return size;
+            }
+        }
+        return 0;
+    }
+
+    private String resolveFromStore(String url, int variantSize) {
+        Optional<FileBlob> blobOpt = fileStorageService.findByUrl(url)
+                .flatMap(reference -> fileStorageService.findBlob(reference.getSha256()));
+        if (blobOpt.isEmpty()) {
+            return url;
+        }
+        for (int size : VARIANT_SIZES) {
+            if (size >= variantSize && findVariant(blobOpt.get(), size).isPresent()) {
+                return url + "?w=" + size;
+            }
+        }
+        return url;
+    }
+
+    private void evictResolved(String url) {
+        if (url != null) {
+            for (int size : VARIANT_SIZES) {
+                missedUrlCache.invalidate(url + "@" + size);
+            }
+        }
+    }
+
+    private Path variantPath(Path original, int size, String format) {
+        return original.resolveSibling(original.getFileName() + "_" + size + "." + format);
+    }
+}
@@ -1,24 +1,81 @@
 package com.mogutou.erp.service.impl;
 
+import com.mogutou.erp.config.ErpMetrics;
+import com.mogutou.erp.config.ReportingQuery;
+import com.mogutou.erp.dto.StockMovementRequest;
+import com.mogutou.erp.entity.Goods;
 import com.mogutou.erp.entity.Inventory;
+import com.mogutou.erp.entity.InventoryStock;
+import com.mogutou.erp.entity.StockMovement;
 import com.mogutou.erp.repository.InventoryRepository;
 import com.mogutou.erp.service.InventoryService;
+import com.mogutou.erp.service.InventoryStockService;
+import com.mogutou.erp.service.StockLedgerService;
+import com.mogutou.erp.service.StockReservationService;
 import com.mogutou.erp.common.CodeGenerator;
+import com.mogutou.erp.event.InventoryChangedEvent;
+import com.mogutou.erp.event.LowStockEvent;
+import com.mogutou.erp.service.index.InventoryReadModel;
+import com.mogutou.erp.service.index.InventorySearchIndex;
+import com.mogutou.erp.service.index.InventoryValuationSummary;
+import com.mogutou.erp.service.index.ProductNameIndex;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import jakarta.persistence.EntityNotFoundException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 @Service
 public class InventoryServiceImpl implements InventoryService {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(InventoryServiceImpl.class);
 
     @Autowired
     private InventoryRepository inventoryRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ProductNameIndex productNameIndex;
+
+    @Autowired
+    private InventoryReadModel inventoryReadModel;
+
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
+    @Autowired
+    private InventorySearchIndex inventorySearchIndex;
+
+    @Autowired
+    private InventoryStockService inventoryStockService;
+
+    @Autowired
+    private InventoryValuationSummary inventoryValuationSummary;
+
+    @Autowired
+    private ErpMetrics erpMetrics;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
     @Override
     public Page<Inventory> getInventoryList(Integer page, Integer size) {
         Pageable pageable = PageRequest.of(page, size);
@@ -47,34 +104,60 @@ public class InventoryServiceImpl implements InventoryService {
             inventory.setProductCode(generatedCode);
         }
         
-        return inventoryRepository.save(inventory);
+        Inventory savedInventory = inventoryRepository.save(inventory);
+        recordMovement(savedInventory, savedInventory.getQuantity(), StockMovement.SOURCE_OPENING, null);
+        applyStock(savedInventory, savedInventory.getLocation(), savedInventory.getQuantity());
+        publishChanged(savedInventory);
+        return savedInventory;
     }
 
     @Override
     @Transactional
     public Inventory updateInventory(Inventory inventory) {
-        // 检查库存是否存在
-        if (!inventoryRepository.existsById(inventory.getId())) {
-            throw new EntityNotFoundException("库存不存在，ID: " + inventory.getId());
+        // 锁定并加载现有库存，只复制请求中给出的可编辑字段，不直接合并请求体
+        // 请求没有带goodsId时保留原有关联，避免编辑后库存与商品脱钩
+        Inventory existingInventory = lockInventory(inventory.getId());
+        Integer oldQuantity = existingInventory.getQuantity();
+        copyEditableFields(inventory, existingInventory);
+
+        // 编辑时直接改了数量的，按差额记一条调整流水
+        Inventory savedInventory = inventoryRepository.save(existingInventory);
+        if (oldQuantity != null && savedInventory.getQuantity() != null) {
+            recordMovement(savedInventory, savedInventory.getQuantity() - oldQuantity, StockMovement.SOURCE_ADJUST, null);
+            applyStock(savedInventory, savedInventory.getLocation(), savedInventory.getQuantity() - oldQuantity);
         }
-        return inventoryRepository.save(inventory);
+        publishChanged(savedInventory);
+        return savedInventory;
     }
 
     @Override
     @Transactional
     public void deleteInventory(Long id) {
-        // 检查库存是否存在
-        if (!inventoryRepository.existsById(id)) {
-            throw new EntityNotFoundException("库存不存在，ID: " + id);
-        }
+        // 先锁定库存行再删分仓库存，与出入库保持相同的加锁顺序（库存行 -> 分仓行）
+        lockInventory(id);
         inventoryRepository.deleteById(id);
+        inventoryStockService.deleteByInventoryId(id);
+        eventPublisher.publishEvent(InventoryChangedEvent.deleted(id));
     }
 
     @Override
     @Transactional
     public Inventory stockIn(Inventory inventoryData) {
-        // 获取现有库存
-        Inventory existingInventory = getInventoryById(inventoryData.getId());
+        Timer.Sample sample = Timer.start();
+        Throwable failure = null;
+        try {
+            return doStockIn(inventoryData);
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            erpMetrics.recordStock("in", sample, failure);
+        }
+    }
+
+    private Inventory doStockIn(Inventory inventoryData) {
+        // 锁定库存行后再计算新数量，并发出入库不会丢失更新，流水与数量保持一致
+        Inventory existingInventory = lockInventory(inventoryData.getId());
 
         // 增加库存数量
         int newQuantity = existingInventory.getQuantity() + inventoryData.getQuantity();
@@ -88,37 +171,300 @@ public class InventoryServiceImpl implements InventoryService {
             existingInventory.setLocation(inventoryData.getLocation());
         }
 
-        return inventoryRepository.save(existingInventory);
+        Inventory savedInventory = inventoryRepository.save(existingInventory);
+        recordMovement(savedInventory, inventoryData.getQuantity(), StockMovement.SOURCE_MANUAL, null);
+        applyStock(savedInventory, savedInventory.getLocation(), inventoryData.getQuantity());
+        publishChanged(savedInventory);
+        return savedInventory;
     }
 
     @Override
     @Transactional
     public Inventory stockOut(Inventory inventoryData) {
-        // 获取现有库存
-        Inventory existingInventory = getInventoryById(inventoryData.getId());
+        return stockOut(inventoryData, StockMovement.SOURCE_MANUAL, null);
+    }
+
+    @Override
+    @Transactional
+    public Inventory stockOut(Inventory inventoryData, String sourceType, Long sourceId) {
+        Timer.Sample sample = Timer.start();
+        Throwable failure = null;
+        try {
+            return doStockOut(inventoryData, sourceType, sourceId);
+        } catch (RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            erpMetrics.recordStock("out", sample, failure);
+        }
+    }
 
-        // 检查库存是否足够
-        if (existingInventory.getQuantity() < inventoryData.getQuantity()) {
-            throw new IllegalArgumentException("库存不足，当前库存: " + existingInventory.getQuantity());
+    private Inventory doStockOut(Inventory inventoryData, String sourceType, Long sourceId) {
+        // 锁定库存行后再检查和扣减，并发出库不会超卖
+        Inventory existingInventory = lockInventory(inventoryData.getId());
+
+        // 检查库存是否足够：只能动用未被订单预占的部分；订单确认时已先consume自己的预占，
+        // getReserved在本事务中不再计入，剩下的是其他订单的预占
+        int reserved = stockReservationService.getReserved(existingInventory.getId());
+        if (existingInventory.getQuantity() - reserved < inventoryData.getQuantity()) {
+            String message = "库存不足，当前库存: " + existingInventory.getQuantity();
+            throw new IllegalArgumentException(reserved > 0 ? message + ", 订单已预占: " + reserved : message);
         }
 
         // 减少库存数量
+        boolean wasLowStock = existingInventory.isLowStock();
         int newQuantity = existingInventory.getQuantity() - inventoryData.getQuantity();
         existingInventory.setQuantity(newQuantity);
 
-        return inventoryRepository.save(existingInventory);
+        Inventory savedInventory = inventoryRepository.save(existingInventory);
+        recordMovement(savedInventory, -inventoryData.getQuantity(), sourceType, sourceId);
+        // 请求中指定了仓库时优先从该仓库出库
+        applyStock(savedInventory, inventoryData.getLocation(), -inventoryData.getQuantity());
+        publishChanged(savedInventory);
+        publishLowStockIfCrossed(wasLowStock, savedInventory);
+        return savedInventory;
+    }
+
+    @Override
+    @Transactional
+    public List<Inventory> applyStockMovements(List<StockMovementRequest> movements) {
+        if (movements == null || movements.isEmpty()) {
+            throw new IllegalArgumentException("出入库明细不能为空");
+        }
+
+        // 商品编码统一换成库存ID，一次查询
+        Set<String> codes = new HashSet<>();
+        for (StockMovementRequest movement : movements) {
+            if (movement.getDelta() == null || movement.getDelta() == 0) {
+                throw new IllegalArgumentException("出入库数量不能为空或0");
+            }
+            if (movement.getId() == null) {
+                if (movement.getProductCode() == null || movement.getProductCode().trim().isEmpty()) {
+                    throw new IllegalArgumentException("库存ID和商品编码不能同时为空");
+                }
+                codes.add(movement.getProductCode());
+            }
+        }
+        Map<String, Long> idByCode = new HashMap<>();
+        if (!codes.isEmpty()) {
+            // product_code没有唯一约束，同一编码对应多条库存时无法确定调整哪一条，要求改用库存ID
+            Set<String> duplicateCodes = new TreeSet<>();
+            for (Object[] row : inventoryRepository.findIdsByProductCodeIn(codes)) {
+                Long previous = idByCode.put((String) row[0], (Long) row[1]);
+                if (previous != null && !previous.equals(row[1])) {
+                    duplicateCodes.add((String) row[0]);
+                }
+            }
+            if (!duplicateCodes.isEmpty()) {
+                throw new IllegalArgumentException("商品编码对应多条库存，请改用库存ID: " + duplicateCodes);
+            }
+        }
+
+        // 合并同一商品的多条明细，TreeMap保证后续按ID升序处理；分仓数量按仓库单独合并
+        Map<Long, StockMovementRequest> merged = new TreeMap<>();
+        Map<Long, Map<String, Integer>> locationDeltas = new HashMap<>();
+        for (StockMovementRequest movement : movements) {
+            Long id = movement.getId() != null ? movement.getId() : idByCode.get(movement.getProductCode());
+            if (id == null) {
+                throw new EntityNotFoundException("库存不存在，商品编码: " + movement.getProductCode());
+            }
+            StockMovementRequest total = merged.computeIfAbsent(id, k -> new StockMovementRequest(k, null, 0));
+            total.setDelta(total.getDelta() + movement.getDelta());
+            locationDeltas.computeIfAbsent(id, k -> new LinkedHashMap<>())
+                    .merge(movement.getLocation() != null ? movement.getLocation() : "", movement.getDelta(), Integer::sum);
+            if (movement.getUnitPrice() != null) {
+                total.setUnitPrice(movement.getUnitPrice());
+            }
+            if (movement.getLocation() != null) {
+                total.setLocation(movement.getLocation());
+            }
+        }
+
+        // 按ID升序加行锁，并发的批次以相同顺序加锁，不会互相死锁
+        List<Inventory> locked = inventoryRepository.findAllByIdInForUpdate(merged.keySet());
+        if (locked.size() != merged.size()) {
+            Set<Long> missing = new TreeSet<>(merged.keySet());
+            locked.forEach(inventory -> missing.remove(inventory.getId()));
+            throw new EntityNotFoundException("库存不存在，ID: " + missing);
+        }
+
+        List<Inventory> lowStockCrossed = new ArrayList<>();
+        for (Inventory inventory : locked) {
+            StockMovementRequest movement = merged.get(inventory.getId());
+            int newQuantity = inventory.getQuantity() + movement.getDelta();
+            // 出库不能动用订单已预占的库存
+            int reserved = movement.getDelta() < 0 ? stockReservationService.getReserved(inventory.getId()) : 0;
+            if (newQuantity < reserved) {
+                String message = "库存不足，商品: " + inventory.getProductName()
+                        + ", 当前库存: " + inventory.getQuantity() + ", 需要: " + (-movement.getDelta());
+                throw new IllegalArgumentException(reserved > 0 ? message + ", 订单已预占: " + reserved : message);
+            }
+            boolean wasLowStock = inventory.isLowStock();
+            inventory.setQuantity(newQuantity);
+            if (movement.getUnitPrice() != null) {
+                inventory.setUnitPrice(movement.getUnitPrice());
+            }
+            if (movement.getLocation() != null) {
+                inventory.setLocation(movement.getLocation());
+            }
+            if (!wasLowStock && inventory.isLowStock()) {
+                lowStockCrossed.add(inventory);
+            }
+        }
+
+        // 行已被锁定且处于托管状态，提交时统一刷新，由JDBC批量执行UPDATE
+        List<Inventory> saved = inventoryRepository.saveAll(locked);
+        for (Inventory inventory : saved) {
+            recordMovement(inventory, merged.get(inventory.getId()).getDelta(), StockMovement.SOURCE_BATCH, null);
+            // 同一商品先入后出，避免入库仓库的数量还没加上就出库
+            Map<String, Integer> byLocation = locationDeltas.get(inventory.getId());
+            byLocation.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .forEach(entry -> applyStock(inventory,
+                            entry.getKey().isEmpty() ? inventory.getLocation() : entry.getKey(), entry.getValue()));
+            publishChanged(inventory);
+        }
+        lowStockCrossed.forEach(inventory -> publishLowStockIfCrossed(false, inventory));
+        log.info("批量出入库完成: 明细数={}, 合并后商品数={}", movements.size(), saved.size());
+        return saved;
+    }
+
+    /**
+     * 编辑库存时可修改的字段，请求中为null的字段保持原值
+     */
+    private void copyEditableFields(Inventory source, Inventory target) {
+        if (source.getGoodsId() != null) {
+            target.setGoodsId(source.getGoodsId());
+        }
+        if (source.getProductName() != null) {
+            target.setProductName(source.getProductName());
+        }
+        if (source.getProductCode() != null) {
+            target.setProductCode(source.getProductCode());
+        }
+        if (source.getQuantity() != null) {
+            target.setQuantity(source.getQuantity());
+        }
+        if (source.getUnit() != null) {
+            target.setUnit(source.getUnit());
+        }
+        if (source.getUnitPrice() != null) {
+            target.setUnitPrice(source.getUnitPrice());
+        }
+        if (source.getLocation() != null) {
+            target.setLocation(source.getLocation());
+        }
+        if (source.getCategory() != null) {
+            target.setCategory(source.getCategory());
+        }
+        if (source.getDescription() != null) {
+            target.setDescription(source.getDescription());
+        }
+        if (source.getWarningThreshold() != null) {
+            target.setWarningThreshold(source.getWarningThreshold());
+        }
+    }
+
+    /**
+     * 锁定库存行（SELECT ... FOR UPDATE），锁持有到事务结束
+     * 所有修改库存的路径都先锁库存行，再由分仓服务锁分仓行，加锁顺序固定，
+     * 库存总数和分仓合计在同一把行锁下修改，不会互相漂移
+     */
+    private Inventory lockInventory(Long id) {
+        return inventoryRepository.findByIdForUpdate(id)
+                .orElseThrow(() -> new EntityNotFoundException("库存不存在，ID: " + id));
+    }
+
+    /**
+     * 同步分仓库存，location为空时使用默认仓库
+     */
+    private void applyStock(Inventory inventory, String location, Integer delta) {
+        if (inventory != null && inventory.getId() != null && delta != null) {
+            inventoryStockService.apply(inventory.getId(), location, delta);
+        }
+    }
+
+    /**
+     * 追加库存流水，与库存更新在同一事务中提交
+     */
+    private void recordMovement(Inventory inventory, Integer delta, String sourceType, Long sourceId) {
+        if (inventory != null && inventory.getId() != null && delta != null) {
+            stockLedgerService.record(inventory.getId(), delta, sourceType, sourceId);
+        }
+    }
+
+    /**
+     * 发布库存变更事件，内存索引在事务提交后同步
+     */
+    private void publishChanged(Inventory inventory) {
+        if (inventory != null && inventory.getId() != null) {
+            eventPublisher.publishEvent(InventoryChangedEvent.saved(inventory));
+        }
+    }
+
+    /**
+     * 库存从正常变为低库存时发布预警事件，已处于低库存的商品不重复预警
+     */
+    private void publishLowStockIfCrossed(boolean wasLowStock, Inventory inventory) {
+        if (!wasLowStock && inventory.isLowStock()) {
+            eventPublisher.publishEvent(new LowStockEvent(inventory.getId(), inventory.getProductName(),
+                    inventory.getProductCode(), inventory.getQuantity(), inventory.getWarningThreshold()));
+        }
+    }
+
+    /**
+     * 只读查询，优先走内存读模型；读模型尚未加载时回退到数据库
+     * 返回的是快照副本，需要修改并保存的场景请直接查库
+     */
+    @Override
+    public Inventory findByGoods(Goods goods) {
+        if (goods.getId() != null) {
+            Inventory inventory = inventoryReadModel.isLoaded()
+                    ? inventoryReadModel.findByGoodsId(goods.getId()).orElse(null)
+                    : inventoryRepository.findByGoodsId(goods.getId()).orElse(null);
+            if (inventory != null) {
+                return inventory;
+            }
+        }
+        // 尚未关联商品ID的旧库存按名称查找
+        Inventory inventory = findByProductName(goods.getName());
+        return inventory != null && inventory.getGoodsId() == null ? inventory : null;
     }
 
     @Override
     public Inventory findByProductName(String productName) {
+        // 同名库存有多条时读模型无法确定是哪一条，交给数据库查询
+        if (inventoryReadModel.isLoaded() && !inventoryReadModel.isAmbiguousName(productName)) {
+            return inventoryReadModel.findByProductName(productName).orElse(null);
+        }
         return inventoryRepository.findByProductName(productName).orElse(null);
     }
 
     @Override
     @Transactional
     public Inventory createOrUpdateInventoryFromGoods(String productName, String productCode, Integer quantity, Double unitPrice) {
-        // 先查找是否已存在该商品的库存
-        Inventory existingInventory = findByProductName(productName);
+        return createOrUpdate(null, productName, productCode, quantity, unitPrice, StockMovement.SOURCE_MANUAL, null);
+    }
+
+    @Override
+    @Transactional
+    public Inventory createOrUpdateInventoryForGoods(Goods goods, Integer quantity, Double unitPrice,
+                                                     String sourceType, Long sourceId) {
+        return createOrUpdate(goods.getId(), goods.getName(), goods.getCode(), quantity, unitPrice, sourceType, sourceId);
+    }
+
+    private Inventory createOrUpdate(Long goodsId, String productName, String productCode, Integer quantity, Double unitPrice,
+                                     String sourceType, Long sourceId) {
+        // 先查找是否已存在该商品的库存（要在当前事务中修改，直接查库并锁定该行）
+        Long existingId = goodsId != null ? inventoryRepository.findIdByGoodsId(goodsId).orElse(null) : null;
+        if (existingId == null) {
+            // 尚未关联商品ID的旧库存按名称匹配，匹配到后补上关联
+            existingId = inventoryRepository.findByProductName(productName)
+                    .filter(inventory -> inventory.getGoodsId() == null || inventory.getGoodsId().equals(goodsId))
+                    .map(Inventory::getId)
+                    .orElse(null);
+        }
+        Inventory existingInventory = existingId != null ? inventoryRepository.findByIdForUpdate(existingId).orElse(null) : null;
 
         if (existingInventory != null) {
             // 如果已存在，更新数量
@@ -126,10 +472,18 @@ public class InventoryServiceImpl implements InventoryService {
             if (unitPrice != null) {
                 existingInventory.setUnitPrice(unitPrice);
             }
-            return inventoryRepository.save(existingInventory);
+            if (goodsId != null && existingInventory.getGoodsId() == null) {
+                existingInventory.setGoodsId(goodsId);
+            }
+            Inventory savedInventory = inventoryRepository.save(existingInventory);
+            recordMovement(savedInventory, quantity, sourceType, sourceId);
+            applyStock(savedInventory, savedInventory.getLocation(), quantity);
+            publishChanged(savedInventory);
+            return savedInventory;
         } else {
             // 如果不存在，创建新的库存记录
             Inventory newInventory = new Inventory();
+            newInventory.setGoodsId(goodsId);
             newInventory.setProductName(productName);
             
             // 如果没有提供编码或编码为空，自动生成
@@ -142,14 +496,126 @@ public class InventoryServiceImpl implements InventoryService {
             newInventory.setQuantity(quantity);
             newInventory.setUnitPrice(unitPrice);
             newInventory.setUnit("个"); // 默认单位
-            newInventory.setLocation("默认仓库"); // 默认位置
+            newInventory.setLocation(InventoryStock.DEFAULT_LOCATION); // 默认位置
             // newInventory.setWarningThreshold(5); // 默认预警阈值 - 暂时注释掉
-            return inventoryRepository.save(newInventory);
+            Inventory savedInventory = inventoryRepository.save(newInventory);
+            recordMovement(savedInventory, quantity, sourceType, sourceId);
+            applyStock(savedInventory, savedInventory.getLocation(), quantity);
+            publishChanged(savedInventory);
+            return savedInventory;
         }
     }
 
+    @Override
+    public Page<Inventory> getLowStockList(Integer page, Integer size) {
+        Pageable pageable = PageRequest.of(page, size);
+        return inventoryRepository.findLowStock(pageable);
+    }
+
     @Override
     public java.util.List<String> getAllProductNames() {
         return inventoryRepository.findAllDistinctProductNames();
     }
-}
\ No newline at end of file
+
+    @Override
+    public java.util.List<String> searchProductNames(String prefix, int limit) {
+        return productNameIndex.search(prefix, limit);
+    }
+
+    @Override
+    public Page<Inventory> searchInventory(String keyword, String name, String code, String category,
+                                           Integer page, Integer size) {
+        Map<String, String> criteria = new HashMap<>();
+        criteria.put(null, keyword);
+        criteria.put(InventorySearchIndex.FIELD_NAME, name);
+        criteria.put(InventorySearchIndex.FIELD_CODE, code);
+        criteria.put(InventorySearchIndex.FIELD_CATEGORY, category);
+        List<Long> rankedIds = inventorySearchIndex.search(criteria);
+
+        Pageable pageable = PageRequest.of(page, size);
+        int from = (int) Math.min(pageable.getOffset(), rankedIds.size());
+        int to = Math.min(from + size, rankedIds.size());
+        List<Long> pageIds = rankedIds.subList(from, to);
+
+        // 只加载当前页，按索引给出的排名排序
+        Map<Long, Inventory> loaded = new HashMap<>();
+        inventoryRepository.findAllById(pageIds).forEach(inventory -> loaded.put(inventory.getId(), inventory));
+        List<Inventory> content = new ArrayList<>();
+        for (Long id : pageIds) {
+            Inventory inventory = loaded.get(id);
+            if (inventory != null) {
+                content.add(inventory);
+            }
+        }
+        return new PageImpl<>(content, pageable, rankedIds.size());
+    }
+
+    @Override
+    @ReportingQuery
+    @Transactional(readOnly = true)
+    public Map<String, Object> getValuation() {
+        // 分类维度按库存行汇总，仓库维度按分仓库存行汇总，两组分组结果都只有几十行
+        Map<String, ValuationTotals> byCategory = new TreeMap<>();
+        Map<String, ValuationTotals> byLocation = new TreeMap<>();
+        ValuationTotals total = new ValuationTotals();
+        for (Object[] row : inventoryRepository.sumValuationByCategory()) {
+            String category = row[0] == null || ((String) row[0]).trim().isEmpty()
+                    ? InventoryValuationSummary.UNCATEGORIZED : (String) row[0];
+            long productCount = ((Number) row[1]).longValue();
+            long quantity = ((Number) row[2]).longValue();
+            BigDecimal value = BigDecimal.valueOf(((Number) row[3]).doubleValue());
+            byCategory.computeIfAbsent(category, k -> new ValuationTotals()).add(productCount, quantity, value);
+            total.add(productCount, quantity, value);
+        }
+        for (Object[] row : inventoryRepository.sumValuationByLocation()) {
+            String location = row[0] == null || ((String) row[0]).trim().isEmpty()
+                    ? InventoryStock.DEFAULT_LOCATION : (String) row[0];
+            long productCount = ((Number) row[1]).longValue();
+            long quantity = ((Number) row[2]).longValue();
+            BigDecimal value = BigDecimal.valueOf(((Number) row[3]).doubleValue());
+            byLocation.computeIfAbsent(location, k -> new ValuationTotals()).add(productCount, quantity, value);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("productCount", total.productCount);
+        result.put("totalQuantity", total.quantity);
+        result.put("totalValue", total.value.setScale(2, RoundingMode.HALF_UP));
+        result.put("byCategory", toValuationList("category", byCategory));
+        result.put("byLocation", toValuationList("location", byLocation));
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Map<String, Object>> getCategoryValuation() {
+        if (inventoryValuationSummary.isLoaded()) {
+            return inventoryValuationSummary.getCategoryTotals();
+        }
+        return (List<Map<String, Object>>) getValuation().get("byCategory");
+    }
+
+    private List<Map<String, Object>> toValuationList(String keyName, Map<String, ValuationTotals> totals) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, ValuationTotals> entry : totals.entrySet()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put(keyName, entry.getKey());
+            item.put("productCount", entry.getValue().productCount);
+            item.put("quantity", entry.getValue().quantity);
+            item.put("value", entry.getValue().value.setScale(2, RoundingMode.HALF_UP));
+            result.add(item);
+        }
+        return result;
+    }
+
+    private static class ValuationTotals {
+        long productCount;
+        long quantity;
+        BigDecimal value = BigDecimal.ZERO;
+
+        void add(long productCount, long quantity, BigDecimal value) {
+            this.productCount += productCount;
+            this.quantity += quantity;
+            this.value = this.value.add(value);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.mogutou.erp.service.impl;
+
+import com.mogutou.erp.entity.InventoryStock;
+import com.mogutou.erp.repository.InventoryStockRepository;
+import com.mogutou.erp.service.InventoryStockService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class InventoryStockServiceImpl implements InventoryStockService {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(InventoryStockServiceImpl.class);
+
+    @Autowired
+    private InventoryStockRepository inventoryStockRepository;
+
+    /**
+     * 启用分仓前已有的库存按原location字段生成分仓行
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void seedFromInventory() {
+        int seeded = inventoryStockRepository.seedFromInventory();
+        if (seeded > 0) {
+            log.info("根据现有库存生成分仓库存: {}条", seeded);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void apply(Long inventoryId, String location, int delta) {
+        if (inventoryId == null || delta == 0) {
+            return;
+        }
+        if (delta < 0) {
+            allocateOut(inventoryId, location, -delta);
+            return;
+        }
+        String target = normalizeLocation(location);
+        InventoryStock stock = inventoryStockRepository.findByInventoryIdAndLocationForUpdate(inventoryId, target)
+                .orElseGet(() -> {
+                    InventoryStock created = new InventoryStock();
+                    created.setInventoryId(inventoryId);
+                    created.setLocation(target);
+                    created.setQuantity(0);
+                    return created;
+                });
+        stock.setQuantity(stock.getQuantity() + delta);
+        inventoryStockRepository.save(stock);
+    }
+
+    @Override
+    @Transactional
+    public Map<String, Integer> allocateOut(Long inventoryId, String preferredLocation, int quantity) {
+        List<InventoryStock> stocks = inventoryStockRepository.findByInventoryIdForUpdate(inventoryId);
+
+        // 分配顺序：指定仓库优先，其余按库存从多到少，尽量少拆分
+        String preferred = preferredLocation == null || preferredLocation.trim().isEmpty() ? null : preferredLocation.trim();
+        List<InventoryStock> ordered = new ArrayList<>(stocks);
+        ordered.sort(Comparator.comparing((InventoryStock s) -> !s.getLocation().equals(preferred))
+                .thenComparing(InventoryStock::getQuantity, Comparator.reverseOrder()));
+
+        int available = stocks.stream().mapToInt(InventoryStock::getQuantity).sum();
+        if (available < quantity) {
+            throw new IllegalArgumentException("分仓库存不足，当前合计: " + available + ", 需要: " + quantity);
+        }
+
+        Map<String, Integer> allocation = new LinkedHashMap<>();
+        int remaining = quantity;
+        for (InventoryStock stock : ordered) {
+            if (remaining == 0) {
+                break;
+            }
+            int taken = Math.min(stock.getQuantity(), remaining);
+            if (taken <= 0) {
+                continue;
+            }
+            stock.setQuantity(stock.getQuantity() - taken);
+            remaining -= taken;
+            allocation.put(stock.getLocation(), taken);
+        }
+        inventoryStockRepository.saveAll(stocks);
+        return allocation;
+    }
+
+    @Override
+    public List<InventoryStock> getStocks(Long inventoryId) {
+        return inventoryStockRepository.findByInventoryIdOrderByLocationAsc(inventoryId);
+    }
+
+    @Override
+    @Transactional
+    public void deleteByInventoryId(Long inventoryId) {
+        inventoryStockRepository.deleteByInventoryId(inventoryId);
+    }
+
+    /**
+     * 合计在数据库中按仓库GROUP BY完成，只有需要商品明细时才再按商品聚合一次；
+     * 两个查询在同一个只读事务中执行，读到的是同一个快照
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> rollup(boolean includeProducts) {
+        long start = System.currentTimeMillis();
+        Map<String, Long> locationTotals = new LinkedHashMap<>();
+        long total = 0;
+        for (Object[] row : inventoryStockRepository.sumQuantityByLocation()) {
+            long quantity = ((Number) row[1]).longValue();
+            locationTotals.put((String) row[0], quantity);
+            total += quantity;
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("locations", locationTotals);
+        result.put("total", total);
+        if (includeProducts) {
+            Map<Long, Long> productTotals = new HashMap<>();
+            for (Object[] row : inventoryStockRepository.sumQuantityByInventory()) {
+                productTotals.put((Long) row[0], ((Number) row[1]).longValue());
+            }
+            result.put("products", productTotals);
+        }
+        log.info("跨仓库存汇总完成: 仓库数={}, 总库存={}, 耗时={}ms", locationTotals.size(), total, System.currentTimeMillis() - start);
+        return result;
+    }
+
+    private String normalizeLocation(String location) {
+        return location == null || location.trim().isEmpty() ? InventoryStock.DEFAULT_LOCATION : location.trim();
+    }
+}
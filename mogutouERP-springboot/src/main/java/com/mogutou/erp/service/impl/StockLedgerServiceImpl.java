@@ -0,0 +1,91 @@
+package com.mogutou.erp.service.impl;
+
+import com.mogutou.erp.entity.StockMovement;
+import com.mogutou.erp.entity.StockSnapshot;
+import com.mogutou.erp.repository.StockMovementRepository;
+import com.mogutou.erp.repository.StockSnapshotRepository;
+import com.mogutou.erp.service.StockLedgerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Service
+public class StockLedgerServiceImpl implements StockLedgerService {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StockLedgerServiceImpl.class);
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
+    @Autowired
+    private StockSnapshotRepository stockSnapshotRepository;
+
+    // 只压缩早于该时间的流水：自增ID在事务提交前就已分配，
+    // 留出余量，避免把尚未提交、ID更小的流水漏在快照之外
+    @Value("${stock.snapshot.settle-minutes:5}")
+    private long settleMinutes;
+
+    /**
+     * 启用流水前已有的库存补记期初流水，保证“快照 + 流水”与当前库存一致
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void seedOpeningMovements() {
+        int seeded = stockMovementRepository.insertOpeningMovements();
+        if (seeded > 0) {
+            log.info("补记期初库存流水: {}条", seeded);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void record(Long inventoryId, int delta, String sourceType, Long sourceId) {
+        if (inventoryId == null || delta == 0) {
+            return;
+        }
+        StockMovement movement = new StockMovement();
+        movement.setInventoryId(inventoryId);
+        movement.setDelta(delta);
+        movement.setSourceType(sourceType);
+        movement.setSourceId(sourceId);
+        stockMovementRepository.save(movement);
+    }
+
+    @Override
+    public Page<StockMovement> getMovements(Long inventoryId, Integer page, Integer size) {
+        return stockMovementRepository.findByInventoryIdOrderByIdDesc(inventoryId, PageRequest.of(page, size));
+    }
+
+    @Override
+    public int getQuantityAt(Long inventoryId, LocalDateTime time) {
+        Optional<StockSnapshot> snapshot = stockSnapshotRepository
+                .findFirstByInventoryIdAndSnapshotAtLessThanEqualOrderByLastMovementIdDesc(inventoryId, time);
+        int base = snapshot.map(StockSnapshot::getQuantity).orElse(0);
+        long afterId = snapshot.map(StockSnapshot::getLastMovementId).orElse(0L);
+        Long tail = stockMovementRepository.sumDeltaAfter(inventoryId, afterId, time);
+        return base + (tail != null ? tail.intValue() : 0);
+    }
+
+    @Override
+    @Scheduled(cron = "${stock.snapshot.cron:0 15 * * * *}")
+    @Transactional
+    public int compactSnapshots() {
+        Long upToId = stockMovementRepository.findMaxIdCreatedBefore(LocalDateTime.now().minusMinutes(settleMinutes));
+        if (upToId == null) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        int created = stockSnapshotRepository.compactUpTo(upToId);
+        log.info("库存快照压缩完成: 新快照{}条, 流水上界ID={}, 耗时={}ms",
+                created, upToId, System.currentTimeMillis() - start);
+        return created;
+    }
+}
@@ -0,0 +1,246 @@
+package com.mogutou.erp.service.impl;
+
+import com.mogutou.erp.entity.StockReservation;
+import com.mogutou.erp.repository.InventoryRepository;
+import com.mogutou.erp.repository.StockReservationRepository;
+import com.mogutou.erp.service.StockReservationService;
+import com.mogutou.erp.service.index.InventoryReadModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class StockReservationServiceImpl implements StockReservationService {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StockReservationServiceImpl.class);
+
+    // 每次过期清理处理的条数
+    private static final int EXPIRE_BATCH_SIZE = 500;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryReadModel inventoryReadModel;
+
+    @Value("${stock.reservation.ttl-minutes:30}")
+    private long ttlMinutes;
+
+    // 库存ID -> 有效预占合计，预占的检查和累加在compute中原子完成
+    private final Map<Long, Integer> reserved = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        reserved.clear();
+        for (Object[] row : stockReservationRepository.sumActiveByInventory()) {
+            reserved.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        log.info("库存预占计数加载完成: 商品数={}", reserved.size());
+    }
+
+    @Override
+    @Transactional
+    public void reserve(Long orderId, Map<Long, Integer> quantities) {
+        // 按库存ID顺序预占，失败时撤销已加上的计数
+        Map<Long, Integer> applied = new TreeMap<>();
+        try {
+            for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+                Long inventoryId = entry.getKey();
+                int quantity = entry.getValue();
+                if (quantity <= 0) {
+                    continue;
+                }
+                int onHand = lockedQuantity(inventoryId);
+                reserved.compute(inventoryId, (id, current) -> {
+                    int alreadyReserved = current == null ? 0 : current;
+                    if (onHand - alreadyReserved < quantity) {
+                        throw new IllegalArgumentException("库存不足，库存ID: " + id +
+                                ", 可用: " + (onHand - alreadyReserved) + ", 需要: " + quantity);
+                    }
+                    return alreadyReserved + quantity;
+                });
+                applied.put(inventoryId, quantity);
+            }
+        } catch (RuntimeException e) {
+            applied.forEach(this::decrement);
+            throw e;
+        }
+        if (applied.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(ttlMinutes);
+        List<StockReservation> reservations = new ArrayList<>();
+        for (Map.Entry<Long, Integer> entry : applied.entrySet()) {
+            StockReservation reservation = new StockReservation();
+            reservation.setOrderId(orderId);
+            reservation.setInventoryId(entry.getKey());
+            reservation.setQuantity(entry.getValue());
+            reservation.setStatus(StockReservation.STATUS_ACTIVE);
+            reservation.setExpiresAt(expiresAt);
+            reservations.add(reservation);
+        }
+        stockReservationRepository.saveAll(reservations);
+
+        // 订单事务回滚时预占记录不会落库，内存计数也要撤销
+        onRollback(() -> applied.forEach(this::decrement));
+        log.info("订单预占库存: orderId={}, 明细={}, 到期时间={}", orderId, applied, expiresAt);
+    }
+
+    @Override
+    @Transactional
+    public Map<Long, Integer> consume(Long orderId) {
+        return finish(orderId, StockReservation.STATUS_CONSUMED);
+    }
+
+    @Override
+    @Transactional
+    public void release(Long orderId) {
+        finish(orderId, StockReservation.STATUS_RELEASED);
+    }
+
+    @Override
+    public int getAvailableToPromise(Long inventoryId) {
+        return onHand(inventoryId) - getReserved(inventoryId);
+    }
+
+    @Override
+    public int getReserved(Long inventoryId) {
+        int total = reserved.getOrDefault(inventoryId, 0);
+        Map<Long, Integer> finished = finishedInTransaction(false);
+        return finished == null ? total : Math.max(0, total - finished.getOrDefault(inventoryId, 0));
+    }
+
+    @Override
+    @Scheduled(cron = "${stock.reservation.sweep-cron:0 * * * * *}")
+    @Transactional
+    public int expireOverdue() {
+        List<StockReservation> expired = stockReservationRepository.findExpiredForUpdate(
+                LocalDateTime.now(), PageRequest.of(0, EXPIRE_BATCH_SIZE));
+        if (expired.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Integer> returned = new LinkedHashMap<>();
+        for (StockReservation reservation : expired) {
+            reservation.setStatus(StockReservation.STATUS_EXPIRED);
+            returned.merge(reservation.getInventoryId(), reservation.getQuantity(), Integer::sum);
+        }
+        stockReservationRepository.saveAll(expired);
+        afterCommit(() -> returned.forEach(this::decrement));
+        log.info("过期库存预占已释放: {}条", expired.size());
+        return expired.size();
+    }
+
+    /**
+     * 结束订单的有效预占；计数在提交后扣减，确认订单时此时库存数量也已同步减少，可承诺量不变
+     */
+    private Map<Long, Integer> finish(Long orderId, String status) {
+        List<StockReservation> reservations = stockReservationRepository.findActiveByOrderIdForUpdate(orderId);
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        if (reservations.isEmpty()) {
+            return quantities;
+        }
+        for (StockReservation reservation : reservations) {
+            reservation.setStatus(status);
+            quantities.merge(reservation.getInventoryId(), reservation.getQuantity(), Integer::sum);
+        }
+        stockReservationRepository.saveAll(reservations);
+        Map<Long, Integer> finished = finishedInTransaction(true);
+        if (finished != null) {
+            quantities.forEach((id, quantity) -> finished.merge(id, quantity, Integer::sum));
+        }
+        afterCommit(() -> quantities.forEach(this::decrement));
+        log.info("订单库存预占结束: orderId={}, 状态={}, 明细={}", orderId, status, quantities);
+        return quantities;
+    }
+
+    /**
+     * 当前事务中已结束、计数还没扣减的预占（库存ID -> 数量），没有事务时返回null
+     * 订单确认时先consume再出库，出库检查时自己的预占不能再算作被占用，其他订单的预占仍然要算
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Long, Integer> finishedInTransaction(boolean create) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        Map<Long, Integer> finished = (Map<Long, Integer>) TransactionSynchronizationManager.getResource(this);
+        if (finished == null && create) {
+            Map<Long, Integer> created = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, created);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(StockReservationServiceImpl.this);
+                }
+            });
+            finished = created;
+        }
+        return finished;
+    }
+
+    /**
+     * 预占时锁定库存行再读数量，和出库的行锁互斥，不会按过期的数量预占
+     */
+    private int lockedQuantity(Long inventoryId) {
+        return inventoryRepository.findByIdForUpdate(inventoryId)
+                .map(i -> i.getQuantity() == null ? 0 : i.getQuantity())
+                .orElse(0);
+    }
+
+    private int onHand(Long inventoryId) {
+        if (inventoryReadModel.isLoaded()) {
+            return inventoryReadModel.findById(inventoryId).map(i -> i.getQuantity() == null ? 0 : i.getQuantity()).orElse(0);
+        }
+        Integer quantity = inventoryRepository.findQuantityById(inventoryId);
+        return quantity == null ? 0 : quantity;
+    }
+
+    private void decrement(Long inventoryId, Integer quantity) {
+        reserved.computeIfPresent(inventoryId, (id, current) -> current - quantity <= 0 ? null : current - quantity);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,78 @@
+package com.mogutou.erp.service.index;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存索引的事件序号表：按库存ID记录最后应用的InventoryChangedEvent序号，丢弃乱序到达的旧事件
+ * 现存记录的序号随记录保存，删除后只保留一段时间的墓碑，挡住删除前产生、提交后才执行到的旧快照；
+ * 库存ID不会复用，墓碑过期后即可丢弃，已删除的ID不会一直占用内存
+ * 调用方负责同步（各索引的put/remove方法已加锁）
+ */
+class EventVersions {
+
+    // 提交后的监听器在提交后立即执行，乱序只发生在很短的时间内，墓碑保留几分钟足够
+    static final Duration TOMBSTONE_TTL = Duration.ofMinutes(5);
+
+    // 库存ID -> 最后应用的事件序号（现存记录）
+    private final Map<Long, Long> live = new ConcurrentHashMap<>();
+
+    // 库存ID -> 删除事件的序号
+    private final Cache<Long, Long> tombstones;
+
+    EventVersions() {
+        this(Ticker.systemTicker());
+    }
+
+    EventVersions(Ticker ticker) {
+        this.tombstones = Caffeine.newBuilder()
+                .expireAfterWrite(TOMBSTONE_TTL)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * 保存事件比已应用的事件新时记下序号并返回true，否则返回false
+     */
+    boolean applySaved(Long id, long version) {
+        if (!isNewer(id, version)) {
+            return false;
+        }
+        live.put(id, version);
+        tombstones.invalidate(id);
+        return true;
+    }
+
+    /**
+     * 删除事件比已应用的事件新时改记为墓碑并返回true，否则返回false
+     */
+    boolean applyDeleted(Long id, long version) {
+        if (!isNewer(id, version)) {
+            return false;
+        }
+        live.remove(id);
+        tombstones.put(id, version);
+        return true;
+    }
+
+    /**
+     * 当前记录的序号条数（现存记录 + 未过期的墓碑）
+     */
+    long size() {
+        tombstones.cleanUp();
+        return live.size() + tombstones.estimatedSize();
+    }
+
+    private boolean isNewer(Long id, long version) {
+        Long current = live.get(id);
+        if (current == null) {
+            current = tombstones.getIfPresent(id);
+        }
+        return current == null || version > current;
+    }
+}
@@ -0,0 +1,158 @@
+package com.mogutou.erp.service.index;
+
+import com.mogutou.erp.entity.Inventory;
+import com.mogutou.erp.event.InventoryChangedEvent;
+import com.mogutou.erp.repository.InventoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 库存内存读模型（按商品ID和商品名称索引）
+ * 订单确认时的库存校验、按名称自动填充价格等只读路径直接读内存，不再查库；
+ * 启动时全量加载，之后每次库存写入提交后通过InventoryChangedEvent刷新。
+ * 出库等写操作仍以数据库为准，这里的数量只用于提前校验。
+ * 提交后的监听器可能乱序执行，每条记录只接受序号更新的事件；
+ * product_name不唯一，同名的多条库存不从内存中任选一条，由调用方回退到数据库。
+ */
+@Component
+public class InventoryReadModel {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(InventoryReadModel.class);
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    // 商品名称 -> 库存ID，同名的多条库存都登记在这里
+    private final Map<String, Set<Long>> idsByName = new ConcurrentHashMap<>();
+
+    // 商品ID -> 库存快照
+    private final Map<Long, Inventory> byGoodsId = new ConcurrentHashMap<>();
+
+    // 库存ID -> 已登记的快照，改名或删除时据此移除旧键
+    private final Map<Long, Inventory> byId = new ConcurrentHashMap<>();
+
+    // 库存ID -> 最后应用的事件序号，删除后短时间保留墓碑，防止迟到的旧快照把记录加回来
+    private final EventVersions versions = new EventVersions();
+
+    private volatile boolean loaded = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        for (Inventory inventory : inventoryRepository.findAll()) {
+            // 序号0：加载期间已经应用过变更事件的记录以事件为准
+            put(InventoryChangedEvent.copyOf(inventory), 0);
+        }
+        loaded = true;
+        log.info("库存读模型加载完成: 商品数={}, 耗时={}ms", byId.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (event.isDeleted()) {
+            remove(event.getInventoryId(), event.getSequence());
+        } else {
+            put(event.getSnapshot(), event.getSequence());
+        }
+    }
+
+    /**
+     * 读模型是否已完成加载，未加载时调用方应回退到数据库查询
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 该名称下是否有多条库存，此时按名称查找应回退到数据库
+     */
+    public boolean isAmbiguousName(String productName) {
+        if (productName == null) {
+            return false;
+        }
+        Set<Long> ids = idsByName.get(productName);
+        return ids != null && ids.size() > 1;
+    }
+
+    /**
+     * 按商品名称查找库存，返回副本，调用方修改不会影响读模型
+     * 同名库存有多条时返回空，调用方先用isAmbiguousName判断
+     */
+    public Optional<Inventory> findByProductName(String productName) {
+        if (productName == null) {
+            return Optional.empty();
+        }
+        Set<Long> ids = idsByName.get(productName);
+        if (ids == null || ids.size() != 1) {
+            return Optional.empty();
+        }
+        return findById(ids.iterator().next());
+    }
+
+    /**
+     * 按商品ID查找库存，返回副本
+     */
+    public Optional<Inventory> findByGoodsId(Long goodsId) {
+        if (goodsId == null) {
+            return Optional.empty();
+        }
+        Inventory inventory = byGoodsId.get(goodsId);
+        return inventory == null ? Optional.empty() : Optional.of(InventoryChangedEvent.copyOf(inventory));
+    }
+
+    /**
+     * 按库存ID查找库存，返回副本
+     */
+    public Optional<Inventory> findById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        Inventory inventory = byId.get(id);
+        return inventory == null ? Optional.empty() : Optional.of(InventoryChangedEvent.copyOf(inventory));
+    }
+
+    synchronized void put(Inventory inventory, long version) {
+        if (inventory == null || inventory.getId() == null || inventory.getProductName() == null) {
+            return;
+        }
+        if (!versions.applySaved(inventory.getId(), version)) {
+            return;
+        }
+        // 商品改名或重新关联商品时先移除旧键下的记录
+        unregister(inventory.getId());
+        byId.put(inventory.getId(), inventory);
+        idsByName.computeIfAbsent(inventory.getProductName(), k -> ConcurrentHashMap.newKeySet()).add(inventory.getId());
+        if (inventory.getGoodsId() != null) {
+            byGoodsId.put(inventory.getGoodsId(), inventory);
+        }
+    }
+
+    synchronized void remove(Long id, long version) {
+        if (!versions.applyDeleted(id, version)) {
+            return;
+        }
+        unregister(id);
+    }
+
+    private void unregister(Long id) {
+        Inventory old = byId.remove(id);
+        if (old == null) {
+            return;
+        }
+        idsByName.computeIfPresent(old.getProductName(), (name, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+        if (old.getGoodsId() != null) {
+            byGoodsId.remove(old.getGoodsId(), old);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.mogutou.erp.service.index;
+
+import com.mogutou.erp.event.InventoryChangedEvent;
+import com.mogutou.erp.repository.InventoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 库存二元组（bigram）倒排索引
+ * 商品名称、编码、分类分别切成相邻两字符的片段建立倒排表，
+ * 包含查询先取各片段倒排表的交集得到候选，再逐个核对并打分，
+ * 代替 LIKE '%x%' 的全表扫描
+ */
+@Component
+public class InventorySearchIndex {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(InventorySearchIndex.class);
+
+    public static final String FIELD_NAME = "name";
+    public static final String FIELD_CODE = "code";
+    public static final String FIELD_CATEGORY = "category";
+
+    // 不指定字段时的权重：名称命中最重要
+    private static final Map<String, Integer> FIELD_WEIGHTS = Map.of(FIELD_NAME, 3, FIELD_CODE, 2, FIELD_CATEGORY, 1);
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    // 字段:片段 -> 库存ID集合
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+
+    // 库存ID -> 已索引的字段值（已规范化）
+    private final Map<Long, Map<String, String>> documents = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        for (Object[] row : inventoryRepository.findAllSearchIndexRows()) {
+            put((Long) row[0], (String) row[1], (String) row[2], (String) row[3]);
+        }
+        log.info("库存搜索索引加载完成: 商品数={}, 倒排项数={}, 耗时={}ms",
+                documents.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (event.isDeleted()) {
+            remove(event.getInventoryId());
+        } else {
+            put(event.getInventoryId(), event.getProductName(), event.getProductCode(), event.getCategory());
+        }
+    }
+
+    /**
+     * 多字段包含查询，返回按匹配程度排序的全部库存ID
+     * criteria的键为字段名，值为查询文本；键为null表示在所有字段中查找
+     * 同时给出多个条件时，每个条件都必须命中（AND）
+     */
+    public List<Long> search(Map<String, String> criteria) {
+        Map<Long, Integer> scores = null;
+        for (Map.Entry<String, String> criterion : criteria.entrySet()) {
+            String text = normalize(criterion.getValue());
+            if (text.isEmpty()) {
+                continue;
+            }
+            Map<Long, Integer> matched = criterion.getKey() == null
+                    ? matchAnyField(text)
+                    : matchField(criterion.getKey(), text, 1);
+            if (scores == null) {
+                scores = matched;
+            } else {
+                scores.keySet().retainAll(matched.keySet());
+                for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+                    entry.setValue(entry.getValue() + matched.get(entry.getKey()));
+                }
+            }
+            if (scores.isEmpty()) {
+                break;
+            }
+        }
+        if (scores == null) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(scores.keySet());
+        Map<Long, Integer> finalScores = scores;
+        ids.sort(Comparator.comparing((Long id) -> finalScores.get(id)).reversed().thenComparing(id -> id));
+        return ids;
+    }
+
+    private Map<Long, Integer> matchAnyField(String text) {
+        Map<Long, Integer> result = new HashMap<>();
+        for (String field : FIELD_WEIGHTS.keySet()) {
+            matchField(field, text, FIELD_WEIGHTS.get(field)).forEach((id, score) -> result.merge(id, score, Math::max));
+        }
+        return result;
+    }
+
+    /**
+     * 单字段包含查询：片段倒排表求交集得到候选，再核对原文并打分
+     * 完全相同 > 前缀命中 > 包含
+     */
+    private Map<Long, Integer> matchField(String field, String text, int weight) {
+        Set<Long> candidates = null;
+        for (String gram : grams(text)) {
+            Set<Long> ids = postings.get(key(field, gram));
+            if (ids == null) {
+                return new HashMap<>();
+            }
+            if (candidates == null) {
+                candidates = new HashSet<>(ids);
+            } else {
+                candidates.retainAll(ids);
+            }
+            if (candidates.isEmpty()) {
+                return new HashMap<>();
+            }
+        }
+
+        Map<Long, Integer> result = new HashMap<>();
+        for (Long id : candidates) {
+            Map<String, String> document = documents.get(id);
+            String value = document != null ? document.get(field) : null;
+            if (value == null || !value.contains(text)) {
+                continue;
+            }
+            int score = value.equals(text) ? 100 : value.startsWith(text) ? 50 : 10;
+            result.put(id, score * weight);
+        }
+        return result;
+    }
+
+    synchronized void put(Long id, String name, String code, String category) {
+        if (id == null) {
+            return;
+        }
+        remove(id);
+        Map<String, String> document = new HashMap<>();
+        addField(document, FIELD_NAME, name);
+        addField(document, FIELD_CODE, code);
+        addField(document, FIELD_CATEGORY, category);
+        documents.put(id, document);
+        for (Map.Entry<String, String> field : document.entrySet()) {
+            for (String gram : indexGrams(field.getValue())) {
+                postings.computeIfAbsent(key(field.getKey(), gram), k -> ConcurrentHashMap.newKeySet()).add(id);
+            }
+        }
+    }
+
+    synchronized void remove(Long id) {
+        Map<String, String> old = documents.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (Map.Entry<String, String> field : old.entrySet()) {
+            for (String gram : indexGrams(field.getValue())) {
+                postings.computeIfPresent(key(field.getKey(), gram), (k, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+    }
+
+    private void addField(Map<String, String> document, String field, String value) {
+        String normalized = normalize(value);
+        if (!normalized.isEmpty()) {
+            document.put(field, normalized);
+        }
+    }
+
+    /**
+     * 查询片段：相邻两字符，单个字符的查询以自身作为片段
+     */
+    static Set<String> grams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        if (text.length() == 1) {
+            grams.add(text);
+            return grams;
+        }
+        for (int i = 0; i + 1 < text.length(); i++) {
+            grams.add(text.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    /**
+     * 索引片段：相邻两字符片段之外再登记每个单字，单字查询也能走倒排表
+     */
+    static Set<String> indexGrams(String text) {
+        Set<String> grams = grams(text);
+        for (int i = 0; i < text.length(); i++) {
+            grams.add(text.substring(i, i + 1));
+        }
+        return grams;
+    }
+
+    private String key(String field, String gram) {
+        return field + ":" + gram;
+    }
+
+    private String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,131 @@
+package com.mogutou.erp.service.index;
+
+import com.mogutou.erp.event.InventoryChangedEvent;
+import com.mogutou.erp.repository.InventoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 分类库存估值汇总（增量维护）
+ * 启动时加载一次，之后每次库存写入提交后只把该商品旧的数量/金额从所属分类中减去、加上新的，
+ * 首页看板轮询分类估值时不用再查库
+ */
+@Component
+public class InventoryValuationSummary {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(InventoryValuationSummary.class);
+
+    public static final String UNCATEGORIZED = "未分类";
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    // 库存ID -> 已计入汇总的分类、数量、金额
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    // 分类 -> 汇总
+    private final Map<String, Totals> categories = new TreeMap<>();
+
+    private volatile boolean loaded = false;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        synchronized (this) {
+            entries.clear();
+            categories.clear();
+            for (Object[] row : inventoryRepository.findAllValuationRows()) {
+                put((Long) row[0], (String) row[1], (Integer) row[2], (Double) row[3]);
+            }
+        }
+        loaded = true;
+        log.info("分类库存估值汇总加载完成: 商品数={}, 分类数={}, 耗时={}ms",
+                entries.size(), categories.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (event.isDeleted()) {
+            remove(event.getInventoryId());
+        } else {
+            put(event.getInventoryId(), event.getCategory(), event.getQuantity(), event.getUnitPrice());
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 各分类的商品数、库存数量、库存金额（金额保留两位小数）
+     */
+    public synchronized List<Map<String, Object>> getCategoryTotals() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, Totals> category : categories.entrySet()) {
+            Totals totals = category.getValue();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("category", category.getKey());
+            item.put("productCount", totals.productCount);
+            item.put("quantity", totals.quantity);
+            item.put("value", totals.value.setScale(2, RoundingMode.HALF_UP));
+            result.add(item);
+        }
+        return result;
+    }
+
+    synchronized void put(Long id, String category, Integer quantity, Double unitPrice) {
+        if (id == null) {
+            return;
+        }
+        remove(id);
+        Entry entry = new Entry();
+        entry.category = category == null || category.trim().isEmpty() ? UNCATEGORIZED : category;
+        entry.quantity = quantity == null ? 0 : quantity;
+        entry.value = unitPrice == null ? BigDecimal.ZERO
+                : BigDecimal.valueOf(unitPrice).multiply(BigDecimal.valueOf(entry.quantity));
+        entries.put(id, entry);
+
+        Totals totals = categories.computeIfAbsent(entry.category, k -> new Totals());
+        totals.productCount++;
+        totals.quantity += entry.quantity;
+        totals.value = totals.value.add(entry.value);
+    }
+
+    synchronized void remove(Long id) {
+        Entry old = entries.remove(id);
+        if (old == null) {
+            return;
+        }
+        Totals totals = categories.get(old.category);
+        totals.productCount--;
+        totals.quantity -= old.quantity;
+        totals.value = totals.value.subtract(old.value);
+        if (totals.productCount == 0) {
+            categories.remove(old.category);
+        }
+    }
+
+    private static class Entry {
+        String category;
+        long quantity;
+        BigDecimal value;
+    }
+
+    private static class Totals {
+        long productCount;
+        long quantity;
+        BigDecimal value = BigDecimal.ZERO;
+    }
+}
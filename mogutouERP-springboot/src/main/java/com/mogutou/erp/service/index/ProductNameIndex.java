@@ -0,0 +1,151 @@
+package com.mogutou.erp.service.index;
+
+import com.mogutou.erp.common.PinyinInitials;
+import com.mogutou.erp.event.InventoryChangedEvent;
+import com.mogutou.erp.repository.InventoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 商品名称前缀索引（用于下单时的自动提示）
+ * 以商品名称、商品编码、名称拼音首字母作为键，保存在有序跳表中，
+ * 前缀查询只需定位到子区间依次取前k个，不再每次全表 SELECT DISTINCT
+ */
+@Component
+public class ProductNameIndex {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(ProductNameIndex.class);
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    // 索引键 -> 库存ID集合
+    private final ConcurrentSkipListMap<String, Set<Long>> keyIndex = new ConcurrentSkipListMap<>();
+
+    // 库存ID -> 已登记的条目，更新或删除时据此移除旧键
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    // 提交后的监听器可能乱序执行，每个库存ID只接受序号更新的事件（与InventoryReadModel相同）
+    private final EventVersions versions = new EventVersions();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        for (Object[] row : inventoryRepository.findAllNameIndexRows()) {
+            // 序号0：加载期间已经应用过变更事件的记录以事件为准
+            put((Long) row[0], (String) row[1], (String) row[2], 0);
+        }
+        log.info("商品名称前缀索引加载完成: 商品数={}, 索引键数={}, 耗时={}ms",
+                entries.size(), keyIndex.size(), System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (event.isDeleted()) {
+            remove(event.getInventoryId(), event.getSequence());
+        } else {
+            put(event.getInventoryId(), event.getProductName(), event.getProductCode(), event.getSequence());
+        }
+    }
+
+    /**
+     * 按前缀查找商品名称，最多返回limit个（去重，按键的字典序）
+     */
+    public List<String> search(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+        NavigableMap<String, Set<Long>> range =
+                keyIndex.subMap(normalized, true, normalized + Character.MAX_VALUE, false);
+
+        Set<String> names = new LinkedHashSet<>();
+        for (Set<Long> ids : range.values()) {
+            for (Long id : ids) {
+                Entry entry = entries.get(id);
+                if (entry != null) {
+                    names.add(entry.name);
+                    if (names.size() >= limit) {
+                        return new ArrayList<>(names);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    synchronized void put(Long id, String name, String code, long version) {
+        if (id == null || name == null) {
+            return;
+        }
+        if (!versions.applySaved(id, version)) {
+            return;
+        }
+        unregister(id);
+        Entry entry = new Entry(name, buildKeys(name, code));
+        entries.put(id, entry);
+        for (String key : entry.keys) {
+            keyIndex.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    synchronized void remove(Long id, long version) {
+        if (!versions.applyDeleted(id, version)) {
+            return;
+        }
+        unregister(id);
+    }
+
+    private void unregister(Long id) {
+        Entry old = entries.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String key : old.keys) {
+            keyIndex.computeIfPresent(key, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private Set<String> buildKeys(String name, String code) {
+        Set<String> keys = new LinkedHashSet<>();
+        addKey(keys, normalize(name));
+        addKey(keys, normalize(code));
+        addKey(keys, PinyinInitials.of(name));
+        return keys;
+    }
+
+    private void addKey(Set<String> keys, String key) {
+        if (key != null && !key.isEmpty()) {
+            keys.add(key);
+        }
+    }
+
+    private String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase();
+    }
+
+    private static class Entry {
+        private final String name;
+        private final Set<String> keys;
+
+        Entry(String name, Set<String> keys) {
+            this.name = name;
+            this.keys = keys;
+        }
+    }
+}
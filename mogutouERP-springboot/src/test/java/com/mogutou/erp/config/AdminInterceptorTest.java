@@ -0,0 +1,71 @@
+package com.mogutou.erp.config;
+
+import com.mogutou.erp.entity.User;
+import com.mogutou.erp.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 管理接口拦截器测试类
+ */
+@ExtendWith(MockitoExtension.class)
+public class AdminInterceptorTest {
+
+    @Mock
+    private UserService userService;
+
+    @InjectMocks
+    private AdminInterceptor adminInterceptor;
+
+    /**
+     * 测试管理员放行
+     */
+    @Test
+    void testAllowsAdmin() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/cache/stats");
+        request.setAttribute("username", "root");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(userService.findByUsername("root")).thenReturn(Optional.of(new User("root", "x", null, null, "ADMIN")));
+
+        assertTrue(adminInterceptor.preHandle(request, response, null));
+        assertEquals(200, response.getStatus());
+    }
+
+    /**
+     * 测试非管理员返回403且不进入控制器
+     */
+    @Test
+    void testRejectsNonAdmin() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/cache/stats");
+        request.setAttribute("username", "clerk");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(userService.findByUsername("clerk")).thenReturn(Optional.of(new User("clerk", "x", null, null, "user")));
+
+        assertFalse(adminInterceptor.preHandle(request, response, null));
+        assertEquals(403, response.getStatus());
+        assertTrue(response.getContentAsString().contains("\"code\":403"));
+    }
+
+    /**
+     * 测试未认证（没有用户名）时直接拒绝，不查询用户
+     */
+    @Test
+    void testRejectsMissingUsername() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/traces");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(adminInterceptor.preHandle(request, response, null));
+        assertEquals(403, response.getStatus());
+        verifyNoInteractions(userService);
+    }
+}
@@ -0,0 +1,139 @@
+package com.mogutou.erp.config;
+
+import com.mogutou.erp.common.ServiceBusyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 舱壁隔离测试类
+ */
+public class BulkheadTest {
+
+    private ThreadPoolTaskExecutor executor;
+    private Bulkhead bulkhead;
+
+    @BeforeEach
+    void setUp() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(1);
+        executor.initialize();
+        bulkhead = new Bulkhead("test", executor, 7);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 测试线程和队列都占满后立即拒绝，并记录拒绝次数
+     */
+    @Test
+    void testRejectsWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> running = bulkhead.submit(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "running";
+        });
+        CompletableFuture<String> queued = bulkhead.submit(() -> "queued");
+
+        ServiceBusyException e = assertThrows(ServiceBusyException.class, () -> bulkhead.submit(() -> "rejected"));
+        assertEquals(7, e.getRetryAfterSeconds());
+        assertEquals(1L, bulkhead.getStats().get("rejected"));
+        assertEquals(1, bulkhead.getQueueSize());
+
+        release.countDown();
+        assertEquals("running", running.get(5, TimeUnit.SECONDS));
+        assertEquals("queued", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 测试超时后取消任务：正在执行的任务收到中断，排队中的任务不再执行
+     */
+    @Test
+    void testTimeoutCancelsTasks() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        CompletableFuture<String> running = bulkhead.submit(() -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return "running";
+        }, 300, TimeUnit.MILLISECONDS);
+        AtomicBoolean queuedRan = new AtomicBoolean();
+        CompletableFuture<String> queued = bulkhead.submit(() -> {
+            queuedRan.set(true);
+            return "queued";
+        }, 50, TimeUnit.MILLISECONDS);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> running.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+        assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+
+        // 被取消的排队任务要等工作线程取出后才让出队列位置
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((bulkhead.getQueueSize() > 0 || bulkhead.getActiveCount() > 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        // 线程空出来后新任务正常执行，被取消的排队任务没有执行
+        assertEquals("next", bulkhead.submit(() -> "next", 5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+        assertFalse(queuedRan.get());
+    }
+
+    /**
+     * 测试舱壁任务只带上提交时的用户名，请求结束后任务仍能取到用户名，且拿不到请求对象
+     */
+    @Test
+    void testBulkheadTaskCopiesUsernameNotRequest() throws Exception {
+        ExecutorConfig config = new ExecutorConfig();
+        Bulkhead insights = config.aiInsightsBulkhead(1, 1);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("username", "alice");
+        ServletRequestAttributes attributes = new ServletRequestAttributes(request);
+        RequestContextHolder.setRequestAttributes(attributes);
+        CountDownLatch requestDone = new CountDownLatch(1);
+        try {
+            CompletableFuture<String> result = insights.submit(() -> {
+                try {
+                    requestDone.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                assertNull(RequestContextHolder.getRequestAttributes());
+                return ReadWriteRoutingDataSource.currentUsername();
+            });
+            // 请求先于任务结束
+            attributes.requestCompleted();
+            RequestContextHolder.resetRequestAttributes();
+            requestDone.countDown();
+
+            assertEquals("alice", result.get(5, TimeUnit.SECONDS));
+            // 任务结束后线程上不残留用户名
+            assertNull(insights.submit(ReadWriteRoutingDataSource::currentUsername).get(5, TimeUnit.SECONDS));
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.mogutou.erp.config;
+
+import com.mogutou.erp.entity.Order;
+import com.mogutou.erp.entity.OrderGoods;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.PessimisticLockingFailureException;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 业务指标测试类
+ */
+@ExtendWith(MockitoExtension.class)
+public class ErpMetricsTest {
+
+    @Spy
+    private MeterRegistry registry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private ErpMetrics erpMetrics;
+
+    /**
+     * 测试订单耗时按操作、类型、结果打标签，并记录商品行数
+     */
+    @Test
+    void testRecordOrder() {
+        Order order = new Order();
+        order.setOrderType("SALE");
+        order.setGoods(Arrays.asList(new OrderGoods(), new OrderGoods(), new OrderGoods()));
+
+        erpMetrics.recordOrder("create", order, Timer.start(), null);
+
+        Timer timer = registry.find("erp.order").tags("operation", "create", "type", "SALE", "outcome", "success").timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+        assertEquals(3.0, registry.find("erp.order.lines").summary().totalAmount());
+    }
+
+    /**
+     * 测试锁竞争失败单独计数，库存不足记为rejected
+     */
+    @Test
+    void testRecordStockContention() {
+        erpMetrics.recordStock("out", Timer.start(), new PessimisticLockingFailureException("lock wait timeout"));
+        erpMetrics.recordStock("out", Timer.start(), new IllegalArgumentException("库存不足"));
+
+        assertEquals(1.0, registry.find("erp.inventory.contention").tags("direction", "out").counter().count());
+        assertEquals(1, registry.find("erp.inventory.stock").tags("outcome", "rejected").timer().count());
+        assertEquals(1, registry.find("erp.inventory.stock").tags("outcome", "contention").timer().count());
+    }
+
+    /**
+     * 测试包装过的异常沿cause链分类：库存不足包成RuntimeException仍记为rejected
+     */
+    @Test
+    void testOutcomeWalksCauseChain() {
+        RuntimeException wrappedRejection = new RuntimeException("库存更新失败: 库存不足",
+                new IllegalArgumentException("库存不足"));
+        RuntimeException wrappedContention = new RuntimeException("库存更新失败",
+                new IllegalArgumentException("外层", new PessimisticLockingFailureException("lock wait timeout")));
+
+        assertEquals(ErpMetrics.OUTCOME_REJECTED, ErpMetrics.outcomeOf(wrappedRejection));
+        assertEquals(ErpMetrics.OUTCOME_CONTENTION, ErpMetrics.outcomeOf(wrappedContention));
+        assertEquals(ErpMetrics.OUTCOME_ERROR, ErpMetrics.outcomeOf(new RuntimeException("订单不存在")));
+    }
+}
@@ -0,0 +1,146 @@
+package com.mogutou.erp.config;
+
+import com.mogutou.erp.common.ServiceBusyException;
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按需JFR性能采样测试类
+ */
+public class JfrProfilerTest {
+
+    @TempDir
+    Path directory;
+
+    private JfrProfiler profiler;
+
+    @BeforeEach
+    void setUp() {
+        profiler = new JfrProfiler();
+        ReflectionTestUtils.setField(profiler, "directory", directory.toString());
+        ReflectionTestUtils.setField(profiler, "maxDiskMb", 1L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        profiler.stop();
+    }
+
+    /**
+     * 测试同一时间只允许一个采样，结束后生成.jfr文件
+     */
+    @Test
+    void testSingleConcurrentRecording() throws Exception {
+        profiler.start(60, "admin");
+        assertEquals(true, profiler.status().get("running"));
+
+        ServiceBusyException e = assertThrows(ServiceBusyException.class, () -> profiler.start(60, "admin"));
+        assertTrue(e.getRetryAfterSeconds() > 0);
+
+        assertTrue(profiler.stop());
+        assertEquals(false, profiler.status().get("running"));
+        assertNotNull(profiler.status().get("lastSummary"));
+        assertEquals(1, profiler.listRecordings().size());
+    }
+
+    /**
+     * 测试目录超出配额时从最旧的文件开始删除
+     */
+    @Test
+    void testQuotaDeletesOldestRecordings() throws Exception {
+        Path oldest = recordingOfSize("erp-1.jfr", 600 * 1024, 1000);
+        Path middle = recordingOfSize("erp-2.jfr", 300 * 1024, 2000);
+        Path newest = recordingOfSize("erp-3.jfr", 300 * 1024, 3000);
+
+        profiler.enforceQuota(newest);
+
+        assertFalse(Files.exists(oldest));
+        assertTrue(Files.exists(middle));
+        assertTrue(Files.exists(newest));
+    }
+
+    /**
+     * 测试开始采样前删除旧文件腾出空间，新采样的大小上限不超过剩余配额
+     */
+    @Test
+    void testRecordingCappedAtRemainingQuota() throws Exception {
+        ReflectionTestUtils.setField(profiler, "maxDiskMb", 3L);
+        Path oldest = recordingOfSize("erp-1.jfr", 1792 * 1024, 1000);
+        Path newest = recordingOfSize("erp-2.jfr", 512 * 1024, 2000);
+
+        profiler.start(60, "admin");
+
+        assertFalse(Files.exists(oldest));
+        assertTrue(Files.exists(newest));
+        Recording active = (Recording) ReflectionTestUtils.getField(profiler, "active");
+        assertEquals(3L * 1024 * 1024 - 512 * 1024, active.getMaxSize());
+    }
+
+    /**
+     * 测试配额小于一次采样的最小空间时拒绝开始
+     */
+    @Test
+    void testRefusesWhenQuotaTooSmall() {
+        ReflectionTestUtils.setField(profiler, "maxDiskMb", 0L);
+
+        assertThrows(IllegalStateException.class, () -> profiler.start(60, "admin"));
+        assertEquals(false, profiler.status().get("running"));
+    }
+
+    /**
+     * 测试文件名只能是采样目录下的.jfr文件
+     */
+    @Test
+    void testResolveRecordingRejectsOtherFiles() {
+        assertThrows(IllegalArgumentException.class, () -> profiler.resolveRecording("../application.properties"));
+        assertThrows(IllegalArgumentException.class, () -> profiler.resolveRecording("missing.jfr"));
+    }
+
+    /**
+     * 测试汇总中按仓库方法统计数据访问事件
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSummarizeDataAccess() throws Exception {
+        Path file = directory.resolve("summary.jfr");
+        try (Recording recording = new Recording(JfrProfiler.settings())) {
+            recording.start();
+            for (int i = 0; i < 3; i++) {
+                DataAccessEvent event = new DataAccessEvent();
+                event.begin();
+                event.type = "OrderRepository";
+                event.method = "findById";
+                event.commit();
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+
+        Map<String, Object> summary = profiler.summarize(file);
+
+        List<Map<String, Object>> dataAccess = (List<Map<String, Object>>) summary.get("dataAccess");
+        assertEquals("OrderRepository.findById", dataAccess.get(0).get("name"));
+        assertEquals(3L, dataAccess.get(0).get("count"));
+        assertTrue(summary.containsKey("allocationSites"));
+        assertTrue(summary.containsKey("hotMethods"));
+    }
+
+    private Path recordingOfSize(String name, int size, long lastModified) throws Exception {
+        Path file = directory.resolve(name);
+        Files.write(file, new byte[size]);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+        return file;
+    }
+}
@@ -0,0 +1,139 @@
+package com.mogutou.erp.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 读写分离路由测试类
+ */
+@ExtendWith(MockitoExtension.class)
+public class ReadWriteRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private DataSource reporting;
+
+    private ReadWriteRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        routing = new ReadWriteRoutingDataSource(60000);
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(ReadWriteRoutingDataSource.PRIMARY, primary);
+        targets.put(ReadWriteRoutingDataSource.REPLICA, replica);
+        targets.put(ReadWriteRoutingDataSource.REPORTING, reporting);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReadWriteRoutingDataSource.setReporting(false);
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private void loginAs(String username) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("username", username);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    /**
+     * 测试只读事务走只读库，其余走主库
+     */
+    @Test
+    void testRoutesByReadOnlyFlag() throws Exception {
+        Connection replicaConnection = mock(Connection.class);
+        Connection primaryConnection = mock(Connection.class);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(replicaConnection, routing.getConnection());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        assertSame(primaryConnection, routing.getConnection());
+    }
+
+    /**
+     * 测试用户写事务提交后，该用户的只读事务在窗口内走主库，其他用户不受影响
+     */
+    @Test
+    void testReadYourWritesAfterCommit() throws Exception {
+        when(primary.getConnection()).thenReturn(mock(Connection.class));
+        loginAs("alice");
+
+        TransactionSynchronizationManager.initSynchronization();
+        routing.getConnection();
+        // 提交前还不算写入
+        assertFalse(routing.wroteRecently("alice", System.currentTimeMillis()));
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        routing.getConnection();
+        verify(primary, times(2)).getConnection();
+        verify(replica, never()).getConnection();
+
+        loginAs("bob");
+        routing.getConnection();
+        verify(replica, times(1)).getConnection();
+    }
+
+    /**
+     * 测试窗口过期后恢复走只读库
+     */
+    @Test
+    void testReadYourWritesWindowExpires() throws Exception {
+        when(primary.getConnection()).thenReturn(mock(Connection.class));
+        loginAs("alice");
+        routing.getConnection();
+
+        assertTrue(routing.wroteRecently("alice", System.currentTimeMillis()));
+        assertFalse(routing.wroteRecently("alice", System.currentTimeMillis() + 120000));
+    }
+
+    /**
+     * 测试报表查询走报表连接池，优先于读写判断
+     */
+    @Test
+    void testReportingRoute() throws Exception {
+        Connection reportingConnection = mock(Connection.class);
+        when(reporting.getConnection()).thenReturn(reportingConnection);
+
+        ReadWriteRoutingDataSource.setReporting(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(reportingConnection, routing.getConnection());
+        verify(replica, never()).getConnection();
+    }
+}
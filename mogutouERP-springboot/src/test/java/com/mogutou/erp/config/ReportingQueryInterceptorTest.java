@@ -0,0 +1,80 @@
+package com.mogutou.erp.config;
+
+import com.mogutou.erp.common.ServiceBusyException;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 报表查询拦截器测试类
+ */
+@ExtendWith(MockitoExtension.class)
+public class ReportingQueryInterceptorTest {
+
+    @Mock
+    private MethodInvocation invocation;
+
+    /**
+     * 测试报表方法执行期间标记走报表连接池，结束后清除并归还名额
+     */
+    @Test
+    void testMarksReportingDuringInvocation() throws Throwable {
+        ReportingQueryInterceptor interceptor = new ReportingQueryInterceptor(1, 0, 10);
+        when(invocation.proceed()).thenAnswer(i -> ReadWriteRoutingDataSource.isReporting());
+
+        assertEquals(Boolean.TRUE, interceptor.invoke(invocation));
+
+        assertFalse(ReadWriteRoutingDataSource.isReporting());
+        assertEquals(1, interceptor.availablePermits());
+    }
+
+    /**
+     * 测试执行和排队名额都占满时快速拒绝
+     */
+    @Test
+    void testRejectsWhenFull() throws Throwable {
+        ReportingQueryInterceptor interceptor = new ReportingQueryInterceptor(1, 0, 10);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MethodInvocation slow = mock(MethodInvocation.class);
+        when(slow.proceed()).thenAnswer(i -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        when(invocation.getMethod()).thenReturn(Object.class.getMethod("toString"));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Object> running = executor.submit(() -> {
+                try {
+                    return interceptor.invoke(slow);
+                } catch (Throwable e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            ServiceBusyException e = assertThrows(ServiceBusyException.class, () -> interceptor.invoke(invocation));
+            assertTrue(e.getRetryAfterSeconds() > 0);
+            verify(invocation, never()).proceed();
+
+            release.countDown();
+            running.get(5, TimeUnit.SECONDS);
+            assertEquals(1, interceptor.availablePermits());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
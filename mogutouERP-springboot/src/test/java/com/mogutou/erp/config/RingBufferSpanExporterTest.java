@@ -0,0 +1,79 @@
+package com.mogutou.erp.config;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地span导出器测试类
+ */
+public class RingBufferSpanExporterTest {
+
+    private SdkTracerProvider tracerProvider;
+
+    private Tracer tracer(RingBufferSpanExporter exporter) {
+        tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+                .build();
+        return tracerProvider.get("test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    /**
+     * 测试同一链路的span按traceId归组，根span作为链路名称，子span记录父span
+     */
+    @Test
+    void testSpansGroupedByTrace() {
+        RingBufferSpanExporter exporter = new RingBufferSpanExporter(10);
+        Tracer tracer = tracer(exporter);
+
+        Span root = tracer.spanBuilder("POST /api/orders").startSpan();
+        try (Scope ignored = root.makeCurrent()) {
+            tracer.spanBuilder("OrderService.createOrder").startSpan().end();
+        } finally {
+            root.end();
+        }
+
+        List<Map<String, Object>> traces = exporter.recentTraces(10, 0);
+        assertEquals(1, traces.size());
+        assertEquals("POST /api/orders", traces.get(0).get("name"));
+        assertEquals(2, traces.get(0).get("spanCount"));
+
+        List<Map<String, Object>> spans = exporter.getTrace(root.getSpanContext().getTraceId());
+        assertEquals(2, spans.size());
+        Map<String, Object> child = spans.stream()
+                .filter(span -> "OrderService.createOrder".equals(span.get("name")))
+                .findFirst().orElseThrow();
+        assertEquals(root.getSpanContext().getSpanId(), child.get("parentSpanId"));
+    }
+
+    /**
+     * 测试缓冲区写满后覆盖最旧的span
+     */
+    @Test
+    void testOldestSpansOverwritten() {
+        RingBufferSpanExporter exporter = new RingBufferSpanExporter(3);
+        Tracer tracer = tracer(exporter);
+
+        for (int i = 0; i < 5; i++) {
+            tracer.spanBuilder("span-" + i).startSpan().end();
+        }
+
+        List<String> names = exporter.snapshot().stream().map(span -> span.getName()).toList();
+        assertEquals(List.of("span-2", "span-3", "span-4"), names);
+        assertEquals(3, exporter.recentTraces(10, 0).size());
+    }
+}
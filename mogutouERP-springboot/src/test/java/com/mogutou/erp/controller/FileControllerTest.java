@@ -0,0 +1,126 @@
+package com.mogutou.erp.controller;
+
+import com.mogutou.erp.entity.FileBlob;
+import com.mogutou.erp.entity.FileReference;
+import com.mogutou.erp.service.FileStorageService;
+import com.mogutou.erp.service.ImageVariantService;
+import com.mogutou.erp.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 文件访问控制器测试类
+ * 测试内容块解析和旧文件兼容读取
+ */
+@ExtendWith(MockitoExtension.class)
+public class FileControllerTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private ImageVariantService imageVariantService;
+
+    @InjectMocks
+    private FileController fileController;
+
+    @TempDir
+    Path root;
+
+    private Path uploadDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        uploadDir = Files.createDirectories(root.resolve("uploads"));
+        ReflectionTestUtils.setField(fileController, "uploadPath", uploadDir.toString());
+        lenient().when(fileStorageService.findByUrl(anyString())).thenReturn(Optional.empty());
+    }
+
+    private ResponseEntity<Resource> get(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        return fileController.getFile(request, null);
+    }
+
+    /**
+     * 测试登记过的URL解析到内容块，并带上按摘要生成的ETag
+     */
+    @Test
+    void testServesBlobForRegisteredUrl() throws Exception {
+        Path blobPath = Files.createDirectories(uploadDir.resolve("blobs/ab/cd")).resolve("abcd1234");
+        Files.write(blobPath, "blob".getBytes(StandardCharsets.UTF_8));
+        FileReference reference = new FileReference();
+        reference.setSha256("abcd1234");
+        FileBlob blob = new FileBlob();
+        blob.setSha256("abcd1234");
+        blob.setContentType("image/png");
+        blob.setStoragePath("blobs/ab/cd/abcd1234");
+        when(fileStorageService.findByUrl("/api/uploads/a.png")).thenReturn(Optional.of(reference));
+        when(fileStorageService.findBlob("abcd1234")).thenReturn(Optional.of(blob));
+        when(fileStorageService.resolveBlobPath(blob)).thenReturn(blobPath);
+
+        ResponseEntity<Resource> response = get("/api/uploads/a.png");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"abcd1234\"", response.getHeaders().getETag());
+        assertEquals(blobPath.toFile(), response.getBody().getFile());
+    }
+
+    /**
+     * 测试未登记的旧文件按原路径读取
+     */
+    @Test
+    void testServesLegacyFileInsideUploadDir() throws Exception {
+        Path legacy = Files.createDirectories(uploadDir.resolve("avatars")).resolve("old.png");
+        Files.write(legacy, "old".getBytes(StandardCharsets.UTF_8));
+
+        ResponseEntity<Resource> response = get("/api/uploads/avatars/old.png");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(legacy.toFile().getCanonicalFile(), response.getBody().getFile().getCanonicalFile());
+    }
+
+    /**
+     * 测试旧文件兼容路径不能通过 ../ 读取上传目录之外的文件
+     */
+    @Test
+    void testLegacyFallbackRejectsPathTraversal() throws Exception {
+        Files.write(root.resolve("secret.txt"), "secret".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(HttpStatus.NOT_FOUND, get("/api/uploads/../secret.txt").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, get("/api/uploads/avatars/../../secret.txt").getStatusCode());
+        verify(fileStorageService, never()).findBlob(anyString());
+    }
+
+    /**
+     * 测试目录和不存在的文件返回404
+     */
+    @Test
+    void testLegacyFallbackRejectsDirectoriesAndMissingFiles() throws Exception {
+        Files.createDirectories(uploadDir.resolve("avatars"));
+
+        assertEquals(HttpStatus.NOT_FOUND, get("/api/uploads/avatars").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, get("/api/uploads/missing.png").getStatusCode());
+    }
+}
@@ -0,0 +1,123 @@
+package com.mogutou.erp.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mogutou.erp.common.Result;
+import com.mogutou.erp.entity.FinanceRecord;
+import com.mogutou.erp.service.FinanceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 财务控制器测试类
+ * 测试 /data/stream 的输出与 /data 保持一致
+ */
+@ExtendWith(MockitoExtension.class)
+public class FinanceControllerTest {
+
+    @Mock
+    private FinanceService financeService;
+
+    @InjectMocks
+    private FinanceController financeController;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private List<FinanceRecord> records;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(financeController, "objectMapper", objectMapper);
+
+        Calendar cal = Calendar.getInstance();
+        cal.set(2025, Calendar.MARCH, 5, 13, 45, 0);
+        FinanceRecord income = new FinanceRecord();
+        income.setId(1L);
+        income.setRecordDate(cal.getTime());
+        income.setIncome(new BigDecimal("1200.50"));
+        income.setExpense(BigDecimal.ZERO);
+        income.setProfit(new BigDecimal("1200.50"));
+        income.setRecordType("SALE");
+        income.setDescription("销售订单");
+
+        // 数据库返回的是java.sql.Date，不能直接调用toInstant
+        FinanceRecord expense = new FinanceRecord();
+        expense.setId(2L);
+        expense.setRecordDate(java.sql.Date.valueOf("2025-03-31"));
+        expense.setIncome(BigDecimal.ZERO);
+        expense.setExpense(new BigDecimal("300.00"));
+        expense.setProfit(new BigDecimal("-300.00"));
+        expense.setRecordType("PURCHASE");
+        expense.setDescription(null);
+
+        records = List.of(income, expense);
+    }
+
+    @SuppressWarnings("unchecked")
+    private JsonNode stream(String startDate, String endDate) throws Exception {
+        doAnswer(invocation -> {
+            Consumer<FinanceRecord> consumer = invocation.getArgument(2);
+            records.forEach(consumer);
+            return null;
+        }).when(financeService).streamFinanceRecords(any(Date.class), any(Date.class), any(Consumer.class));
+
+        ResponseEntity<StreamingResponseBody> response = financeController.streamFinanceData(startDate, endDate);
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return objectMapper.readTree(out.toByteArray());
+    }
+
+    /**
+     * 测试流式输出与 /data 的JSON结构、字段和日期格式一致
+     */
+    @Test
+    void testStreamMatchesNonStreamingResponse() throws Exception {
+        when(financeService.getFinanceRecords(any(Date.class), any(Date.class))).thenReturn(records);
+
+        Result<List<Map<String, Object>>> materialized = financeController.getFinanceData("2025-03-01", "2025-03-31");
+        JsonNode expected = objectMapper.readTree(objectMapper.writeValueAsBytes(materialized));
+        JsonNode streamed = stream("2025-03-01", "2025-03-31");
+
+        assertEquals(expected, streamed);
+        assertEquals("2025-03-05", streamed.get("data").get(0).get("date").asText());
+        assertEquals("2025-03-31", streamed.get("data").get(1).get("date").asText());
+        assertTrue(streamed.get("data").get(1).get("description").isNull());
+    }
+
+    /**
+     * 测试记录按服务层给出的顺序逐条写出，日期参数与 /data 解析方式相同
+     */
+    @Test
+    void testStreamWritesRecordsInOrder() throws Exception {
+        JsonNode streamed = stream("2025-03-01", null);
+
+        assertEquals(200, streamed.get("code").asInt());
+        JsonNode data = streamed.get("data");
+        assertEquals(2, data.size());
+        assertEquals(1L, data.get(0).get("id").asLong());
+        assertEquals(2L, data.get(1).get("id").asLong());
+        assertEquals(0, new BigDecimal("1200.50").compareTo(data.get(0).get("income").decimalValue()));
+        verify(financeService).streamFinanceRecords(eq(java.sql.Date.valueOf("2025-03-01")), any(Date.class), any());
+    }
+}
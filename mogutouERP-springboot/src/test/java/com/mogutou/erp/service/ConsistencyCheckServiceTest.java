@@ -0,0 +1,161 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.entity.ConsistencyMismatch;
+import com.mogutou.erp.mapper.OrderMapper;
+import com.mogutou.erp.repository.ConsistencyMismatchRepository;
+import com.mogutou.erp.service.impl.ConsistencyCheckServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 数据一致性检查服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+public class ConsistencyCheckServiceTest {
+
+    @Mock
+    private ConsistencyMismatchRepository mismatchRepository;
+
+    @Mock
+    private OrderMapper orderMapper;
+
+    @Mock
+    private JdbcTemplate checkJdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ConsistencyCheckServiceImpl consistencyCheckService;
+
+    /**
+     * 测试未指定批次时查询最近一次检查的不一致记录
+     */
+    @Test
+    void testGetMismatchesDefaultsToLatestRun() {
+        ConsistencyMismatch mismatch = new ConsistencyMismatch();
+        mismatch.setRunId(42L);
+        mismatch.setCheckType(ConsistencyMismatch.CHECK_ORDER_AMOUNT);
+        mismatch.setEntityId(7L);
+
+        when(mismatchRepository.findLatestRunId()).thenReturn(42L);
+        when(mismatchRepository.findByRunIdAndCheckTypeOrderByIdAsc(eq(42L), eq("ORDER_AMOUNT"), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(mismatch)));
+
+        Page<ConsistencyMismatch> result = consistencyCheckService.getMismatches(null, "ORDER_AMOUNT", 0, 20);
+
+        assertEquals(1, result.getTotalElements());
+        assertEquals(7L, result.getContent().get(0).getEntityId());
+    }
+
+    /**
+     * 测试从未运行过检查时返回空结果和空闲状态
+     */
+    @Test
+    void testNoRunYet() {
+        when(mismatchRepository.findLatestRunId()).thenReturn(null);
+
+        assertTrue(consistencyCheckService.getMismatches(null, null, 0, 20).isEmpty());
+        Map<String, Object> status = consistencyCheckService.getStatus();
+        assertEquals("IDLE", status.get("status"));
+        verify(mismatchRepository, never()).findByRunIdOrderByIdAsc(anyLong(), any(Pageable.class));
+    }
+
+    /**
+     * 测试订单金额对账修复：按当前订单商品总价重新计算，一条UPDATE批量修正
+     */
+    @Test
+    void testRepairOrderAmounts() throws Exception {
+        ReflectionTestUtils.setField(consistencyCheckService, "chunkSize", 1000);
+        when(mismatchRepository.findLatestRunId()).thenReturn(42L);
+        when(mismatchRepository.findEntityIds(42L, ConsistencyMismatch.CHECK_ORDER_AMOUNT)).thenReturn(List.of(7L, 8L));
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong(1)).thenReturn(7L, 8L);
+        when(row.getFloat(2)).thenReturn(300f, 0f);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row);
+            handler.processRow(row);
+            return null;
+        }).when(checkJdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        when(orderMapper.updateAmounts(anyMap())).thenReturn(2);
+
+        int repaired = consistencyCheckService.repairOrderAmounts(null);
+
+        assertEquals(2, repaired);
+        verify(orderMapper).updateAmounts(Map.of(7L, 300f, 8L, 0f));
+    }
+
+    /**
+     * 测试检查扫描在只读事务中执行（走只读库），不一致记录在只读事务结束后写入
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testChecksScanInReadOnlyTransaction() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        ReflectionTestUtils.setField(consistencyCheckService, "consistencyCheckPool", pool);
+        ReflectionTestUtils.setField(consistencyCheckService, "chunkSize", 1000);
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        ReflectionTestUtils.setField(consistencyCheckService, "readOnlyTransaction", readOnlyTransaction);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(checkJdbcTemplate.queryForMap(anyString())).thenReturn(Map.of("min_id", 1L, "max_id", 10L));
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong(1)).thenReturn(7L);
+        doAnswer(invocation -> {
+            // 只有订单金额检查发现一条不一致
+            if (((String) invocation.getArgument(0)).contains("order_goods")) {
+                RowCallbackHandler handler = invocation.getArgument(1);
+                handler.processRow(row);
+            }
+            return null;
+        }).when(checkJdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        try {
+            consistencyCheckService.startCheck();
+            pool.awaitQuiescence(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals("COMPLETED", consistencyCheckService.getStatus().get("status"));
+        ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(TransactionDefinition.class);
+        // 三个检查项，各一次范围查询 + 一段扫描
+        verify(transactionManager, times(6)).getTransaction(definitions.capture());
+        assertTrue(definitions.getAllValues().stream().allMatch(TransactionDefinition::isReadOnly));
+
+        InOrder inOrder = inOrder(transactionManager, checkJdbcTemplate, mismatchRepository);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(checkJdbcTemplate).queryForMap(anyString());
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(checkJdbcTemplate).query(contains("order_goods"), any(RowCallbackHandler.class), any(Object[].class));
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(mismatchRepository).saveAll(anyList());
+    }
+}
@@ -0,0 +1,181 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.entity.FileBlob;
+import com.mogutou.erp.entity.FileReference;
+import com.mogutou.erp.repository.FileBlobRepository;
+import com.mogutou.erp.repository.FileReferenceRepository;
+import com.mogutou.erp.service.impl.FileStorageServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 文件存储服务测试类
+ * 测试按内容寻址保存与去重
+ */
+@ExtendWith(MockitoExtension.class)
+public class FileStorageServiceTest {
+
+    @Mock
+    private FileBlobRepository fileBlobRepository;
+
+    @Mock
+    private FileReferenceRepository fileReferenceRepository;
+
+    @InjectMocks
+    private FileStorageServiceImpl fileStorageService;
+
+    @TempDir
+    Path uploadDir;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(fileStorageService, "uploadPath", uploadDir.toString());
+        lenient().when(fileReferenceRepository.save(any(FileReference.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void completeTransaction(int status) {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(status);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+
+    private static List<Path> regularFiles(Path dir) throws Exception {
+        if (!Files.exists(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    /**
+     * 测试内容块按摘要前两级分片存放：blobs/ab/cd/<sha>
+     */
+    @Test
+    void testStoreUsesShardedBlobLayout() throws Exception {
+        byte[] content = "avatar-bytes".getBytes(StandardCharsets.UTF_8);
+        String sha = sha256(content);
+
+        FileReference reference = fileStorageService.store(
+                new MockMultipartFile("file", "a.png", "image/png", content), "/api/uploads/a.png");
+
+        String expectedPath = "blobs/" + sha.substring(0, 2) + "/" + sha.substring(2, 4) + "/" + sha;
+        assertEquals(sha, reference.getSha256());
+        assertEquals("/api/uploads/a.png", reference.getUrl());
+        assertEquals("a.png", reference.getOriginalFilename());
+        assertArrayEquals(content, Files.readAllBytes(uploadDir.resolve(expectedPath)));
+        verify(fileBlobRepository).upsertReference(sha, content.length, "image/png", expectedPath);
+
+        FileBlob blob = new FileBlob();
+        blob.setStoragePath(expectedPath);
+        assertEquals(uploadDir.resolve(expectedPath), fileStorageService.resolveBlobPath(blob));
+    }
+
+    /**
+     * 测试相同内容只落盘一次，两个URL登记到同一内容块并各增加一次引用计数
+     */
+    @Test
+    void testSameContentIsDeduplicated() throws Exception {
+        byte[] content = "same-content".getBytes(StandardCharsets.UTF_8);
+        String sha = sha256(content);
+
+        FileReference first = fileStorageService.store(
+                new MockMultipartFile("file", "a.txt", "text/plain", content), "/api/uploads/a.txt");
+        FileReference second = fileStorageService.store(
+                new MockMultipartFile("file", "b.txt", "text/plain", content), "/api/uploads/b.txt");
+
+        assertEquals(first.getSha256(), second.getSha256());
+        assertEquals(1, regularFiles(uploadDir.resolve("blobs")).size());
+        // 临时文件在复用已有内容块时被删除
+        assertTrue(regularFiles(uploadDir.resolve("tmp")).isEmpty());
+        verify(fileBlobRepository, times(2)).upsertReference(eq(sha), eq((long) content.length), eq("text/plain"), anyString());
+        verify(fileReferenceRepository, times(2)).save(any(FileReference.class));
+    }
+
+    /**
+     * 测试不同内容各自保存为独立的内容块
+     */
+    @Test
+    void testDifferentContentStoredSeparately() throws Exception {
+        fileStorageService.store(new MockMultipartFile("file", "a.txt", "text/plain",
+                "first".getBytes(StandardCharsets.UTF_8)), "/api/uploads/a.txt");
+        fileStorageService.store(new MockMultipartFile("file", "b.txt", "text/plain",
+                "second".getBytes(StandardCharsets.UTF_8)), "/api/uploads/b.txt");
+
+        assertEquals(2, regularFiles(uploadDir.resolve("blobs")).size());
+        verify(fileBlobRepository, times(2)).upsertReference(anyString(), anyLong(), anyString(), anyString());
+    }
+
+    /**
+     * 测试登记失败事务回滚时删除本次新建的内容块，不留下孤儿文件
+     */
+    @Test
+    void testRollbackDeletesNewBlob() throws Exception {
+        byte[] content = "rolled-back".getBytes(StandardCharsets.UTF_8);
+        when(fileBlobRepository.existsById(sha256(content))).thenReturn(false);
+
+        TransactionSynchronizationManager.initSynchronization();
+        fileStorageService.store(new MockMultipartFile("file", "a.txt", "text/plain", content), "/api/uploads/a.txt");
+        assertEquals(1, regularFiles(uploadDir.resolve("blobs")).size());
+
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertTrue(regularFiles(uploadDir.resolve("blobs")).isEmpty());
+    }
+
+    /**
+     * 测试回滚时内容块已被其他上传登记则保留；复用已有内容块的上传回滚不删除文件
+     */
+    @Test
+    void testRollbackKeepsBlobsStillReferenced() throws Exception {
+        byte[] content = "shared".getBytes(StandardCharsets.UTF_8);
+        when(fileBlobRepository.existsById(sha256(content))).thenReturn(true);
+
+        TransactionSynchronizationManager.initSynchronization();
+        fileStorageService.store(new MockMultipartFile("file", "a.txt", "text/plain", content), "/api/uploads/a.txt");
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(1, regularFiles(uploadDir.resolve("blobs")).size());
+
+        // 内容块已存在，本次上传没有新建文件，不注册清理
+        TransactionSynchronizationManager.initSynchronization();
+        fileStorageService.store(new MockMultipartFile("file", "b.txt", "text/plain", content), "/api/uploads/b.txt");
+        assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertEquals(1, regularFiles(uploadDir.resolve("blobs")).size());
+        verify(fileBlobRepository, times(1)).existsById(anyString());
+    }
+}
@@ -0,0 +1,74 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.entity.FinanceRecord;
+import com.mogutou.erp.repository.FinanceRecordRepository;
+import com.mogutou.erp.service.impl.FinanceServiceImpl;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 财务服务测试类
+ * 测试流式读取财务记录
+ */
+@ExtendWith(MockitoExtension.class)
+public class FinanceServiceTest {
+
+    @Mock
+    private FinanceRecordRepository financeRecordRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private FinanceServiceImpl financeService;
+
+    private FinanceRecord record(Long id) {
+        FinanceRecord record = new FinanceRecord();
+        record.setId(id);
+        return record;
+    }
+
+    /**
+     * 测试记录按查询顺序交给调用方，每条处理完后立即脱离持久化上下文，结束时关闭游标
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStreamFinanceRecordsDetachesEachRecordInOrder() {
+        ReflectionTestUtils.setField(financeService, "entityManager", entityManager);
+        List<FinanceRecord> records = List.of(record(1L), record(2L), record(3L));
+        AtomicBoolean closed = new AtomicBoolean();
+        when(financeRecordRepository.streamByRecordDateBetween(any(Date.class), any(Date.class)))
+                .thenReturn(records.stream().onClose(() -> closed.set(true)));
+        Consumer<FinanceRecord> consumer = mock(Consumer.class);
+        List<Long> written = new ArrayList<>();
+        doAnswer(invocation -> written.add(((FinanceRecord) invocation.getArgument(0)).getId()))
+                .when(consumer).accept(any());
+
+        financeService.streamFinanceRecords(new Date(0), new Date(), consumer);
+
+        assertEquals(List.of(1L, 2L, 3L), written);
+        InOrder inOrder = inOrder(consumer, entityManager);
+        for (FinanceRecord record : records) {
+            inOrder.verify(consumer).accept(record);
+            inOrder.verify(entityManager).detach(record);
+        }
+        assertTrue(closed.get());
+    }
+}
@@ -0,0 +1,181 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.config.ExecutorConfig;
+import com.mogutou.erp.entity.FileBlob;
+import com.mogutou.erp.entity.FileReference;
+import com.mogutou.erp.service.impl.ImageVariantServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 图片缩略图服务测试类
+ * 测试各尺寸缩略图生成、任务队列满时丢弃以及URL解析缓存
+ */
+@ExtendWith(MockitoExtension.class)
+public class ImageVariantServiceTest {
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    private ImageVariantServiceImpl imageVariantService;
+
+    @TempDir
+    Path blobDir;
+
+    @BeforeEach
+    void setUp() {
+        imageVariantService = new ImageVariantServiceImpl();
+        ReflectionTestUtils.setField(imageVariantService, "fileStorageService", fileStorageService);
+        // 同步执行，便于断言生成结果
+        ReflectionTestUtils.setField(imageVariantService, "imageVariantExecutor", (TaskExecutor) Runnable::run);
+    }
+
+    private FileBlob writeImage(String sha256, int width, int height, int type) throws Exception {
+        Path original = blobDir.resolve(sha256);
+        ImageIO.write(new BufferedImage(width, height, type), "png", original.toFile());
+        FileBlob blob = new FileBlob();
+        blob.setSha256(sha256);
+        blob.setStoragePath(sha256);
+        lenient().when(fileStorageService.findBlob(sha256)).thenReturn(Optional.of(blob));
+        lenient().when(fileStorageService.resolveBlobPath(blob)).thenReturn(original);
+        return blob;
+    }
+
+    private FileReference reference(String url, String sha256) {
+        FileReference reference = new FileReference();
+        reference.setUrl(url);
+        reference.setSha256(sha256);
+        return reference;
+    }
+
+    /**
+     * 测试大图生成64、128、512三种尺寸，最长边等于目标尺寸且保持宽高比
+     */
+    @Test
+    void testGeneratesAllVariantSizes() throws Exception {
+        FileBlob blob = writeImage("large", 1000, 500, BufferedImage.TYPE_INT_RGB);
+
+        imageVariantService.generateVariantsAsync(reference("/api/uploads/large.png", "large"));
+
+        for (int size : ImageVariantService.VARIANT_SIZES) {
+            Path variant = imageVariantService.findVariant(blob, size).orElseThrow();
+            // 不透明图片输出为jpg
+            assertTrue(variant.getFileName().toString().endsWith("_" + size + ".jpg"));
+            BufferedImage image = ImageIO.read(variant.toFile());
+            assertEquals(size, image.getWidth());
+            assertEquals(size / 2, image.getHeight());
+        }
+        // 不留下临时文件
+        try (var files = Files.list(blobDir)) {
+            assertTrue(files.noneMatch(path -> path.toString().endsWith(".part")));
+        }
+    }
+
+    /**
+     * 测试不放大图片：原图比某尺寸小时不生成该尺寸；带透明通道的图片输出为png
+     */
+    @Test
+    void testSkipsSizesNotSmallerThanOriginal() throws Exception {
+        FileBlob blob = writeImage("small", 100, 100, BufferedImage.TYPE_INT_ARGB);
+
+        imageVariantService.generateVariantsAsync(reference("/api/uploads/small.png", "small"));
+
+        Path variant = imageVariantService.findVariant(blob, 64).orElseThrow();
+        assertTrue(variant.getFileName().toString().endsWith("_64.png"));
+        assertTrue(imageVariantService.findVariant(blob, 128).isEmpty());
+        assertTrue(imageVariantService.findVariant(blob, 512).isEmpty());
+    }
+
+    /**
+     * 测试任务队列满时直接丢弃新任务，不抛异常也不阻塞上传请求
+     */
+    @Test
+    void testDropsTasksWhenQueueIsFull() throws Exception {
+        ThreadPoolTaskExecutor executor = new ExecutorConfig().imageVariantExecutor(1, 1);
+        ReflectionTestUtils.setField(imageVariantService, "imageVariantExecutor", executor);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(fileStorageService.findBlob(anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.empty();
+        });
+
+        try {
+            imageVariantService.generateVariantsAsync(reference("/api/uploads/1.png", "1"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            // 第二个任务进入队列，第三个被丢弃
+            imageVariantService.generateVariantsAsync(reference("/api/uploads/2.png", "2"));
+            assertDoesNotThrow(() -> imageVariantService.generateVariantsAsync(reference("/api/uploads/3.png", "3")));
+            release.countDown();
+        } finally {
+            executor.shutdown();
+        }
+
+        verify(fileStorageService).findBlob("1");
+        verify(fileStorageService).findBlob("2");
+        verify(fileStorageService, never()).findBlob("3");
+    }
+
+    /**
+     * 测试缩略图尚未生成时的未命中结果也被缓存，生成完成后重新解析到缩略图
+     */
+    @Test
+    void testResolveVariantUrlCachesMissesUntilGenerated() throws Exception {
+        FileBlob blob = writeImage("avatar", 300, 300, BufferedImage.TYPE_INT_RGB);
+        FileReference reference = reference("/api/uploads/avatar.png", "avatar");
+        when(fileStorageService.findByUrl("/api/uploads/avatar.png")).thenReturn(Optional.of(reference));
+
+        assertEquals("/api/uploads/avatar.png", imageVariantService.resolveVariantUrl("/api/uploads/avatar.png", 100));
+        assertEquals("/api/uploads/avatar.png", imageVariantService.resolveVariantUrl("/api/uploads/avatar.png", 100));
+        verify(fileStorageService, times(1)).findByUrl("/api/uploads/avatar.png");
+
+        imageVariantService.generateVariantsAsync(reference);
+        assertTrue(imageVariantService.findVariant(blob, 128).isPresent());
+
+        assertEquals("/api/uploads/avatar.png?w=128", imageVariantService.resolveVariantUrl("/api/uploads/avatar.png", 100));
+        assertEquals("/api/uploads/avatar.png?w=128", imageVariantService.resolveVariantUrl("/api/uploads/avatar.png", 100));
+        verify(fileStorageService, times(2)).findByUrl("/api/uploads/avatar.png");
+    }
+
+    /**
+     * 测试展示尺寸先归到预设尺寸再缓存：任意展示尺寸最多按三种尺寸各解析一次，超过最大尺寸直接返回原图
+     */
+    @Test
+    void testResolveVariantUrlNormalizesDisplaySize() throws Exception {
+        FileBlob blob = writeImage("photo", 1000, 1000, BufferedImage.TYPE_INT_RGB);
+        FileReference reference = reference("/api/uploads/photo.png", "photo");
+        when(fileStorageService.findByUrl("/api/uploads/photo.png")).thenReturn(Optional.of(reference));
+        imageVariantService.generateVariantsAsync(reference);
+        assertTrue(imageVariantService.findVariant(blob, 512).isPresent());
+
+        for (int displaySize = -5; displaySize <= 2000; displaySize++) {
+            String resolved = imageVariantService.resolveVariantUrl("/api/uploads/photo.png", displaySize);
+            if (displaySize <= 64) {
+                assertEquals("/api/uploads/photo.png?w=64", resolved);
+            } else if (displaySize > 512) {
+                assertEquals("/api/uploads/photo.png", resolved);
+            }
+        }
+        verify(fileStorageService, times(3)).findByUrl("/api/uploads/photo.png");
+    }
+}
@@ -0,0 +1,120 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.entity.Inventory;
+import com.mogutou.erp.entity.StockMovement;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 并发出库测试
+ * 需要可用的MySQL（application.properties中的数据源），默认跳过：
+ * mvn test -Dtest=InventoryConcurrentStockOutTest -Dbenchmark=true
+ * 多个线程同时对同一商品出库，验证行锁下不超卖、不动用订单预占，且库存流水合计与库存数量一致；测试数据在结束时删除
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class InventoryConcurrentStockOutTest {
+
+    private static final int INITIAL_QUANTITY = 20;
+    private static final int RESERVED_QUANTITY = 5;
+    private static final int THREADS = 8;
+    private static final int ATTEMPTS = 40;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 测试并发的手工出库和订单出库：成功出库的合计不超过库存，手工出库不动用订单预占
+     */
+    @Test
+    void testConcurrentStockOutNeverOversells() throws Exception {
+        Inventory inventory = new Inventory();
+        inventory.setProductName("并发出库测试商品" + System.currentTimeMillis());
+        inventory.setQuantity(INITIAL_QUANTITY);
+        inventory.setUnitPrice(1.0);
+        inventory.setUnit("个");
+        Long inventoryId = inventoryService.createInventory(inventory).getId();
+        // 没有对应订单的预占记录，只用于占住一部分库存
+        Long orderId = -System.currentTimeMillis();
+        stockReservationService.reserve(orderId, Map.of(inventoryId, RESERVED_QUANTITY));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < ATTEMPTS; i++) {
+                Callable<Boolean> task = () -> {
+                    start.await();
+                    Inventory stockOutData = new Inventory();
+                    stockOutData.setId(inventoryId);
+                    stockOutData.setQuantity(1);
+                    try {
+                        inventoryService.stockOut(stockOutData);
+                        return true;
+                    } catch (IllegalArgumentException e) {
+                        return false;
+                    }
+                };
+                results.add(executor.submit(task));
+            }
+            start.countDown();
+            int succeeded = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(60, TimeUnit.SECONDS)) {
+                    succeeded++;
+                }
+            }
+
+            // 手工出库只能出未预占的部分
+            assertEquals(INITIAL_QUANTITY - RESERVED_QUANTITY, succeeded);
+            assertEquals(RESERVED_QUANTITY, inventoryService.getInventoryById(inventoryId).getQuantity());
+
+            // 订单确认时先结束自己的预占再出库，出到0后再出库被拒绝
+            stockReservationService.consume(orderId);
+            Inventory orderStockOut = new Inventory();
+            orderStockOut.setId(inventoryId);
+            orderStockOut.setQuantity(RESERVED_QUANTITY);
+            inventoryService.stockOut(orderStockOut, StockMovement.SOURCE_ORDER, orderId);
+            orderStockOut.setQuantity(1);
+            assertThrows(IllegalArgumentException.class,
+                    () -> inventoryService.stockOut(orderStockOut, StockMovement.SOURCE_ORDER, orderId));
+
+            Integer quantity = jdbcTemplate.queryForObject(
+                    "SELECT quantity FROM inventory WHERE id = ?", Integer.class, inventoryId);
+            Integer ledger = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(delta), 0) FROM stock_movement WHERE inventory_id = ?", Integer.class, inventoryId);
+            Integer located = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(quantity), 0) FROM inventory_stock WHERE inventory_id = ?", Integer.class, inventoryId);
+            assertEquals(0, quantity);
+            assertEquals(quantity, ledger);
+            assertEquals(quantity, located);
+        } finally {
+            executor.shutdownNow();
+            stockReservationService.release(orderId);
+            inventoryService.deleteInventory(inventoryId);
+            jdbcTemplate.update("DELETE FROM stock_movement WHERE inventory_id = ?", inventoryId);
+            jdbcTemplate.update("DELETE FROM stock_reservation WHERE order_id = ?", orderId);
+        }
+    }
+}
@@ -1,14 +1,19 @@
 package com.mogutou.erp.service;
 
+import com.mogutou.erp.config.ErpMetrics;
 import com.mogutou.erp.entity.Inventory;
+import com.mogutou.erp.event.LowStockEvent;
 import com.mogutou.erp.repository.InventoryRepository;
 import com.mogutou.erp.service.impl.InventoryServiceImpl;
+import com.mogutou.erp.service.index.InventoryReadModel;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -34,6 +39,24 @@ public class InventoryServiceTest {
     @Mock
     private InventoryRepository inventoryRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private InventoryReadModel inventoryReadModel;
+
+    @Mock
+    private StockLedgerService stockLedgerService;
+
+    @Mock
+    private InventoryStockService inventoryStockService;
+
+    @Mock
+    private ErpMetrics erpMetrics;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
     @InjectMocks
     private InventoryServiceImpl inventoryService;
 
@@ -203,20 +226,21 @@ public class InventoryServiceTest {
     }
 
     /**
-     * 测试更新库存
+     * 测试更新库存 - 请求中的字段复制到加锁加载的记录上，数量差额记调整流水
      */
     @Test
     void testUpdateInventory() {
         // 准备测试数据
+        testInventory.setGoodsId(7L);
         Inventory updatedInventory = new Inventory();
         updatedInventory.setId(1L);
         updatedInventory.setProductName("更新后的商品");
         updatedInventory.setQuantity(150);
         updatedInventory.setUnitPrice(12.00);
 
-        // 模拟仓库行为 - 先检查存在性，再保存
-        when(inventoryRepository.existsById(1L)).thenReturn(true);
-        when(inventoryRepository.save(updatedInventory)).thenReturn(updatedInventory);
+        // 模拟仓库行为 - 先加锁加载，再保存
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.save(testInventory)).thenReturn(testInventory);
 
         // 执行测试
         Inventory result = inventoryService.updateInventory(updatedInventory);
@@ -227,10 +251,37 @@ public class InventoryServiceTest {
         assertEquals("更新后的商品", result.getProductName());
         assertEquals(150, result.getQuantity());
         assertEquals(12.00, result.getUnitPrice());
+        // 请求中没有的字段保持原值，商品关联不会被清空
+        assertEquals(7L, result.getGoodsId());
+        assertEquals("TEST001", result.getProductCode());
+        assertEquals("A区-01", result.getLocation());
+        assertNotNull(result.getCreatedAt());
 
         // 验证仓库方法调用
-        verify(inventoryRepository).existsById(1L);
-        verify(inventoryRepository).save(updatedInventory);
+        verify(inventoryRepository).findByIdForUpdate(1L);
+        verify(inventoryRepository).save(testInventory);
+        verify(inventoryRepository, never()).save(updatedInventory);
+        verify(stockLedgerService).record(1L, 50, "ADJUST", null);
+    }
+
+    /**
+     * 测试更新库存 - 请求中明确给出goodsId时改为新的关联
+     */
+    @Test
+    void testUpdateInventoryRelinksGoodsWhenGiven() {
+        testInventory.setGoodsId(7L);
+        Inventory updatedInventory = new Inventory();
+        updatedInventory.setId(1L);
+        updatedInventory.setGoodsId(8L);
+
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.save(testInventory)).thenReturn(testInventory);
+
+        Inventory result = inventoryService.updateInventory(updatedInventory);
+
+        assertEquals(8L, result.getGoodsId());
+        assertEquals(100, result.getQuantity());
+        verify(stockLedgerService).record(1L, 0, "ADJUST", null);
     }
 
     /**
@@ -244,7 +295,7 @@ public class InventoryServiceTest {
         updatedInventory.setProductName("不存在的商品");
 
         // 模拟仓库行为 - 库存不存在
-        when(inventoryRepository.existsById(999L)).thenReturn(false);
+        when(inventoryRepository.findByIdForUpdate(999L)).thenReturn(Optional.empty());
 
         // 执行测试并验证异常
         EntityNotFoundException exception = assertThrows(
@@ -255,7 +306,7 @@ public class InventoryServiceTest {
         assertEquals("库存不存在，ID: 999", exception.getMessage());
 
         // 验证仓库方法调用
-        verify(inventoryRepository).existsById(999L);
+        verify(inventoryRepository).findByIdForUpdate(999L);
         verify(inventoryRepository, never()).save(any(Inventory.class));
     }
 
@@ -264,16 +315,18 @@ public class InventoryServiceTest {
      */
     @Test
     void testDeleteInventory() {
-        // 模拟仓库行为 - 先检查存在性，再删除
-        when(inventoryRepository.existsById(1L)).thenReturn(true);
+        // 模拟仓库行为 - 先锁定库存行，再删除
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
         doNothing().when(inventoryRepository).deleteById(1L);
 
         // 执行测试
         assertDoesNotThrow(() -> inventoryService.deleteInventory(1L));
 
-        // 验证仓库方法调用
-        verify(inventoryRepository).existsById(1L);
-        verify(inventoryRepository).deleteById(1L);
+        // 验证先锁库存行，再删除库存和分仓库存
+        InOrder inOrder = inOrder(inventoryRepository, inventoryStockService);
+        inOrder.verify(inventoryRepository).findByIdForUpdate(1L);
+        inOrder.verify(inventoryRepository).deleteById(1L);
+        inOrder.verify(inventoryStockService).deleteByInventoryId(1L);
     }
 
     /**
@@ -282,7 +335,7 @@ public class InventoryServiceTest {
     @Test
     void testDeleteInventoryNotFound() {
         // 模拟仓库行为 - 库存不存在
-        when(inventoryRepository.existsById(999L)).thenReturn(false);
+        when(inventoryRepository.findByIdForUpdate(999L)).thenReturn(Optional.empty());
 
         // 执行测试并验证异常
         EntityNotFoundException exception = assertThrows(
@@ -293,8 +346,9 @@ public class InventoryServiceTest {
         assertEquals("库存不存在，ID: 999", exception.getMessage());
 
         // 验证仓库方法调用
-        verify(inventoryRepository).existsById(999L);
+        verify(inventoryRepository).findByIdForUpdate(999L);
         verify(inventoryRepository, never()).deleteById(any(Long.class));
+        verify(inventoryStockService, never()).deleteByInventoryId(any(Long.class));
     }
 
     /**
@@ -317,6 +371,36 @@ public class InventoryServiceTest {
         verify(inventoryRepository).findByProductName("测试商品");
     }
 
+    /**
+     * 测试根据商品名称查找库存 - 读模型已加载时不查库
+     */
+    @Test
+    void testFindByProductNameFromReadModel() {
+        when(inventoryReadModel.isLoaded()).thenReturn(true);
+        when(inventoryReadModel.findByProductName("测试商品")).thenReturn(Optional.of(testInventory));
+
+        Inventory result = inventoryService.findByProductName("测试商品");
+
+        assertNotNull(result);
+        assertEquals("TEST001", result.getProductCode());
+        verify(inventoryRepository, never()).findByProductName(anyString());
+    }
+
+    /**
+     * 测试根据商品名称查找库存 - 读模型中同名库存有多条时回退到数据库
+     */
+    @Test
+    void testFindByProductNameAmbiguousFallsBackToDatabase() {
+        when(inventoryReadModel.isLoaded()).thenReturn(true);
+        when(inventoryReadModel.isAmbiguousName("测试商品")).thenReturn(true);
+        when(inventoryRepository.findByProductName("测试商品")).thenReturn(Optional.of(testInventory));
+
+        Inventory result = inventoryService.findByProductName("测试商品");
+
+        assertEquals(1L, result.getId());
+        verify(inventoryReadModel, never()).findByProductName(anyString());
+    }
+
     /**
      * 测试根据商品名称查找库存 - 商品不存在
      */
@@ -358,25 +442,84 @@ public class InventoryServiceTest {
 
     /**
      * 测试获取低库存商品
-     * 注意：由于当前InventoryService接口中没有getLowStockItems方法，
-     * 这个测试只是为了演示如何测试低库存逻辑
      */
     @Test
     void testGetLowStockItems() {
-        // 跳过这个测试，因为InventoryService接口中没有对应的方法
-        // 如果需要实现，可以在接口中添加相应方法
-        
-        // 这里我们测试getAllProductNames方法作为替代
-        when(inventoryRepository.findAllDistinctProductNames()).thenReturn(Arrays.asList("测试商品", "测试商品2"));
+        // 模拟仓库行为
+        testInventory.setQuantity(3);
+        Pageable pageable = PageRequest.of(0, 10);
+        when(inventoryRepository.findLowStock(pageable)).thenReturn(new PageImpl<>(List.of(testInventory), pageable, 1));
 
-        List<String> result = inventoryService.getAllProductNames();
+        // 执行测试
+        Page<Inventory> result = inventoryService.getLowStockList(0, 10);
 
+        // 验证结果
         assertNotNull(result);
-        assertEquals(2, result.size());
-        assertTrue(result.contains("测试商品"));
-        assertTrue(result.contains("测试商品2"));
+        assertEquals(1, result.getTotalElements());
+        assertTrue(result.getContent().get(0).isLowStock());
 
-        verify(inventoryRepository).findAllDistinctProductNames();
+        // 验证仓库方法调用
+        verify(inventoryRepository).findLowStock(pageable);
+    }
+
+    /**
+     * 测试出库先锁定库存行，再更新分仓库存，与其他路径的加锁顺序一致
+     */
+    @Test
+    void testStockOutLocksInventoryBeforeLocationRows() {
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.save(testInventory)).thenReturn(testInventory);
+
+        Inventory stockOutData = new Inventory();
+        stockOutData.setId(1L);
+        stockOutData.setQuantity(5);
+        inventoryService.stockOut(stockOutData);
+
+        InOrder inOrder = inOrder(inventoryRepository, inventoryStockService);
+        inOrder.verify(inventoryRepository).findByIdForUpdate(1L);
+        inOrder.verify(inventoryRepository).save(testInventory);
+        inOrder.verify(inventoryStockService).apply(eq(1L), any(), eq(-5));
+        assertEquals(95, testInventory.getQuantity());
+    }
+
+    /**
+     * 测试出库后库存跌破预警阈值时发布预警事件，已处于低库存时不重复发布
+     */
+    @Test
+    void testStockOutPublishesLowStockEventOnlyOnCrossing() {
+        // 模拟仓库行为：库存100，预警阈值10
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.save(testInventory)).thenReturn(testInventory);
+
+        // 出库到95，仍高于阈值，不预警
+        Inventory firstStockOut = new Inventory();
+        firstStockOut.setId(1L);
+        firstStockOut.setQuantity(5);
+        inventoryService.stockOut(firstStockOut);
+        verify(eventPublisher, never()).publishEvent(any(LowStockEvent.class));
+
+        // 出库到8，跌破阈值，预警一次
+        Inventory secondStockOut = new Inventory();
+        secondStockOut.setId(1L);
+        secondStockOut.setQuantity(87);
+        inventoryService.stockOut(secondStockOut);
+
+        // 再出库到5，已处于低库存，不重复预警
+        Inventory thirdStockOut = new Inventory();
+        thirdStockOut.setId(1L);
+        thirdStockOut.setQuantity(3);
+        inventoryService.stockOut(thirdStockOut);
+
+        // 每次出库还会发布库存变更事件，这里只看预警事件
+        org.mockito.ArgumentCaptor<Object> captor = org.mockito.ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, atLeastOnce()).publishEvent(captor.capture());
+        List<LowStockEvent> lowStockEvents = captor.getAllValues().stream()
+                .filter(LowStockEvent.class::isInstance)
+                .map(LowStockEvent.class::cast)
+                .collect(java.util.stream.Collectors.toList());
+        assertEquals(1, lowStockEvents.size());
+        assertEquals(8, lowStockEvents.get(0).getQuantity());
+        assertEquals(10, lowStockEvents.get(0).getWarningThreshold());
     }
 
     /**
@@ -385,7 +528,7 @@ public class InventoryServiceTest {
     @Test
     void testAdjustInventory() {
         // 模拟仓库行为
-        when(inventoryRepository.findById(1L)).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
         when(inventoryRepository.save(any(Inventory.class))).thenAnswer(invocation -> {
             Inventory inventory = invocation.getArgument(0);
             inventory.setUpdatedAt(LocalDateTime.now());
@@ -405,7 +548,7 @@ public class InventoryServiceTest {
         assertEquals(120, result.getQuantity()); // 原来100 + 调整20 = 120
 
         // 验证仓库方法调用
-        verify(inventoryRepository).findById(1L);
+        verify(inventoryRepository).findByIdForUpdate(1L);
         verify(inventoryRepository).save(testInventory);
     }
 
@@ -415,7 +558,7 @@ public class InventoryServiceTest {
     @Test
     void testAdjustInventoryNotFound() {
         // 模拟仓库行为
-        when(inventoryRepository.findById(999L)).thenReturn(Optional.empty());
+        when(inventoryRepository.findByIdForUpdate(999L)).thenReturn(Optional.empty());
 
         // 准备入库数据
         Inventory stockInData = new Inventory();
@@ -431,7 +574,7 @@ public class InventoryServiceTest {
         assertEquals("库存不存在，ID: 999", exception.getMessage());
 
         // 验证仓库方法调用
-        verify(inventoryRepository).findById(999L);
+        verify(inventoryRepository).findByIdForUpdate(999L);
         verify(inventoryRepository, never()).save(any(Inventory.class));
     }
 
@@ -474,6 +617,7 @@ public class InventoryServiceTest {
     void testCreateOrUpdateInventoryFromGoodsUpdate() {
         // 模拟仓库行为 - 商品已存在
         when(inventoryRepository.findByProductName("测试商品")).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
         when(inventoryRepository.save(testInventory)).thenReturn(testInventory);
 
         // 执行测试
@@ -497,7 +641,7 @@ public class InventoryServiceTest {
     @Test
     void testReduceInventory() {
         // 模拟仓库行为
-        when(inventoryRepository.findById(1L)).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
         when(inventoryRepository.save(testInventory)).thenReturn(testInventory);
 
         // 准备出库数据
@@ -513,8 +657,10 @@ public class InventoryServiceTest {
         assertEquals(80, result.getQuantity()); // 原来100 - 减少20 = 80
 
         // 验证仓库方法调用
-        verify(inventoryRepository).findById(1L);
+        verify(inventoryRepository).findByIdForUpdate(1L);
         verify(inventoryRepository).save(testInventory);
+        // 验证记录了出库流水
+        verify(stockLedgerService).record(1L, -20, "MANUAL", null);
     }
 
     /**
@@ -523,7 +669,7 @@ public class InventoryServiceTest {
     @Test
     void testReduceInventoryInsufficientStock() {
         // 模拟仓库行为
-        when(inventoryRepository.findById(1L)).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
 
         // 准备出库数据 - 尝试减少150，但只有100
         Inventory stockOutData = new Inventory();
@@ -539,17 +685,82 @@ public class InventoryServiceTest {
         assertEquals("库存不足，当前库存: 100", exception.getMessage());
 
         // 验证仓库方法调用
-        verify(inventoryRepository).findById(1L);
+        verify(inventoryRepository).findByIdForUpdate(1L);
         verify(inventoryRepository, never()).save(any(Inventory.class));
     }
 
+    /**
+     * 测试手工出库不能动用订单已预占的库存
+     */
+    @Test
+    void testManualStockOutRespectsReservations() {
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
+        when(stockReservationService.getReserved(1L)).thenReturn(60);
+
+        // 库存100，订单预占60，手工出库50超过可用的40
+        Inventory stockOutData = new Inventory();
+        stockOutData.setId(1L);
+        stockOutData.setQuantity(50);
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> inventoryService.stockOut(stockOutData)
+        );
+
+        assertEquals("库存不足，当前库存: 100, 订单已预占: 60", exception.getMessage());
+        verify(inventoryRepository, never()).save(any(Inventory.class));
+        verify(inventoryStockService, never()).apply(anyLong(), any(), anyInt());
+    }
+
+    /**
+     * 测试订单出库消耗的是自己的预占：确认时已先consume，本事务中的预占不再计入自己的部分
+     */
+    @Test
+    void testOrderStockOutConsumesOwnReservation() {
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.save(testInventory)).thenReturn(testInventory);
+        when(stockReservationService.getReserved(1L)).thenReturn(0);
+
+        Inventory stockOutData = new Inventory();
+        stockOutData.setId(1L);
+        stockOutData.setQuantity(100);
+
+        Inventory result = inventoryService.stockOut(stockOutData, "ORDER", 7L);
+
+        assertEquals(0, result.getQuantity());
+        verify(stockLedgerService).record(1L, -100, "ORDER", 7L);
+    }
+
+    /**
+     * 测试没有预占的订单确认出库时，不能动用其他订单已预占的库存
+     */
+    @Test
+    void testOrderStockOutRespectsOtherOrdersReservations() {
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
+        when(stockReservationService.getReserved(1L)).thenReturn(60);
+
+        // 库存100，其他订单预占60，本订单没有预占，出库50超过可用的40
+        Inventory stockOutData = new Inventory();
+        stockOutData.setId(1L);
+        stockOutData.setQuantity(50);
+
+        IllegalArgumentException exception = assertThrows(
+                IllegalArgumentException.class,
+                () -> inventoryService.stockOut(stockOutData, "ORDER", 8L)
+        );
+
+        assertEquals("库存不足，当前库存: 100, 订单已预占: 60", exception.getMessage());
+        verify(inventoryRepository, never()).save(any(Inventory.class));
+        verify(stockLedgerService, never()).record(anyLong(), anyInt(), any(), any());
+    }
+
     /**
      * 测试增加库存 - 使用stockIn方法
      */
     @Test
     void testIncreaseInventory() {
         // 模拟仓库行为
-        when(inventoryRepository.findById(1L)).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
         when(inventoryRepository.save(testInventory)).thenReturn(testInventory);
 
         // 准备入库数据
@@ -565,7 +776,7 @@ public class InventoryServiceTest {
         assertEquals(130, result.getQuantity()); // 原来100 + 增加30 = 130
 
         // 验证仓库方法调用
-        verify(inventoryRepository).findById(1L);
+        verify(inventoryRepository).findByIdForUpdate(1L);
         verify(inventoryRepository).save(testInventory);
     }
 
@@ -575,7 +786,7 @@ public class InventoryServiceTest {
     @Test
     void testIncreaseInventoryNotFound() {
         // 模拟仓库行为
-        when(inventoryRepository.findById(999L)).thenReturn(Optional.empty());
+        when(inventoryRepository.findByIdForUpdate(999L)).thenReturn(Optional.empty());
 
         // 准备入库数据
         Inventory stockInData = new Inventory();
@@ -591,7 +802,149 @@ public class InventoryServiceTest {
         assertEquals("库存不存在，ID: 999", exception.getMessage());
 
         // 验证仓库方法调用
-        verify(inventoryRepository).findById(999L);
+        verify(inventoryRepository).findByIdForUpdate(999L);
         verify(inventoryRepository, never()).save(any(Inventory.class));
     }
-}
\ No newline at end of file
+
+    /**
+     * 测试批量出入库 - 合并同一商品的明细，按ID顺序加锁
+     */
+    @Test
+    void testApplyStockMovementsMergesDuplicates() {
+        Inventory second = new Inventory();
+        second.setId(2L);
+        second.setProductName("商品B");
+        second.setProductCode("B001");
+        second.setQuantity(50);
+        second.setWarningThreshold(5);
+
+        when(inventoryRepository.findIdsByProductCodeIn(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{"B001", 2L}));
+        when(inventoryRepository.findAllByIdInForUpdate(anyCollection()))
+                .thenReturn(Arrays.asList(testInventory, second));
+        when(inventoryRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<com.mogutou.erp.dto.StockMovementRequest> movements = Arrays.asList(
+                new com.mogutou.erp.dto.StockMovementRequest(null, "B001", 10),
+                new com.mogutou.erp.dto.StockMovementRequest(1L, null, -20),
+                new com.mogutou.erp.dto.StockMovementRequest(null, "B001", -30));
+
+        List<Inventory> result = inventoryService.applyStockMovements(movements);
+
+        assertEquals(2, result.size());
+        assertEquals(80, testInventory.getQuantity());
+        assertEquals(30, second.getQuantity());
+
+        org.mockito.ArgumentCaptor<java.util.Collection<Long>> idsCaptor = org.mockito.ArgumentCaptor.forClass(java.util.Collection.class);
+        verify(inventoryRepository).findAllByIdInForUpdate(idsCaptor.capture());
+        assertEquals(Arrays.asList(1L, 2L), new java.util.ArrayList<>(idsCaptor.getValue()));
+        verify(inventoryRepository, never()).findById(anyLong());
+    }
+
+    /**
+     * 测试批量出入库 - 任一商品库存不足时整批失败
+     */
+    @Test
+    void testApplyStockMovementsInsufficientStock() {
+        when(inventoryRepository.findAllByIdInForUpdate(anyCollection()))
+                .thenReturn(List.of(testInventory));
+
+        List<com.mogutou.erp.dto.StockMovementRequest> movements = List.of(
+                new com.mogutou.erp.dto.StockMovementRequest(1L, null, -1000));
+
+        assertThrows(IllegalArgumentException.class, () -> inventoryService.applyStockMovements(movements));
+        verify(inventoryRepository, never()).saveAll(anyList());
+    }
+
+    /**
+     * 测试批量出库不能动用订单已预占的库存，入库不受预占影响
+     */
+    @Test
+    void testApplyStockMovementsRespectsReservations() {
+        when(inventoryRepository.findAllByIdInForUpdate(anyCollection()))
+                .thenReturn(List.of(testInventory));
+        when(stockReservationService.getReserved(1L)).thenReturn(60);
+
+        List<com.mogutou.erp.dto.StockMovementRequest> movements = List.of(
+                new com.mogutou.erp.dto.StockMovementRequest(1L, null, -50));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> inventoryService.applyStockMovements(movements));
+        assertTrue(exception.getMessage().contains("订单已预占: 60"));
+        verify(inventoryRepository, never()).saveAll(anyList());
+    }
+
+    /**
+     * 测试批量出入库 - 商品编码对应多条库存时拒绝整批，不任选一条调整
+     */
+    @Test
+    void testApplyStockMovementsRejectsDuplicateProductCode() {
+        when(inventoryRepository.findIdsByProductCodeIn(anyCollection()))
+                .thenReturn(List.<Object[]>of(new Object[]{"B001", 2L}, new Object[]{"B001", 3L}));
+
+        List<com.mogutou.erp.dto.StockMovementRequest> movements = List.of(
+                new com.mogutou.erp.dto.StockMovementRequest(null, "B001", 10));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> inventoryService.applyStockMovements(movements));
+        assertTrue(exception.getMessage().contains("B001"));
+        verify(inventoryRepository, never()).findAllByIdInForUpdate(anyCollection());
+        verify(inventoryRepository, never()).saveAll(anyList());
+    }
+
+    /**
+     * 测试按商品创建或更新库存 - 未关联商品ID的旧库存按名称匹配后补上关联
+     */
+    @Test
+    void testCreateOrUpdateInventoryForGoodsLinksLegacyRow() {
+        com.mogutou.erp.entity.Goods goods = new com.mogutou.erp.entity.Goods();
+        goods.setId(7L);
+        goods.setName("测试商品");
+        goods.setCode("TEST001");
+
+        when(inventoryRepository.findIdByGoodsId(7L)).thenReturn(Optional.empty());
+        when(inventoryRepository.findByProductName("测试商品")).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(testInventory));
+        when(inventoryRepository.save(testInventory)).thenReturn(testInventory);
+
+        Inventory result = inventoryService.createOrUpdateInventoryForGoods(goods, 5, null, "ORDER", 100L);
+
+        assertEquals(105, result.getQuantity());
+        assertEquals(7L, result.getGoodsId());
+        verify(stockLedgerService).record(1L, 5, "ORDER", 100L);
+    }
+
+    /**
+     * 测试库存估值 - 分类按库存汇总，仓库按分仓库存汇总
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetValuation() {
+        when(inventoryRepository.sumValuationByCategory()).thenReturn(Arrays.asList(
+                new Object[]{"电子产品", 3L, 15L, 1250.5},
+                new Object[]{null, 1L, 3L, 30.0}));
+        // 同一商品分在A仓和B仓的数量分别计入两个仓库
+        when(inventoryRepository.sumValuationByLocation()).thenReturn(Arrays.asList(
+                new Object[]{"A仓", 3L, 11L, 1030.0},
+                new Object[]{"B仓", 2L, 7L, 250.5}));
+
+        java.util.Map<String, Object> result = inventoryService.getValuation();
+
+        assertEquals(4L, result.get("productCount"));
+        assertEquals(18L, result.get("totalQuantity"));
+        assertEquals(new java.math.BigDecimal("1280.50"), result.get("totalValue"));
+        List<java.util.Map<String, Object>> byCategory = (List<java.util.Map<String, Object>>) result.get("byCategory");
+        assertEquals(2, byCategory.size());
+        assertEquals("电子产品", byCategory.get(1).get("category"));
+        assertEquals(new java.math.BigDecimal("1250.50"), byCategory.get(1).get("value"));
+        assertEquals("未分类", byCategory.get(0).get("category"));
+        List<java.util.Map<String, Object>> byLocation = (List<java.util.Map<String, Object>>) result.get("byLocation");
+        assertEquals(2, byLocation.size());
+        assertEquals("A仓", byLocation.get(0).get("location"));
+        assertEquals(11L, byLocation.get(0).get("quantity"));
+        assertEquals(new java.math.BigDecimal("1030.00"), byLocation.get(0).get("value"));
+        assertEquals("B仓", byLocation.get(1).get("location"));
+        assertEquals(2L, byLocation.get(1).get("productCount"));
+        verify(inventoryRepository, never()).findAll();
+    }
+}
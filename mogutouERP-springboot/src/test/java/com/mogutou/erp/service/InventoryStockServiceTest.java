@@ -0,0 +1,129 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.entity.InventoryStock;
+import com.mogutou.erp.repository.InventoryStockRepository;
+import com.mogutou.erp.service.impl.InventoryStockServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 分仓库存服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+public class InventoryStockServiceTest {
+
+    @Mock
+    private InventoryStockRepository inventoryStockRepository;
+
+    @InjectMocks
+    private InventoryStockServiceImpl inventoryStockService;
+
+    private InventoryStock stock(String location, int quantity) {
+        InventoryStock stock = new InventoryStock();
+        stock.setInventoryId(1L);
+        stock.setLocation(location);
+        stock.setQuantity(quantity);
+        return stock;
+    }
+
+    /**
+     * 测试入库到没有记录的仓库时新建分仓行，仓库为空时使用默认仓库
+     */
+    @Test
+    void testApplyInboundCreatesRow() {
+        when(inventoryStockRepository.findByInventoryIdAndLocationForUpdate(1L, InventoryStock.DEFAULT_LOCATION))
+                .thenReturn(Optional.empty());
+
+        inventoryStockService.apply(1L, " ", 8);
+
+        ArgumentCaptor<InventoryStock> captor = ArgumentCaptor.forClass(InventoryStock.class);
+        verify(inventoryStockRepository).save(captor.capture());
+        assertEquals(InventoryStock.DEFAULT_LOCATION, captor.getValue().getLocation());
+        assertEquals(8, captor.getValue().getQuantity());
+    }
+
+    /**
+     * 测试出库分配：指定仓库优先，不足部分从库存最多的仓库出
+     */
+    @Test
+    void testAllocateOutPreferredThenLargest() {
+        InventoryStock a = stock("A仓", 5);
+        InventoryStock b = stock("B仓", 3);
+        InventoryStock c = stock("C仓", 20);
+        when(inventoryStockRepository.findByInventoryIdForUpdate(1L)).thenReturn(new ArrayList<>(Arrays.asList(a, b, c)));
+
+        Map<String, Integer> allocation = inventoryStockService.allocateOut(1L, "B仓", 10);
+
+        assertEquals(Arrays.asList("B仓", "C仓"), new ArrayList<>(allocation.keySet()));
+        assertEquals(3, allocation.get("B仓"));
+        assertEquals(7, allocation.get("C仓"));
+        assertEquals(5, a.getQuantity());
+        assertEquals(0, b.getQuantity());
+        assertEquals(13, c.getQuantity());
+    }
+
+    /**
+     * 测试所有仓库合计不足时拒绝出库且不修改数据
+     */
+    @Test
+    void testAllocateOutInsufficient() {
+        InventoryStock a = stock("A仓", 2);
+        when(inventoryStockRepository.findByInventoryIdForUpdate(1L)).thenReturn(Collections.singletonList(a));
+
+        assertThrows(IllegalArgumentException.class, () -> inventoryStockService.allocateOut(1L, null, 3));
+
+        assertEquals(2, a.getQuantity());
+        verify(inventoryStockRepository, never()).saveAll(any());
+    }
+
+    /**
+     * 测试跨仓汇总使用数据库聚合结果，附带商品明细时才查询商品合计
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRollup() {
+        when(inventoryStockRepository.sumQuantityByLocation())
+                .thenReturn(Arrays.asList(new Object[]{"A仓", 9L}, new Object[]{"B仓", 6L}));
+        when(inventoryStockRepository.sumQuantityByInventory())
+                .thenReturn(Arrays.asList(new Object[]{1L, 11L}, new Object[]{2L, 4L}));
+
+        Map<String, Object> result = inventoryStockService.rollup(true);
+
+        assertEquals(15L, result.get("total"));
+        Map<String, Long> locations = (Map<String, Long>) result.get("locations");
+        assertEquals(9L, locations.get("A仓"));
+        assertEquals(6L, locations.get("B仓"));
+        Map<Long, Long> products = (Map<Long, Long>) result.get("products");
+        assertEquals(11L, products.get(1L));
+        assertEquals(4L, products.get(2L));
+    }
+
+    /**
+     * 测试不要商品明细时只查询仓库合计
+     */
+    @Test
+    void testRollupWithoutProducts() {
+        when(inventoryStockRepository.sumQuantityByLocation())
+                .thenReturn(Collections.singletonList(new Object[]{"A仓", 9L}));
+
+        Map<String, Object> result = inventoryStockService.rollup(false);
+
+        assertEquals(9L, result.get("total"));
+        assertFalse(result.containsKey("products"));
+        verify(inventoryStockRepository, never()).sumQuantityByInventory();
+    }
+}
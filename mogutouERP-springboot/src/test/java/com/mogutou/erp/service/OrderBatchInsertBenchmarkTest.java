@@ -0,0 +1,85 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.entity.Goods;
+import com.mogutou.erp.entity.Order;
+import com.mogutou.erp.entity.OrderGoods;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 大订单批量插入基准测试
+ * 需要可用的MySQL（application.properties中的数据源），默认跳过：
+ * mvn test -Dtest=OrderBatchInsertBenchmarkTest -Dbenchmark=true
+ * 保存一个包含LINE_COUNT行商品的订单，统计实际准备的SQL语句数；数据在事务结束时回滚
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class OrderBatchInsertBenchmarkTest {
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(OrderBatchInsertBenchmarkTest.class);
+
+    private static final int LINE_COUNT = 100;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testLargeOrderInsertIsBatched() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+            Goods goods = new Goods();
+            goods.setName("批量插入基准商品");
+            goods.setCode("BENCH" + System.currentTimeMillis());
+            goods.setStatus(1);
+            entityManager.persist(goods);
+            entityManager.flush();
+
+            Order order = new Order();
+            order.setOrderNo("BENCH" + System.currentTimeMillis());
+            order.setOrderType("SALE");
+            order.setStatus("PENDING");
+            List<OrderGoods> lines = new ArrayList<>();
+            for (int i = 0; i < LINE_COUNT; i++) {
+                OrderGoods line = new OrderGoods();
+                line.setOrder(order);
+                line.setGoods(goods);
+                line.setQuantity(1);
+                line.setUnitPrice(1.0f);
+                line.setTotalPrice(1.0f);
+                lines.add(line);
+            }
+            order.setGoods(lines);
+
+            statistics.clear();
+            long start = System.nanoTime();
+            entityManager.persist(order);
+            entityManager.flush();
+            long elapsedMicros = (System.nanoTime() - start) / 1000;
+            long statements = statistics.getPrepareStatementCount();
+            log.info("保存{}行商品的订单: 准备SQL语句数={}, 耗时={}us（IDENTITY主键时至少为{}条）",
+                    LINE_COUNT, statements, elapsedMicros, LINE_COUNT + 1);
+
+            status.setRollbackOnly();
+            // 订单1条INSERT + 订单商品按batch_size合并的INSERT + 号段表的读取/更新
+            assertTrue(statements < LINE_COUNT / 5, "订单商品未批量插入，准备SQL语句数: " + statements);
+        });
+    }
+}
@@ -1,11 +1,13 @@
 package com.mogutou.erp.service;
 
+import com.mogutou.erp.config.ErpMetrics;
 import com.mogutou.erp.entity.Goods;
 import com.mogutou.erp.entity.Order;
 import com.mogutou.erp.entity.OrderGoods;
 import com.mogutou.erp.entity.User;
 import com.mogutou.erp.entity.Inventory;
 import com.mogutou.erp.entity.FinanceRecord;
+import com.mogutou.erp.mapper.OrderMapper;
 import com.mogutou.erp.repository.GoodsRepository;
 import com.mogutou.erp.repository.OrderRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -19,6 +21,8 @@ import org.springframework.data.domain.PageImpl;
 
 import org.springframework.data.domain.Pageable;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
@@ -44,6 +48,15 @@ public class OrderServiceTest {
     @Mock
     private FinanceService financeService;
 
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private OrderMapper orderMapper;
+
+    @Mock
+    private ErpMetrics erpMetrics;
+
     @InjectMocks
     private OrderService orderService;
 
@@ -175,6 +188,46 @@ public class OrderServiceTest {
         verify(orderRepository, times(1)).save(any(Order.class));
     }
 
+    @Test
+    public void testCreateOrder_MatchesGoodsByCode() {
+        // 准备测试数据：前端只传了商品编码
+        Order order = new Order();
+        order.setType("customer");
+        order.setCustomerName("测试客户");
+
+        Goods existing = new Goods();
+        existing.setId(5L);
+        existing.setCode("G001");
+        existing.setName("已有商品");
+
+        List<OrderGoods> goods = new ArrayList<>();
+        OrderGoods orderGoods = new OrderGoods();
+        Goods goodsItem = new Goods();
+        goodsItem.setCode("G001");
+        goodsItem.setName("已有商品");
+        orderGoods.setGoods(goodsItem);
+        orderGoods.setQuantity(1);
+        orderGoods.setUnitPrice(10.0f);
+        goods.add(orderGoods);
+        order.setGoods(goods);
+
+        // 模拟仓库层行为
+        when(goodsRepository.findOneByCode("G001")).thenReturn(Optional.of(existing));
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order savedOrder = invocation.getArgument(0);
+            savedOrder.setId(1L);
+            return savedOrder;
+        });
+
+        // 执行测试
+        orderService.createOrder(order, goods);
+
+        // 验证按编码关联到已有商品，不再按名称查找或新建商品
+        assertSame(existing, orderGoods.getGoods());
+        verify(goodsRepository, never()).findByName(anyString());
+        verify(goodsRepository, never()).save(any(Goods.class));
+    }
+
     @Test
     public void testGetOrdersByType() {
         // 准备测试数据
@@ -227,6 +280,7 @@ public class OrderServiceTest {
 
         Inventory inventory = new Inventory();
         inventory.setId(1L);
+        inventory.setGoodsId(1L);
         inventory.setProductName("测试商品");
         inventory.setQuantity(10);
         
@@ -246,9 +300,8 @@ public class OrderServiceTest {
 
         // 模拟仓库层行为
         when(orderRepository.findById(anyLong())).thenReturn(Optional.of(order));
-        when(inventoryService.findByProductName(anyString())).thenReturn(inventory);
-        when(inventoryService.stockOut(any(Inventory.class))).thenReturn(updatedInventory);
-        when(goodsRepository.save(any(Goods.class))).thenReturn(goodsItem);
+        when(inventoryService.findByGoods(any(Goods.class))).thenReturn(inventory);
+        when(inventoryService.stockOut(any(Inventory.class), eq("ORDER"), anyLong())).thenReturn(updatedInventory);
         when(financeService.createFinanceRecord(any(FinanceRecord.class))).thenReturn(financeRecord);
         when(orderRepository.save(any(Order.class))).thenReturn(order);
 
@@ -262,9 +315,11 @@ public class OrderServiceTest {
 
         // 验证调用
         verify(orderRepository, times(1)).findById(anyLong());
-        verify(inventoryService, times(2)).findByProductName(anyString());
-        verify(inventoryService, times(1)).stockOut(any(Inventory.class));
+        verify(inventoryService, times(2)).findByGoods(goodsItem);
+        verify(inventoryService, times(1)).stockOut(any(Inventory.class), eq("ORDER"), eq(1L));
         verify(orderRepository, times(1)).save(any(Order.class));
+        // 商品库存由库存表派生，确认订单不再回写商品表
+        verify(goodsRepository, never()).save(any(Goods.class));
     }
 
     @Test
@@ -290,4 +345,187 @@ public class OrderServiceTest {
         // 验证调用
         verify(orderRepository, times(1)).findById(anyLong());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testExportOrders() throws Exception {
+        // 准备测试数据：一个订单的两行商品
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 30, 0);
+        Object[] row1 = {1L, "ORD123456", "SALE", "PENDING", "测试客户", "张三", "13800138000",
+                300.0f, 0.0f, createdAt, "G001", "测试商品", 2, 100.0f, 200.0f};
+        Object[] row2 = {1L, "ORD123456", "SALE", "PENDING", "测试客户", "张三", "13800138000",
+                300.0f, 0.0f, createdAt, "G002", "测试商品,二号", 1, 100.0f, 100.0f};
+
+        // 模拟仓库层行为
+        when(orderRepository.streamOrderExportRows("SALE")).thenReturn(java.util.stream.Stream.of(row1, row2));
+
+        // 执行测试
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rowCount = orderService.exportOrders("customer", out);
+
+        // 验证结果
+        assertEquals(2, rowCount);
+        String csv = out.toString(StandardCharsets.UTF_8);
+        String[] lines = csv.substring(1).split("\r?\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("订单ID,订单编号"));
+        assertTrue(lines[1].contains("2024-05-01 10:30:00"));
+        assertTrue(lines[2].contains("\"测试商品,二号\""));
+
+        // 验证调用
+        verify(orderRepository, times(1)).streamOrderExportRows("SALE");
+    }
+
+    @Test
+    public void testCreateOrder_SaleOrderReservesStock() {
+        // 准备测试数据：同一商品两行
+        Order order = new Order();
+        order.setType("customer");
+        order.setCustomerName("测试客户");
+
+        List<OrderGoods> goods = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            OrderGoods orderGoods = new OrderGoods();
+            Goods goodsItem = new Goods();
+            goodsItem.setId(1L);
+            goodsItem.setName("测试商品");
+            orderGoods.setGoods(goodsItem);
+            orderGoods.setQuantity(3);
+            orderGoods.setUnitPrice(100.0f);
+            goods.add(orderGoods);
+        }
+        order.setGoods(goods);
+
+        Inventory inventory = new Inventory();
+        inventory.setId(7L);
+
+        // 模拟仓库层行为
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order savedOrder = invocation.getArgument(0);
+            savedOrder.setId(1L);
+            return savedOrder;
+        });
+        when(inventoryService.findByGoods(any(Goods.class))).thenReturn(inventory);
+
+        // 执行测试
+        orderService.createOrder(order, goods);
+
+        // 验证按库存ID合并后预占
+        verify(stockReservationService, times(1)).reserve(1L, java.util.Map.of(7L, 6));
+    }
+
+    @Test
+    public void testCreateOrder_SaleOrderRejectedWhenNotAvailable() {
+        Order order = new Order();
+        order.setType("customer");
+
+        OrderGoods orderGoods = new OrderGoods();
+        Goods goodsItem = new Goods();
+        goodsItem.setId(1L);
+        goodsItem.setName("测试商品");
+        orderGoods.setGoods(goodsItem);
+        orderGoods.setQuantity(3);
+        orderGoods.setUnitPrice(100.0f);
+        List<OrderGoods> goods = new ArrayList<>(List.of(orderGoods));
+        order.setGoods(goods);
+
+        Inventory inventory = new Inventory();
+        inventory.setId(7L);
+
+        when(orderRepository.save(any(Order.class))).thenAnswer(invocation -> {
+            Order savedOrder = invocation.getArgument(0);
+            savedOrder.setId(1L);
+            return savedOrder;
+        });
+        when(inventoryService.findByGoods(any(Goods.class))).thenReturn(inventory);
+        doThrow(new IllegalArgumentException("库存不足")).when(stockReservationService).reserve(anyLong(), anyMap());
+
+        // 可承诺量不足时创建失败（事务回滚）
+        RuntimeException e = assertThrows(RuntimeException.class, () -> orderService.createOrder(order, goods));
+        assertTrue(e.getMessage().contains("库存不足"));
+    }
+
+    @Test
+    public void testConfirmOrder_ReservedSkipsStockCheck() {
+        // 准备测试数据：读到的库存已低于订单数量，但创建时已预占
+        Order order = new Order();
+        order.setId(1L);
+        order.setOrderNo("ORD123456");
+        order.setOrderType("SALE");
+        order.setStatus("PENDING");
+
+        Goods goodsItem = new Goods();
+        goodsItem.setId(1L);
+        goodsItem.setName("测试商品");
+        OrderGoods orderGoods = new OrderGoods();
+        orderGoods.setGoods(goodsItem);
+        orderGoods.setQuantity(2);
+        orderGoods.setUnitPrice(100.0f);
+        orderGoods.setTotalPrice(200.0f);
+        order.setGoods(new ArrayList<>(List.of(orderGoods)));
+
+        Inventory inventory = new Inventory();
+        inventory.setId(7L);
+        inventory.setQuantity(1);
+
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(stockReservationService.consume(1L)).thenReturn(java.util.Map.of(7L, 2));
+        when(inventoryService.findByGoods(goodsItem)).thenReturn(inventory);
+        when(orderRepository.save(any(Order.class))).thenReturn(order);
+
+        // 执行测试
+        Order result = orderService.confirmOrder(1L, 0.0f);
+
+        // 验证预占直接转为出库
+        assertEquals("COMPLETED", result.getStatus());
+        verify(inventoryService, times(1)).stockOut(any(Inventory.class), eq("ORDER"), eq(1L));
+    }
+
+    @Test
+    public void testConfirmOrders_Batch() {
+        // 准备测试数据：两个采购订单
+        List<Order> orders = new ArrayList<>();
+        for (long id = 1; id <= 2; id++) {
+            Order order = new Order();
+            order.setId(id);
+            order.setOrderNo("PO" + id);
+            order.setOrderType("PURCHASE");
+            order.setStatus("PENDING");
+            OrderGoods orderGoods = new OrderGoods();
+            orderGoods.setGoods(testGoods);
+            orderGoods.setQuantity(5);
+            orderGoods.setUnitPrice(10.0f);
+            orderGoods.setTotalPrice(50.0f);
+            order.setGoods(new ArrayList<>(List.of(orderGoods)));
+            orders.add(order);
+            when(orderRepository.findById(id)).thenReturn(Optional.of(order));
+        }
+        java.util.Map<Long, Float> freights = java.util.Map.of(1L, 5.0f, 2L, 0.0f);
+        when(orderMapper.completeOrders(freights)).thenReturn(2);
+
+        // 执行测试
+        int confirmed = orderService.confirmOrders(freights);
+
+        // 验证：财务记录一次批量写入，订单状态一条UPDATE，不再逐个save
+        assertEquals(2, confirmed);
+        verify(inventoryService, times(2)).createOrUpdateInventoryForGoods(eq(testGoods), eq(5), eq(10.0), eq("ORDER"), anyLong());
+        @SuppressWarnings("unchecked")
+        org.mockito.ArgumentCaptor<List<FinanceRecord>> captor = org.mockito.ArgumentCaptor.forClass(List.class);
+        verify(financeService).createFinanceRecords(captor.capture());
+        assertEquals(2, captor.getValue().size());
+        assertEquals(1L, captor.getValue().get(0).getOrderId());
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    public void testConfirmOrders_RollsBackWhenStatusChanged() {
+        Order order = new Order();
+        order.setId(1L);
+        order.setOrderType("PURCHASE");
+        order.setStatus("PENDING");
+        order.setGoods(new ArrayList<>());
+        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderMapper.completeOrders(anyMap())).thenReturn(0);
+
+        assertThrows(RuntimeException.class, () -> orderService.confirmOrders(java.util.Map.of(1L, 0.0f)));
+    }
+}
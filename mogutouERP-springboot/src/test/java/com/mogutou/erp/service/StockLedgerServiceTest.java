@@ -0,0 +1,93 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.entity.StockMovement;
+import com.mogutou.erp.entity.StockSnapshot;
+import com.mogutou.erp.repository.StockMovementRepository;
+import com.mogutou.erp.repository.StockSnapshotRepository;
+import com.mogutou.erp.service.impl.StockLedgerServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 库存流水服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+public class StockLedgerServiceTest {
+
+    @Mock
+    private StockMovementRepository stockMovementRepository;
+
+    @Mock
+    private StockSnapshotRepository stockSnapshotRepository;
+
+    @InjectMocks
+    private StockLedgerServiceImpl stockLedgerService;
+
+    /**
+     * 测试记录流水，数量为0时不记录
+     */
+    @Test
+    void testRecord() {
+        stockLedgerService.record(1L, -5, StockMovement.SOURCE_ORDER, 100L);
+        stockLedgerService.record(1L, 0, StockMovement.SOURCE_MANUAL, null);
+
+        ArgumentCaptor<StockMovement> captor = ArgumentCaptor.forClass(StockMovement.class);
+        verify(stockMovementRepository, times(1)).save(captor.capture());
+        assertEquals(-5, captor.getValue().getDelta());
+        assertEquals("ORDER", captor.getValue().getSourceType());
+        assertEquals(100L, captor.getValue().getSourceId());
+    }
+
+    /**
+     * 测试历史库存 = 最近快照 + 之后的流水
+     */
+    @Test
+    void testGetQuantityAtUsesSnapshotPlusTail() {
+        LocalDateTime time = LocalDateTime.of(2025, 6, 1, 12, 0);
+        StockSnapshot snapshot = new StockSnapshot();
+        snapshot.setInventoryId(1L);
+        snapshot.setQuantity(40);
+        snapshot.setLastMovementId(500L);
+
+        when(stockSnapshotRepository.findFirstByInventoryIdAndSnapshotAtLessThanEqualOrderByLastMovementIdDesc(1L, time))
+                .thenReturn(Optional.of(snapshot));
+        when(stockMovementRepository.sumDeltaAfter(1L, 500L, time)).thenReturn(-7L);
+
+        assertEquals(33, stockLedgerService.getQuantityAt(1L, time));
+    }
+
+    /**
+     * 测试没有快照时从头累加流水
+     */
+    @Test
+    void testGetQuantityAtWithoutSnapshot() {
+        LocalDateTime time = LocalDateTime.of(2025, 6, 1, 12, 0);
+        when(stockSnapshotRepository.findFirstByInventoryIdAndSnapshotAtLessThanEqualOrderByLastMovementIdDesc(1L, time))
+                .thenReturn(Optional.empty());
+        when(stockMovementRepository.sumDeltaAfter(1L, 0L, time)).thenReturn(12L);
+
+        assertEquals(12, stockLedgerService.getQuantityAt(1L, time));
+    }
+
+    /**
+     * 测试没有可压缩的流水时不生成快照
+     */
+    @Test
+    void testCompactSnapshotsWithoutMovements() {
+        when(stockMovementRepository.findMaxIdCreatedBefore(any(LocalDateTime.class))).thenReturn(null);
+
+        assertEquals(0, stockLedgerService.compactSnapshots());
+        verify(stockSnapshotRepository, never()).compactUpTo(anyLong());
+    }
+}
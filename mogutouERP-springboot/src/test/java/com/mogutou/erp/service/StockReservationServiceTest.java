@@ -0,0 +1,200 @@
+package com.mogutou.erp.service;
+
+import com.mogutou.erp.entity.Inventory;
+import com.mogutou.erp.entity.StockReservation;
+import com.mogutou.erp.repository.InventoryRepository;
+import com.mogutou.erp.repository.StockReservationRepository;
+import com.mogutou.erp.service.impl.StockReservationServiceImpl;
+import com.mogutou.erp.service.index.InventoryReadModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 库存预占服务测试类
+ */
+@ExtendWith(MockitoExtension.class)
+public class StockReservationServiceTest {
+
+    @Mock
+    private StockReservationRepository stockReservationRepository;
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @Mock
+    private InventoryReadModel inventoryReadModel;
+
+    @InjectMocks
+    private StockReservationServiceImpl stockReservationService;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(stockReservationService);
+    }
+
+    private Inventory inventory(Long inventoryId, int quantity) {
+        Inventory inventory = new Inventory();
+        inventory.setId(inventoryId);
+        inventory.setQuantity(quantity);
+        return inventory;
+    }
+
+    // 预占时按加锁读到的库存数量检查
+    private void locked(Long inventoryId, int quantity) {
+        when(inventoryRepository.findByIdForUpdate(inventoryId)).thenReturn(Optional.of(inventory(inventoryId, quantity)));
+    }
+
+    // 查询可承诺量时读内存读模型
+    private void onHand(Long inventoryId, int quantity) {
+        when(inventoryReadModel.isLoaded()).thenReturn(true);
+        when(inventoryReadModel.findById(inventoryId)).thenReturn(Optional.of(inventory(inventoryId, quantity)));
+    }
+
+    private StockReservation reservation(Long orderId, Long inventoryId, int quantity) {
+        StockReservation reservation = new StockReservation();
+        reservation.setOrderId(orderId);
+        reservation.setInventoryId(inventoryId);
+        reservation.setQuantity(quantity);
+        reservation.setStatus(StockReservation.STATUS_ACTIVE);
+        reservation.setExpiresAt(LocalDateTime.now());
+        return reservation;
+    }
+
+    /**
+     * 测试预占后可承诺量减少，超出可承诺量的预占被拒绝
+     */
+    @Test
+    void testReserveReducesAvailableToPromise() {
+        locked(1L, 10);
+        onHand(1L, 10);
+
+        stockReservationService.reserve(100L, Map.of(1L, 6));
+        assertEquals(6, stockReservationService.getReserved(1L));
+        assertEquals(4, stockReservationService.getAvailableToPromise(1L));
+
+        assertThrows(IllegalArgumentException.class, () -> stockReservationService.reserve(101L, Map.of(1L, 5)));
+        assertEquals(6, stockReservationService.getReserved(1L));
+        verify(stockReservationRepository, times(1)).saveAll(anyList());
+    }
+
+    /**
+     * 测试多商品预占中任一商品不足时，已加上的计数全部撤销
+     */
+    @Test
+    void testReserveIsAllOrNothing() {
+        locked(1L, 10);
+        locked(2L, 1);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> stockReservationService.reserve(100L, Map.of(1L, 3, 2L, 2)));
+
+        assertEquals(0, stockReservationService.getReserved(1L));
+        assertEquals(0, stockReservationService.getReserved(2L));
+        verify(stockReservationRepository, never()).saveAll(anyList());
+    }
+
+    /**
+     * 测试订单确认时预占转为出库并归还计数
+     */
+    @Test
+    void testConsume() {
+        locked(1L, 10);
+        stockReservationService.reserve(100L, Map.of(1L, 4));
+        StockReservation active = reservation(100L, 1L, 4);
+        when(stockReservationRepository.findActiveByOrderIdForUpdate(100L)).thenReturn(new ArrayList<>(List.of(active)));
+
+        Map<Long, Integer> consumed = stockReservationService.consume(100L);
+
+        assertEquals(Map.of(1L, 4), consumed);
+        assertEquals(StockReservation.STATUS_CONSUMED, active.getStatus());
+        assertEquals(0, stockReservationService.getReserved(1L));
+    }
+
+    /**
+     * 测试预占按加锁读到的库存数量检查，不读可能滞后的读模型
+     */
+    @Test
+    void testReserveChecksLockedQuantity() {
+        locked(1L, 3);
+
+        assertThrows(IllegalArgumentException.class, () -> stockReservationService.reserve(100L, Map.of(1L, 5)));
+
+        verify(inventoryRepository).findByIdForUpdate(1L);
+        verifyNoInteractions(inventoryReadModel);
+    }
+
+    /**
+     * 测试事务中确认订单后，本事务查询的预占不再包含该订单，其他订单的预占仍然计入，提交后计数同步扣减
+     */
+    @Test
+    void testGetReservedExcludesConsumedInTransaction() {
+        locked(1L, 10);
+        stockReservationService.reserve(100L, Map.of(1L, 4));
+        stockReservationService.reserve(101L, Map.of(1L, 3));
+        when(stockReservationRepository.findActiveByOrderIdForUpdate(100L))
+                .thenReturn(new ArrayList<>(List.of(reservation(100L, 1L, 4))));
+
+        TransactionSynchronizationManager.initSynchronization();
+        stockReservationService.consume(100L);
+        assertEquals(3, stockReservationService.getReserved(1L));
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+        assertEquals(3, stockReservationService.getReserved(1L));
+    }
+
+    /**
+     * 测试过期清理归还可承诺量
+     */
+    @Test
+    void testExpireOverdue() {
+        locked(1L, 10);
+        onHand(1L, 10);
+        stockReservationService.reserve(100L, Map.of(1L, 7));
+        StockReservation overdue = reservation(100L, 1L, 7);
+        when(stockReservationRepository.findExpiredForUpdate(any(LocalDateTime.class), any(Pageable.class)))
+                .thenReturn(new ArrayList<>(List.of(overdue)));
+
+        int expired = stockReservationService.expireOverdue();
+
+        assertEquals(1, expired);
+        assertEquals(StockReservation.STATUS_EXPIRED, overdue.getStatus());
+        assertEquals(10, stockReservationService.getAvailableToPromise(1L));
+    }
+
+    /**
+     * 测试启动时按数据库中的有效预占重建计数
+     */
+    @Test
+    void testLoad() {
+        List<Object[]> rows = Collections.singletonList(new Object[]{1L, 5L});
+        when(stockReservationRepository.sumActiveByInventory()).thenReturn(rows);
+
+        stockReservationService.load();
+
+        assertEquals(5, stockReservationService.getReserved(1L));
+    }
+}
@@ -0,0 +1,42 @@
+package com.mogutou.erp.service.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 事件序号表测试类
+ */
+public class EventVersionsTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final EventVersions versions = new EventVersions(nanos::get);
+
+    /**
+     * 测试只接受序号更新的事件
+     */
+    @Test
+    void testRejectsOlderEvents() {
+        assertTrue(versions.applySaved(1L, 5));
+        assertFalse(versions.applySaved(1L, 3));
+        assertFalse(versions.applyDeleted(1L, 4));
+        assertTrue(versions.applySaved(1L, 6));
+        assertEquals(1, versions.size());
+    }
+
+    /**
+     * 测试删除后墓碑挡住迟到的旧快照，过期后不再占用内存
+     */
+    @Test
+    void testTombstoneExpires() {
+        versions.applySaved(1L, 5);
+        assertTrue(versions.applyDeleted(1L, 7));
+        assertFalse(versions.applySaved(1L, 6));
+        assertEquals(1, versions.size());
+
+        nanos.addAndGet(EventVersions.TOMBSTONE_TTL.toNanos() + 1);
+        assertEquals(0, versions.size());
+    }
+}
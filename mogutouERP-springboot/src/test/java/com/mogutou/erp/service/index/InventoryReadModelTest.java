@@ -0,0 +1,115 @@
+package com.mogutou.erp.service.index;
+
+import com.mogutou.erp.entity.Inventory;
+import com.mogutou.erp.event.InventoryChangedEvent;
+import com.mogutou.erp.repository.InventoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class InventoryReadModelTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @InjectMocks
+    private InventoryReadModel inventoryReadModel;
+
+    private Inventory mouse;
+
+    @BeforeEach
+    void setUp() {
+        mouse = new Inventory();
+        mouse.setId(1L);
+        mouse.setProductName("无线鼠标");
+        mouse.setProductCode("P001");
+        mouse.setQuantity(10);
+        mouse.setUnitPrice(99.0);
+        when(inventoryRepository.findAll()).thenReturn(List.of(mouse));
+        inventoryReadModel.load();
+    }
+
+    /**
+     * 测试加载后按名称读取，返回副本
+     */
+    @Test
+    void testFindReturnsCopy() {
+        assertTrue(inventoryReadModel.isLoaded());
+        Inventory found = inventoryReadModel.findByProductName("无线鼠标").orElseThrow();
+        assertEquals(10, found.getQuantity());
+
+        found.setQuantity(0);
+        assertEquals(10, inventoryReadModel.findByProductName("无线鼠标").orElseThrow().getQuantity());
+    }
+
+    /**
+     * 测试库存变更、改名和删除事件刷新读模型
+     */
+    @Test
+    void testRefreshOnInventoryChanged() {
+        mouse.setQuantity(3);
+        inventoryReadModel.onInventoryChanged(InventoryChangedEvent.saved(mouse));
+        assertEquals(3, inventoryReadModel.findByProductName("无线鼠标").orElseThrow().getQuantity());
+
+        mouse.setProductName("蓝牙鼠标");
+        inventoryReadModel.onInventoryChanged(InventoryChangedEvent.saved(mouse));
+        assertTrue(inventoryReadModel.findByProductName("无线鼠标").isEmpty());
+        assertTrue(inventoryReadModel.findByProductName("蓝牙鼠标").isPresent());
+
+        inventoryReadModel.onInventoryChanged(InventoryChangedEvent.deleted(1L));
+        assertTrue(inventoryReadModel.findByProductName("蓝牙鼠标").isEmpty());
+    }
+
+    /**
+     * 测试提交后监听器乱序执行时，旧快照不会覆盖新快照，也不会把已删除的记录加回来
+     */
+    @Test
+    void testIgnoresOutOfOrderSnapshots() {
+        mouse.setQuantity(8);
+        InventoryChangedEvent older = InventoryChangedEvent.saved(mouse);
+        mouse.setQuantity(5);
+        InventoryChangedEvent newer = InventoryChangedEvent.saved(mouse);
+
+        inventoryReadModel.onInventoryChanged(newer);
+        inventoryReadModel.onInventoryChanged(older);
+        assertEquals(5, inventoryReadModel.findById(1L).orElseThrow().getQuantity());
+
+        InventoryChangedEvent stale = InventoryChangedEvent.saved(mouse);
+        InventoryChangedEvent deleted = InventoryChangedEvent.deleted(1L);
+        inventoryReadModel.onInventoryChanged(deleted);
+        inventoryReadModel.onInventoryChanged(stale);
+        assertTrue(inventoryReadModel.findById(1L).isEmpty());
+        assertTrue(inventoryReadModel.findByProductName("无线鼠标").isEmpty());
+    }
+
+    /**
+     * 测试同名的多条库存不从内存中任选一条，其中一条改名后恢复唯一
+     */
+    @Test
+    void testDuplicateNamesAreAmbiguous() {
+        Inventory other = new Inventory();
+        other.setId(2L);
+        other.setProductName("无线鼠标");
+        other.setProductCode("P002");
+        other.setQuantity(4);
+        inventoryReadModel.onInventoryChanged(InventoryChangedEvent.saved(other));
+
+        assertTrue(inventoryReadModel.isAmbiguousName("无线鼠标"));
+        assertTrue(inventoryReadModel.findByProductName("无线鼠标").isEmpty());
+        assertEquals(4, inventoryReadModel.findById(2L).orElseThrow().getQuantity());
+
+        other.setProductName("有线鼠标");
+        inventoryReadModel.onInventoryChanged(InventoryChangedEvent.saved(other));
+        assertFalse(inventoryReadModel.isAmbiguousName("无线鼠标"));
+        assertEquals(1L, inventoryReadModel.findByProductName("无线鼠标").orElseThrow().getId());
+    }
+}
@@ -0,0 +1,77 @@
+package com.mogutou.erp.service.index;
+
+import com.mogutou.erp.event.InventoryChangedEvent;
+import com.mogutou.erp.repository.InventoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class InventorySearchIndexTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @InjectMocks
+    private InventorySearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(inventoryRepository.findAllSearchIndexRows()).thenReturn(Arrays.asList(
+                new Object[]{1L, "无线鼠标", "MS-001", "电脑配件"},
+                new Object[]{2L, "鼠标垫", "MP-002", "办公用品"},
+                new Object[]{3L, "游戏鼠标", "MS-003", "电脑配件"},
+                new Object[]{4L, "显示器", "MN-004", "电脑配件"}
+        ));
+        searchIndex.load();
+    }
+
+    private List<Long> search(String keyword, String name, String code, String category) {
+        Map<String, String> criteria = new HashMap<>();
+        criteria.put(null, keyword);
+        criteria.put(InventorySearchIndex.FIELD_NAME, name);
+        criteria.put(InventorySearchIndex.FIELD_CODE, code);
+        criteria.put(InventorySearchIndex.FIELD_CATEGORY, category);
+        return searchIndex.search(criteria);
+    }
+
+    /**
+     * 测试包含查询及排序：前缀命中排在中间包含之前
+     */
+    @Test
+    void testContainsSearchRankedByMatchQuality() {
+        assertEquals(Arrays.asList(2L, 1L, 3L), search("鼠标", null, null, null));
+        assertEquals(List.of(4L), search("显", null, null, null));
+        assertTrue(search("键盘", null, null, null).isEmpty());
+    }
+
+    /**
+     * 测试多字段条件同时满足
+     */
+    @Test
+    void testMultiFieldSearch() {
+        assertEquals(Arrays.asList(1L, 3L), search(null, "鼠标", "ms", "电脑"));
+        assertEquals(List.of(3L), search(null, "游戏", null, "配件"));
+    }
+
+    /**
+     * 测试库存变更后增量更新索引
+     */
+    @Test
+    void testIncrementalUpdate() {
+        searchIndex.onInventoryChanged(InventoryChangedEvent.deleted(2L));
+        assertEquals(Arrays.asList(1L, 3L), search("鼠标", null, null, null));
+        assertTrue(search(null, null, "mp-002", null).isEmpty());
+    }
+}
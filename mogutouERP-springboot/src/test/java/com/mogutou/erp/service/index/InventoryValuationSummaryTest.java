@@ -0,0 +1,74 @@
+package com.mogutou.erp.service.index;
+
+import com.mogutou.erp.entity.Inventory;
+import com.mogutou.erp.event.InventoryChangedEvent;
+import com.mogutou.erp.repository.InventoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class InventoryValuationSummaryTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @InjectMocks
+    private InventoryValuationSummary inventoryValuationSummary;
+
+    @BeforeEach
+    void setUp() {
+        List<Object[]> rows = Arrays.asList(
+                new Object[]{1L, "电子产品", 10, 99.0},
+                new Object[]{2L, "电子产品", 5, 20.0},
+                new Object[]{3L, null, 2, null});
+        when(inventoryRepository.findAllValuationRows()).thenReturn(rows);
+        inventoryValuationSummary.load();
+    }
+
+    @Test
+    void testLoad() {
+        List<Map<String, Object>> totals = inventoryValuationSummary.getCategoryTotals();
+
+        assertEquals(2, totals.size());
+        Map<String, Object> electronics = totals.get(1);
+        assertEquals("电子产品", electronics.get("category"));
+        assertEquals(2L, electronics.get("productCount"));
+        assertEquals(15L, electronics.get("quantity"));
+        assertEquals(new BigDecimal("1090.00"), electronics.get("value"));
+        assertEquals(InventoryValuationSummary.UNCATEGORIZED, totals.get(0).get("category"));
+    }
+
+    @Test
+    void testIncrementalUpdate() {
+        // 出库并改分类：旧分类减去原值，新分类加上新值
+        Inventory changed = new Inventory();
+        changed.setId(2L);
+        changed.setProductName("数据线");
+        changed.setCategory("配件");
+        changed.setQuantity(3);
+        changed.setUnitPrice(20.0);
+        inventoryValuationSummary.onInventoryChanged(InventoryChangedEvent.saved(changed));
+        inventoryValuationSummary.onInventoryChanged(InventoryChangedEvent.deleted(3L));
+
+        List<Map<String, Object>> totals = inventoryValuationSummary.getCategoryTotals();
+
+        assertEquals(2, totals.size());
+        assertEquals("电子产品", totals.get(0).get("category"));
+        assertEquals(new BigDecimal("990.00"), totals.get(0).get("value"));
+        assertEquals("配件", totals.get(1).get("category"));
+        assertEquals(3L, totals.get(1).get("quantity"));
+        assertEquals(new BigDecimal("60.00"), totals.get(1).get("value"));
+    }
+}
@@ -0,0 +1,93 @@
+package com.mogutou.erp.service.index;
+
+import com.mogutou.erp.entity.Inventory;
+import com.mogutou.erp.event.InventoryChangedEvent;
+import com.mogutou.erp.repository.InventoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ProductNameIndexTest {
+
+    @Mock
+    private InventoryRepository inventoryRepository;
+
+    @InjectMocks
+    private ProductNameIndex productNameIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(inventoryRepository.findAllNameIndexRows()).thenReturn(Arrays.asList(
+                new Object[]{1L, "无线鼠标", "P001"},
+                new Object[]{2L, "无线键盘", "P002"},
+                new Object[]{3L, "显示器", "P003"}
+        ));
+        productNameIndex.load();
+    }
+
+    /**
+     * 测试按名称、编码、拼音首字母前缀查找
+     */
+    @Test
+    void testSearchByNameCodeAndInitials() {
+        assertEquals(Arrays.asList("无线键盘", "无线鼠标"), productNameIndex.search("无线", 10));
+        assertEquals(List.of("显示器"), productNameIndex.search("p003", 10));
+        assertEquals(List.of("无线鼠标"), productNameIndex.search("WXS", 10));
+        assertEquals(1, productNameIndex.search("无线", 1).size());
+        assertTrue(productNameIndex.search("  ", 10).isEmpty());
+    }
+
+    /**
+     * 测试库存变更事件同步索引
+     */
+    @Test
+    void testIndexFollowsInventoryChanges() {
+        Inventory renamed = new Inventory();
+        renamed.setId(1L);
+        renamed.setProductName("蓝牙鼠标");
+        renamed.setProductCode("P001");
+        productNameIndex.onInventoryChanged(InventoryChangedEvent.saved(renamed));
+
+        assertEquals(List.of("无线键盘"), productNameIndex.search("无线", 10));
+        assertEquals(List.of("蓝牙鼠标"), productNameIndex.search("lys", 10));
+
+        productNameIndex.onInventoryChanged(InventoryChangedEvent.deleted(2L));
+        assertTrue(productNameIndex.search("无线", 10).isEmpty());
+    }
+
+    /**
+     * 测试提交后监听器乱序执行时，旧的改名快照不会恢复旧前缀，也不会把已删除的商品加回来
+     */
+    @Test
+    void testIgnoresOutOfOrderEvents() {
+        Inventory mouse = new Inventory();
+        mouse.setId(1L);
+        mouse.setProductName("蓝牙鼠标");
+        mouse.setProductCode("P001");
+        InventoryChangedEvent older = InventoryChangedEvent.saved(mouse);
+        mouse.setProductName("静音鼠标");
+        InventoryChangedEvent newer = InventoryChangedEvent.saved(mouse);
+
+        productNameIndex.onInventoryChanged(newer);
+        productNameIndex.onInventoryChanged(older);
+        assertTrue(productNameIndex.search("蓝牙", 10).isEmpty());
+        assertEquals(List.of("静音鼠标"), productNameIndex.search("静音", 10));
+
+        InventoryChangedEvent stale = InventoryChangedEvent.saved(mouse);
+        InventoryChangedEvent deleted = InventoryChangedEvent.deleted(1L);
+        productNameIndex.onInventoryChanged(deleted);
+        productNameIndex.onInventoryChanged(stale);
+        assertTrue(productNameIndex.search("静音", 10).isEmpty());
+        assertTrue(productNameIndex.search("p001", 10).isEmpty());
+    }
+}
@@ -82,6 +82,22 @@ export function useInventoryApi() {
         url: `/api/inventory/by-name/${encodeURIComponent(productName)}`,
         method: 'get'
       })
+    },
+
+    // 库存估值（总金额及按分类、按仓库汇总，由后端聚合计算）
+    getInventoryValuation() {
+      return request({
+        url: '/api/inventory/valuation',
+        method: 'get'
+      })
+    },
+
+    // 按分类的库存估值（首页看板）
+    getCategoryValuation() {
+      return request({
+        url: '/api/inventory/valuation/categories',
+        method: 'get'
+      })
     }
   }
 }
\ No newline at end of file